@@ -0,0 +1,201 @@
+package hw5;
+
+import hw5.problem1.IntQueue2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <b>BreadthFirstSearch</b> finds the fewest edges leading from one node of a graph to
+ * others, whatever their labels. It searches the int ids of a FrozenGraph with an
+ * IntQueue2 of ids as its frontier. Each thread keeps one frontier and reuses it for
+ * every search, so a search allocates only its node-sized arrays of hops (and parent
+ * edges, when finding a path) and nothing for each node it visits. Edges of infinite
+ * weight count as closed and are never followed. A BreadthFirstSearch may be shared
+ * by any number of threads.
+ *
+ * @specfield graph : FrozenGraph<T, E> // the graph that is searched
+ *
+ * @author Logan Ricord
+ */
+
+public class BreadthFirstSearch<T, E> {
+
+	/** The frontier of each thread, created on first use and grown as needed */
+	private static final ThreadLocal<IntQueue2> FRONTIER = new ThreadLocal<IntQueue2>() {
+		@Override
+		protected IntQueue2 initialValue() {
+			return new IntQueue2();
+		}
+	};
+
+	/** The graph that is searched */
+	private final FrozenGraph<T, E> graph;
+
+	// Abstraction Function:
+	//		AF(r) = BreadthFirstSearch searching r.graph
+	//
+	// Representation Invariant:
+	//		graph != null
+
+	/**
+	 * Creates a BreadthFirstSearch over the given snapshot.
+	 *
+	 * @param graph The snapshot to be searched
+	 * @throws IllegalArgumentException if graph == null ||
+	 * 		   graph.nodeCount() > IntQueue2.MAX_CAPACITY
+	 */
+	public BreadthFirstSearch(FrozenGraph<T, E> graph) throws IllegalArgumentException {
+		if(graph == null)
+			throw new IllegalArgumentException("graph is null");
+		// the frontier may have to hold every node at once
+		if(graph.nodeCount() > IntQueue2.MAX_CAPACITY)
+			throw new IllegalArgumentException("graph has too many nodes to search");
+		this.graph = graph;
+	}
+
+	/**
+	 * Creates a BreadthFirstSearch over a snapshot of the given graph.
+	 *
+	 * @param graph The graph to be searched
+	 * @throws IllegalArgumentException if graph == null ||
+	 * 		   graph.nodeCount() > IntQueue2.MAX_CAPACITY
+	 */
+	public BreadthFirstSearch(Graph<T, E> graph) throws IllegalArgumentException {
+		this(freeze(graph));
+	}
+
+	/**
+	 * Returns a snapshot of graph weighing every edge 1, or null if graph is null.
+	 */
+	private static <T, E> FrozenGraph<T, E> freeze(Graph<T, E> graph) {
+		return (graph == null) ? null : graph.freeze(EdgeWeigher.UNIT);
+	}
+
+	/**
+	 * Returns the snapshot searched by this.
+	 *
+	 * @return the snapshot searched by this
+	 */
+	public FrozenGraph<T, E> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Finds the number of edges on a path with the fewest edges from start to every
+	 * node.
+	 *
+	 * @param start The node the paths start at
+	 * @return an array whose i-th element is the fewest edges on a path from start to
+	 * 		   getGraph().nodeOf(i), or -1 if there is no such path
+	 * @throws IllegalArgumentException if start == null || start is not in the graph
+	 */
+	public int[] hopsFrom(T start) throws IllegalArgumentException {
+		int[] hops = new int[graph.nodeCount()];
+		search(graph.idOf(start, "start"), -1, hops, null, null);
+		return hops;
+	}
+
+	/**
+	 * Finds the number of edges on a path with the fewest edges between two nodes,
+	 * stopping as soon as dest is reached.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return the fewest edges on a path from start to dest, -1 if there is none
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public int hops(T start, T dest) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		int[] hops = new int[graph.nodeCount()];
+		search(s, t, hops, null, null);
+		return hops[t];
+	}
+
+	/**
+	 * Finds a path with the fewest edges between two nodes. If no path is found,
+	 * returns null.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return a list of edges leading from start to dest with as few edges as any such
+	 * 		   path (empty if start equals dest), null if no path found
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public List<Edge<E, T>> findPath(T start, T dest) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		int[] hops = new int[graph.nodeCount()];
+		int[] parent = new int[graph.nodeCount()];
+		search(s, t, hops, parent, null);
+		if(hops[t] < 0)
+			return null;
+		List<Edge<E, T>> path = new ArrayList<Edge<E, T>>(hops[t]);
+		for(int v = t; v != s; v = graph.source(parent[v]))
+			path.add(graph.edge(parent[v]));
+		Collections.reverse(path);
+		return path;
+	}
+
+	/**
+	 * Finds every node that some path leads to from start.
+	 *
+	 * @param start The node the paths start at
+	 * @return the nodes reachable from start, by increasing fewest edges from start
+	 * 		   (start first)
+	 * @throws IllegalArgumentException if start == null || start is not in the graph
+	 */
+	public List<T> reachableFrom(T start) throws IllegalArgumentException {
+		int[] hops = new int[graph.nodeCount()];
+		int[] order = new int[graph.nodeCount()];
+		int count = search(graph.idOf(start, "start"), -1, hops, null, order);
+		List<T> reachable = new ArrayList<T>(count);
+		for(int i = 0; i < count; i++)
+			reachable.add(graph.nodeOf(order[i]));
+		return reachable;
+	}
+
+	/**
+	 * Searches breadth-first from s until t is reached, or the whole graph if t is -1.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target, or -1
+	 * @param hops Set to the fewest edges from s to each node reached, -1 elsewhere
+	 * @param parent If not null, set to the edge each node reached was reached by
+	 * @param order If not null, set to the nodes reached in the order reached
+	 * @requires hops, and parent and order if not null, have length graph.nodeCount()
+	 * @return the number of nodes reached
+	 */
+	private int search(int s, int t, int[] hops, int[] parent, int[] order) {
+		Arrays.fill(hops, -1);
+		// each node is queued at most once, so the frontier grows to at most nodeCount
+		IntQueue2 frontier = FRONTIER.get();
+		frontier.clear();
+		hops[s] = 0;
+		frontier.enqueueInt(s);
+		int count = 0;
+		while(!frontier.isEmpty()) {
+			int u = frontier.dequeueInt();
+			if(order != null)
+				order[count] = u;
+			count++;
+			if(u == t)
+				break;
+			for(int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+				int v = graph.target(e);
+				if(hops[v] < 0 && graph.weight(e) < Double.POSITIVE_INFINITY) {
+					hops[v] = hops[u] + 1;
+					if(parent != null)
+						parent[v] = e;
+					frontier.enqueueInt(v);
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,145 @@
+package hw8;
+
+import hw5.problem1.IntQueue2;
+
+/**
+ * BucketQueue is a monotone priority queue of int ids keyed by non-negative whole
+ * numbers (Dial's buckets). It holds one IntQueue2 per key in a window as wide as the
+ * largest step between the key last polled and a key added, cycled through so that
+ * a key lands in bucket key & (buckets.length - 1). Adding is constant time and
+ * polling costs at most the width of the window in empty buckets skipped, so for
+ * searches whose keys only ever grow by bounded whole steps it undercuts a heap. The
+ * same id may be added more than once; each is polled separately.
+ *
+ * @specfield entries : multiset of (id, key) // the ids in the queue with their keys
+ * @specfield current : long                  // the key last polled, or 0
+ *
+ * @author Logan Ricord
+ */
+class BucketQueue {
+
+	/** The buckets, buckets[k & mask] holding the ids added with key k; created when
+	 *  first needed */
+	private final IntQueue2[] buckets;
+
+	/** buckets.length - 1 */
+	private final int mask;
+
+	/** Largest amount a key added may exceed current by */
+	private final int maxStep;
+
+	/** The key of the bucket polled from last */
+	private long current;
+
+	/** Number of ids in the queue */
+	private int size;
+
+	// Abstraction Function:
+	//		AF(r) = BucketQueue such that
+	//			entries = {(id, k) | current <= k <= current + maxStep and id is in
+	//					   buckets[k & mask]}
+	//			current = r.current
+	//
+	// Representation Invariant:
+	//		buckets.length is a power of two greater than maxStep && mask =
+	//		buckets.length - 1 && size is the total size of the buckets
+
+	/**
+	 * Constructs an empty queue for keys at most maxStep beyond the last key polled.
+	 *
+	 * @param maxStep Largest amount a key added may exceed the last key polled by
+	 * @requires 0 <= maxStep < 2^30
+	 * @effects constructs an empty BucketQueue with current = 0
+	 */
+	BucketQueue(int maxStep) {
+		int length = 1;
+		while(length <= maxStep)
+			length = length * 2;
+		buckets = new IntQueue2[length];
+		mask = length - 1;
+		this.maxStep = maxStep;
+	}
+
+	/**
+	 * Returns the largest amount a key added may exceed the last key polled by.
+	 *
+	 * @return the largest step of this
+	 */
+	int maxStep() {
+		return maxStep;
+	}
+
+	/**
+	 * Returns true if this holds no ids.
+	 *
+	 * @return entries is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the key of the id last polled.
+	 *
+	 * @return current
+	 */
+	long currentKey() {
+		return current;
+	}
+
+	/**
+	 * Empties this and starts its keys over from zero.
+	 *
+	 * @modifies this
+	 * @effects entries = {} && current = 0
+	 */
+	void clear() {
+		if(size > 0) {
+			for(IntQueue2 bucket : buckets) {
+				if(bucket != null)
+					bucket.clear();
+			}
+			size = 0;
+		}
+		current = 0;
+	}
+
+	/**
+	 * Adds an id with the given key.
+	 *
+	 * @param id The id to be added
+	 * @param key The key of id
+	 * @requires current <= key <= current + maxStep
+	 * @modifies this
+	 * @effects adds (id, key) to entries
+	 */
+	void add(int id, long key) {
+		int slot = (int) (key & mask);
+		IntQueue2 bucket = buckets[slot];
+		if(bucket == null) {
+			bucket = new IntQueue2();
+			buckets[slot] = bucket;
+		}
+		bucket.enqueueInt(id);
+		size++;
+	}
+
+	/**
+	 * Removes an id with the smallest key, first in first out among equal keys.
+	 *
+	 * @requires !isEmpty()
+	 * @modifies this
+	 * @effects removes the entry (id, k) added first among those of smallest key k, and
+	 * 			sets current = k
+	 * @return the id removed
+	 */
+	int poll() {
+		IntQueue2 bucket = buckets[(int) (current & mask)];
+		while(bucket == null || bucket.isEmpty()) {
+			current++;
+			bucket = buckets[(int) (current & mask)];
+		}
+		size--;
+		return bucket.dequeueInt();
+	}
+}
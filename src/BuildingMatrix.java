@@ -0,0 +1,459 @@
+package hw8;
+
+import hw5.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BuildingMatrix holds the shortest distance between every ordered pair of a set of
+ * buildings in a FrozenGraph, along with one shortest-path tree into each building.
+ * Each tree gives, for every node, the edge leaving it on a shortest path toward that
+ * building, so a path between two buildings is read off by following the tree of the
+ * destination from the start. When edge weights change, the trees are repaired in place,
+ * searching again only from the nodes whose distances the change can affect.
+ *
+ * @specfield graph     : FrozenGraph<T, E> // the graph the matrix was built from
+ * @specfield buildings : sequence of node ids
+ * @specfield dist      : map from (building, building) to double
+ * @specfield next      : map from (building, node) to edge // first edge of a shortest
+ * 														  // path from node to building
+ * @specfield toward    : map from (building, node) to double // length of that path
+ *
+ * @author Logan Ricord
+ */
+class BuildingMatrix<T, E> {
+
+	/** Marks the start of a saved matrix file */
+	private static final int MAGIC = 0x424d5431;
+
+	/** The graph the matrix was built from, or last repaired for */
+	private FrozenGraph<T, E> graph;
+
+	/** Node id of each building */
+	private final int[] ids;
+
+	/** Index of each node among the buildings, -1 if it is not one */
+	private final int[] index;
+
+	/** dist[i * b + j] = shortest distance from building i to building j */
+	private final double[] dist;
+
+	/** next[j * n + v] = edge leaving v on a shortest path to building j, -1 if none */
+	private final int[] next;
+
+	/** toward[j * n + v] = shortest distance from v to building j */
+	private final double[] toward;
+
+	// Abstraction Function:
+	//		AF(r) = BuildingMatrix over r.graph such that, with b = r.ids.length and
+	//				n = r.graph.nodeCount()
+	//			buildings = r.ids
+	//			dist(i, j) = r.dist[i * b + j]
+	//			next(j, v) = r.next[j * n + v], or none if that is -1
+	//			toward(j, v) = r.toward[j * n + v]
+	//
+	// Representation Invariant:
+	//		ids holds distinct node ids && index[ids[i]] = i for each i, and -1 elsewhere &&
+	//		dist.length = b * b && next.length = toward.length = b * n &&
+	//		dist[i * b + j] = toward[j * n + ids[i]]
+
+	/**
+	 * Constructs a matrix over the given arrays.
+	 */
+	private BuildingMatrix(FrozenGraph<T, E> graph, int[] ids, double[] dist, int[] next,
+			double[] toward) {
+		this.graph = graph;
+		this.ids = ids;
+		this.dist = dist;
+		this.next = next;
+		this.toward = toward;
+		index = new int[graph.nodeCount()];
+		Arrays.fill(index, -1);
+		for(int i = 0; i < ids.length; i++)
+			index[ids[i]] = i;
+	}
+
+	/**
+	 * Builds the matrix for the given buildings, running one search into each building
+	 * as a task on the given pool.
+	 *
+	 * @param engine The engine searching the graph
+	 * @param ids The node ids of the buildings
+	 * @param pool The pool to run the searches on
+	 * @requires ids holds distinct node ids of engine's graph
+	 * @return the matrix for the given buildings
+	 */
+	static <T, E> BuildingMatrix<T, E> build(PathEngine<T, E> engine, int[] ids,
+			ForkJoinPool pool) {
+		FrozenGraph<T, E> graph = engine.getGraph();
+		double[] dist = new double[ids.length * ids.length];
+		int[] next = new int[ids.length * graph.nodeCount()];
+		double[] toward = new double[next.length];
+		pool.invoke(new Searches<T, E>(engine, ids, dist, next, toward, 0, ids.length));
+		return new BuildingMatrix<T, E>(graph, ids.clone(), dist, next, toward);
+	}
+
+	/**
+	 * Runs the searches into buildings [lo, hi), splitting the range in half until each
+	 * task runs a single search.
+	 */
+	@SuppressWarnings("serial")
+	private static class Searches<T, E> extends RecursiveAction {
+
+		private final PathEngine<T, E> engine;
+		private final int[] ids;
+		private final double[] dist;
+		private final int[] next;
+		private final double[] toward;
+		private final int lo;
+		private final int hi;
+
+		Searches(PathEngine<T, E> engine, int[] ids, double[] dist, int[] next,
+				double[] toward, int lo, int hi) {
+			this.engine = engine;
+			this.ids = ids;
+			this.dist = dist;
+			this.next = next;
+			this.toward = toward;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if(hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Searches<T, E>(engine, ids, dist, next, toward, lo, mid),
+						new Searches<T, E>(engine, ids, dist, next, toward, mid, hi));
+				return;
+			}
+			int n = engine.getGraph().nodeCount();
+			int b = ids.length;
+			SearchState state = engine.reverseDijkstra(ids[lo]);
+			for(int v = 0; v < n; v++) {
+				next[lo * n + v] = state.isReached(v) ? state.parent[v] : -1;
+				toward[lo * n + v] = state.distance(v);
+			}
+			for(int i = 0; i < b; i++)
+				dist[i * b + lo] = state.distance(ids[i]);
+		}
+	}
+
+	/**
+	 * Returns the graph this was built from, or last repaired for.
+	 *
+	 * @return the graph this holds shortest paths of
+	 */
+	FrozenGraph<T, E> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns true if the given node is one of the buildings of this.
+	 *
+	 * @param v The id of the node
+	 * @return true iff v is a building of this
+	 */
+	boolean contains(int v) {
+		return index[v] >= 0;
+	}
+
+	/**
+	 * Returns the shortest distance between two buildings.
+	 *
+	 * @param s The id of the start building
+	 * @param t The id of the destination building
+	 * @requires contains(s) && contains(t)
+	 * @return the shortest distance from s to t, infinity if there is no path
+	 */
+	double distance(int s, int t) {
+		return dist[index[s] * ids.length + index[t]];
+	}
+
+	/**
+	 * Returns a shortest path between two buildings.
+	 *
+	 * @param s The id of the start building
+	 * @param t The id of the destination building
+	 * @requires contains(s) && contains(t)
+	 * @return a new list of the edges of a shortest path from s to t (empty if s equals
+	 * 		   t), null if there is none
+	 */
+	List<Edge<E, T>> findPath(int s, int t) {
+		return PathEngine.edgeList(graph, findEdges(s, t));
+	}
+
+	/**
+	 * Returns the edges of a shortest path between two buildings.
+	 *
+	 * @param s The id of the start building
+	 * @param t The id of the destination building
+	 * @requires contains(s) && contains(t)
+	 * @return a new array of the ids of the edges of a shortest path from s to t, null
+	 * 		   if there is none
+	 */
+	int[] findEdges(int s, int t) {
+		if(distance(s, t) == Double.POSITIVE_INFINITY)
+			return null;
+		int base = index[t] * graph.nodeCount();
+		int count = 0;
+		for(int v = s; v != t; v = graph.target(next[base + v]))
+			count++;
+		int[] edges = new int[count];
+		int i = 0;
+		for(int v = s; v != t; v = graph.target(next[base + v]))
+			edges[i++] = next[base + v];
+		return edges;
+	}
+
+	/**
+	 * Repairs this for a graph whose edge weights differ from those of the graph of this,
+	 * after which this holds the shortest paths of that graph. Each tree is repaired in
+	 * two steps. First, the nodes whose paths ran over an edge that got heavier are
+	 * searched again from the rest of the tree, which is unaffected. Then each edge
+	 * that got lighter is tried as a shortcut, and the nodes it brings closer are
+	 * searched outward from it. Nodes neither step reaches are not touched.
+	 *
+	 * @param updated The graph with the new weights
+	 * @param changed The indices of the edges whose weights differ, in any order
+	 * @requires updated has the same nodes and edges as getGraph(), by id, and differs
+	 * 			 from it at most in the weights of the edges in changed
+	 * @modifies this
+	 * @effects makes updated the graph of this, and dist, next and toward its
+	 * 			shortest paths
+	 */
+	void reweigh(FrozenGraph<T, E> updated, int[] changed) {
+		FrozenGraph<T, E> old = graph;
+		graph = updated;
+		int n = graph.nodeCount();
+		int b = ids.length;
+		int[] affected = new int[n];
+		for(int j = 0; j < b; j++) {
+			raise(j, old, changed, affected);
+			lower(j, old, changed);
+			for(int i = 0; i < b; i++)
+				dist[i * b + j] = toward[j * n + ids[i]];
+		}
+	}
+
+	/**
+	 * Repairs the tree of building j for the edges of changed that got heavier, as if
+	 * the edges that got lighter had kept their old weights.
+	 */
+	private void raise(int j, FrozenGraph<T, E> old, int[] changed, int[] affected) {
+		int n = graph.nodeCount();
+		int base = j * n;
+		// the nodes whose tree paths use a heavier edge form whole subtrees; mark them by
+		// a negative distance
+		int count = 0;
+		for(int e : changed) {
+			int u = graph.source(e);
+			if(graph.weight(e) > old.weight(e) && next[base + u] == e
+					&& toward[base + u] >= 0) {
+				toward[base + u] = -1;
+				affected[count++] = u;
+			}
+		}
+		for(int k = 0; k < count; k++) {
+			int v = affected[k];
+			for(int i = graph.firstInEdge(v), end = graph.endInEdge(v); i < end; i++) {
+				int p = graph.inSource(i);
+				if(next[base + p] == graph.inEdge(i) && toward[base + p] >= 0) {
+					toward[base + p] = -1;
+					affected[count++] = p;
+				}
+			}
+		}
+		if(count == 0)
+			return;
+
+		// each affected node starts from its best edge out of the affected subtrees
+		SearchState state = SearchState.local(0, n);
+		for(int k = 0; k < count; k++) {
+			int a = affected[k];
+			for(int e = graph.firstEdge(a), end = graph.endEdge(a); e < end; e++) {
+				double dw = toward[base + graph.target(e)];
+				if(dw >= 0) {
+					double d = Math.max(graph.weight(e), old.weight(e)) + dw;
+					if(d < Double.POSITIVE_INFINITY)
+						state.improve(a, d, e, d);
+				}
+			}
+		}
+		while(!state.heap.isEmpty()) {
+			int u = state.settleNext();
+			double du = state.dist[u];
+			toward[base + u] = du;
+			next[base + u] = state.parent[u];
+			for(int i = graph.firstInEdge(u), end = graph.endInEdge(u); i < end; i++) {
+				int p = graph.inSource(i);
+				int e = graph.inEdge(i);
+				if(toward[base + p] < 0 && !state.isSettled(p)) {
+					double d = du + Math.max(graph.weight(e), old.weight(e));
+					state.improve(p, d, e, d);
+				}
+			}
+		}
+		// whatever the search did not reach can no longer reach the building
+		for(int k = 0; k < count; k++) {
+			int a = affected[k];
+			if(toward[base + a] < 0) {
+				toward[base + a] = Double.POSITIVE_INFINITY;
+				next[base + a] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Repairs the tree of building j for the edges of changed that got lighter.
+	 */
+	private void lower(int j, FrozenGraph<T, E> old, int[] changed) {
+		int n = graph.nodeCount();
+		int base = j * n;
+		SearchState state = SearchState.local(0, n);
+		for(int e : changed) {
+			int u = graph.source(e);
+			double d = graph.weight(e) + toward[base + graph.target(e)];
+			if(graph.weight(e) < old.weight(e) && d < toward[base + u])
+				state.improve(u, d, e, d);
+		}
+		while(!state.heap.isEmpty()) {
+			int u = state.settleNext();
+			double du = state.dist[u];
+			toward[base + u] = du;
+			next[base + u] = state.parent[u];
+			for(int i = graph.firstInEdge(u), end = graph.endInEdge(u); i < end; i++) {
+				int p = graph.inSource(i);
+				double d = du + graph.weight(graph.inEdge(i));
+				if(d < toward[base + p] && !state.isSettled(p))
+					state.improve(p, d, graph.inEdge(i), d);
+			}
+		}
+	}
+
+	/**
+	 * Returns the distance from each node to each building along the given trees.
+	 */
+	private static double[] towardFromTrees(FrozenGraph<?, ?> graph, int[] ids, 
+			int[] next) {
+		int n = graph.nodeCount();
+		double[] toward = new double[next.length];
+		Arrays.fill(toward, Double.NaN);
+		int[] stack = new int[n];
+		for(int j = 0; j < ids.length; j++) {
+			int base = j * n;
+			toward[base + ids[j]] = 0.0;
+			for(int v = 0; v < n; v++) {
+				// walk toward the building until a node of known distance, then unwind
+				int top = 0;
+				int u = v;
+				while(Double.isNaN(toward[base + u]) && next[base + u] >= 0) {
+					stack[top++] = u;
+					u = graph.target(next[base + u]);
+				}
+				if(Double.isNaN(toward[base + u]))
+					toward[base + u] = Double.POSITIVE_INFINITY;
+				while(top > 0) {
+					int w = stack[--top];
+					int e = next[base + w];
+					toward[base + w] = graph.weight(e) + toward[base + graph.target(e)];
+				}
+			}
+		}
+		return toward;
+	}
+
+	/**
+	 * Saves this to the given file, to be read back by load. Each tree entry is stored
+	 * as its position among the edges of its node, taking a single byte when no node
+	 * has 255 or more edges.
+	 *
+	 * @param file The file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	void save(File file) throws IOException {
+		int n = graph.nodeCount();
+		int maxDegree = 0;
+		for(int v = 0; v < n; v++)
+			maxDegree = Math.max(maxDegree, graph.outDegree(v));
+		boolean bytes = maxDegree < 255;
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeLong(graph.fingerprint());
+			out.writeInt(n);
+			out.writeInt(ids.length);
+			out.writeBoolean(bytes);
+			for(int i = 0; i < ids.length; i++)
+				out.writeInt(ids[i]);
+			for(int i = 0; i < dist.length; i++)
+				out.writeDouble(dist[i]);
+			for(int i = 0; i < next.length; i++) {
+				// 0 for no edge, else one more than the edge's position at its node
+				int v = i % n;
+				int entry = (next[i] < 0) ? 0 : next[i] - graph.firstEdge(v) + 1;
+				if(bytes)
+					out.writeByte(entry);
+				else
+					out.writeInt(entry);
+			}
+		} finally {
+			if(out != null)
+				out.close();
+		}
+	}
+
+	/**
+	 * Reads a matrix saved by save, if it was saved for the given graph and buildings.
+	 *
+	 * @param file The file to read
+	 * @param graph The graph the matrix is wanted for
+	 * @param ids The node ids of the buildings the matrix is wanted for
+	 * @return the saved matrix, or null if it was saved for another graph or other
+	 * 		   buildings
+	 * @throws IOException if the file cannot be read or is not a saved matrix
+	 */
+	static <T, E> BuildingMatrix<T, E> load(File file, FrozenGraph<T, E> graph, int[] ids)
+			throws IOException {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if(in.readInt() != MAGIC)
+				throw new IOException(file + " is not a building matrix file");
+			int n = graph.nodeCount();
+			if(in.readLong() != graph.fingerprint() || in.readInt() != n
+					|| in.readInt() != ids.length)
+				return null;
+			boolean bytes = in.readBoolean();
+			for(int i = 0; i < ids.length; i++) {
+				if(in.readInt() != ids[i])
+					return null;
+			}
+			double[] dist = new double[ids.length * ids.length];
+			for(int i = 0; i < dist.length; i++)
+				dist[i] = in.readDouble();
+			int[] next = new int[ids.length * n];
+			for(int i = 0; i < next.length; i++) {
+				int entry = bytes ? in.readUnsignedByte() : in.readInt();
+				next[i] = (entry == 0) ? -1 : graph.firstEdge(i % n) + entry - 1;
+			}
+			return new BuildingMatrix<T, E>(graph, ids.clone(), dist, next, 
+					towardFromTrees(graph, ids, next));
+		} finally {
+			if(in != null)
+				in.close();
+		}
+	}
+}
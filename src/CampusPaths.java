@@ -1,14 +1,28 @@
 package hw8;
 
 import hw5.*;
-import hw7.MarvelPaths2;
 import hw8.CampusParser.MalformedDataException;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * CampusPaths represents a map of a campus with points read from data files
@@ -26,22 +40,91 @@ import java.util.Iterator;
 
 public class CampusPaths implements Iterable<CampusPoint> {
 
+	/** Average human walking speed, in feet per second */
+	public static final double WALK_SPEED = 4.6;
+
+	/** Number of routes each task of a batch finds, unless told otherwise */
+	public static final int BATCH_CHUNK = 64;
+
+	/** Length edges are rounded to in the QUANTIZED routing mode, in feet */
+	public static final double QUANTUM = 1.0;
+
 	// Abstraction Function:
 	// each CampusPaths object has:
 	//		- a graph of the campus with points connected by edges labeled
 	// 		  with the distance between the points
 	//		- a list containing all of the buildings on the campus
+	//		- a frozen snapshot of the graph and an engine that routes on it
+	//		- the lengths given to edges that are closed or changed, and the snapshot
+	//		  before those lengths were applied
+	//		- the coordinates of each point, by id in the snapshot
+	//		- spatial indexes over the points, the path segments and the buildings
+	//		- the compass heading of each path segment
+	//		- the buildings by abbreviated name
+	//		- a straight-line heuristic, if one is consistent with the graph
+	//		- a search of the snapshot with lengths rounded to QUANTUM, unless some
+	//		  edge is too long to round
+	//		- a contraction hierarchy of the snapshot, once one has been built
+	//		- landmark distance tables for the snapshot, once they have been built
+	//		- the paths file the graph was last read from, if any
+	//		- the distances and shortest-path trees between all buildings, once built
+	//		- a cache of recently found paths
+	//		- the version of the graph when the snapshot was taken
+	//		- the routing mode used by findPath
+	//		- the executor asynchronous queries run on
 	//
 	// Representation Invariant:
 	// foreach CampusPaths c:
-	//		c.graph != null && c.buildings != null
+	//		c.graph != null && c.buildings != null && c.frozen != null &&
+	//		c.executor != null &&
+	//		c.base holds the nodes and edges c.graph had at version c.frozenVersion &&
+	//		c.frozen is c.base with each edge from p to q in c.overrides weighed and
+	//		labelled by c.overrides.get(p).get(q) && c.overrides != null &&
+	//		c.cache holds only shortest paths of c.frozen &&
+	//		c.engine searches c.frozen && c.mode != null &&
+	//		c.xs and c.ys hold the coordinates of each node of c.frozen &&
+	//		c.points indexes c.xs and c.ys && c.segments indexes the edges of c.frozen &&
+	//		c.directions was built from c.base &&
+	//		c.buildingIndex indexes the coordinates of
+	//		c.buildings, by position && c.byAbbr maps the abbreviated name of each
+	//		building to the first building in c.buildings with that name &&
+	//		c.dial == null || c.dial searches c.frozen with resolution QUANTUM &&
+	//		c.dial == null if !c.dialTried &&
+	//		c.hierarchy == null || c.hierarchy was built from c.frozen &&
+	//		c.landmarks == null || c.landmarks was built for c.frozen &&
+	//		c.matrix == null || c.matrix was built from c.frozen
 	
 	private Graph<CampusPoint, Double> graph;
 	private List<CampusPoint> buildings;
+	private FrozenGraph<CampusPoint, Double> base;
+	private FrozenGraph<CampusPoint, Double> frozen;
+	private Map<CampusPoint, Map<CampusPoint, Double>> overrides = 
+			new HashMap<CampusPoint, Map<CampusPoint, Double>>();
+	private PathEngine<CampusPoint, Double> engine;
+	private double[] xs;
+	private double[] ys;
+	private KdTree points;
+	private SegmentIndex segments;
+	private Directions directions;
+	private KdTree buildingIndex;
+	private Map<String, CampusPoint> byAbbr;
+	private EuclideanHeuristic euclidean;
+	private volatile DialSearch<CampusPoint, Double> dial;
+	private volatile boolean dialTried;
+	private ContractionHierarchy<CampusPoint, Double> hierarchy;
+	private LandmarkHeuristic landmarks;
+	private String pathsFile;
+	private BuildingMatrix<CampusPoint, Double> matrix;
+	private RouteCache<CampusPoint> cache = new RouteCache<CampusPoint>(0, 0);
+	private long frozenVersion;
+	private RoutingMode mode = RoutingMode.DIJKSTRA;
+	private Executor executor = DefaultExecutor.INSTANCE;
 	
 	public CampusPaths() {
 		graph = new Graph<CampusPoint, Double>();
 		buildings = new ArrayList<CampusPoint>();
+		indexBuildings();
+		freeze();
 		checkRep();
 	}
 	
@@ -58,10 +141,31 @@ public class CampusPaths implements Iterable<CampusPoint> {
 			throws NullPointerException, MalformedDataException {
 		graph = new Graph<CampusPoint, Double>();
 		buildings = new ArrayList<CampusPoint>();
+		indexBuildings();
+		freeze();
 		this.buildGraph(pathsFile, buildingsFile);
 		checkRep();
 	}
 	
+	/**
+	 * Creates a new CampusPaths object over an already built graph.
+	 * 
+	 * @param graph The graph of campus points, labeled by distance
+	 * @param buildings The buildings on campus
+	 * @throws IllegalArgumentException if graph == null || buildings == null
+	 */
+	public CampusPaths(Graph<CampusPoint, Double> graph, List<CampusPoint> buildings) 
+			throws IllegalArgumentException {
+		if(graph == null || buildings == null)
+			throw new IllegalArgumentException("graph and/or buildings is null");
+		
+		this.graph = graph;
+		this.buildings = new ArrayList<CampusPoint>(buildings);
+		indexBuildings();
+		freeze();
+		checkRep();
+	}
+	
 	/**
 	 * Builds a graph with campus data from the given files.
 	 * 
@@ -73,25 +177,1094 @@ public class CampusPaths implements Iterable<CampusPoint> {
 	 */
 	public void buildGraph(String pathsFile, String buildingsFile) 
 			throws MalformedDataException {
-		CampusParser.parseBuildings(buildingsFile, buildings);
+		try {
+			CampusParser.parseBuildings(buildingsFile, buildings);
+		} finally {
+			// buildings read before a malformed line are kept
+			indexBuildings();
+		}
 		CampusParser.parsePaths(pathsFile, graph, buildings);
+		this.pathsFile = pathsFile;
+		freeze();
 	}
 	
 	/**
 	 * Finds the shortest path between two points in a graph in terms of distance. If
-	 * no path found, returns null.
+	 * no path found, returns null. Recently found paths are answered from the route
+	 * cache, if enabled; paths between buildings are read from the building matrix
+	 * when one has been built; others are searched for with the routing mode.
 	 * 
 	 * @param graph The graph to be searched in
 	 * @param start The starting point of the path
 	 * @param dest The destination point of the path
-	 * @return A list of edges leading from start to dest, null if no path found
+	 * @return An unmodifiable list of edges leading from start to dest, null if no path
+	 * 		   found
 	 * @throws IllegalArgumentException if graph == null || start == null || 
 	 * 		   dest == null || !graph.contains(start) || !graph.contains(dest)
 	 */
 	public List<Edge<Double, CampusPoint>> findPath(CampusPoint start, 
 			CampusPoint dest) throws IllegalArgumentException {
+		PathResult route = findRoute(start, dest);
+		return (route == null) ? null : route.getEdges();
+	}
+	
+	/**
+	 * Finds the shortest path between two points as findPath does, but returns it as a
+	 * PathResult, which holds the points of the path and the distance to each without
+	 * building an Edge for every step.
+	 * 
+	 * @param start The starting point of the path
+	 * @param dest The destination point of the path
+	 * @return the path from start to dest, null if no path found
+	 * @throws IllegalArgumentException if start == null || dest == null || 
+	 * 		   start or dest is not in the graph
+	 */
+	public PathResult findRoute(CampusPoint start, CampusPoint dest) 
+			throws IllegalArgumentException {
+		checkRep();
+		refresh();
+		int s = frozen.idOf(start, "start");
+		int t = frozen.idOf(dest, "dest");
+		PathResult route = cache.get(start, dest);
+		if(route != null) {
+			SearchState.recordSettled(0);
+			return route;
+		}
+		int[] path = search(s, t);
+		if(path == null)
+			return null;
+		route = new PathResult(frozen, s, path);
+		// rounded lengths may give a slightly longer path, which the cache must not hold
+		if(getEffectiveRoutingMode() != RoutingMode.QUANTIZED)
+			cache.put(start, dest, route);
+		return route;
+	}
+	
+	/**
+	 * Finds the length of the shortest path between two points, as findPath would find
+	 * it but without building the path. Distances between buildings are read from the
+	 * building matrix when one has been built; others are searched for with the
+	 * routing mode. The route cache is not used. Repeated calls on the same thread
+	 * allocate nothing.
+	 * 
+	 * @param start The starting point of the path
+	 * @param dest The destination point of the path
+	 * @return the length of the shortest path from start to dest, infinity if there is
+	 * 		   none
+	 * @throws IllegalArgumentException if start == null || dest == null || 
+	 * 		   start or dest is not in the graph
+	 */
+	public double distance(CampusPoint start, CampusPoint dest) 
+			throws IllegalArgumentException {
+		checkRep();
+		refresh();
+		if(matrix != null && start != null && dest != null) {
+			int s = frozen.idOf(start);
+			int t = frozen.idOf(dest);
+			if(s >= 0 && t >= 0 && matrix.contains(s) && matrix.contains(t)) {
+				SearchState.recordSettled(0);
+				return matrix.distance(s, t);
+			}
+		}
+		switch(getEffectiveRoutingMode()) {
+		case ASTAR:
+			return engine.distance(start, dest, euclidean);
+		case BIDIRECTIONAL:
+			return engine.distanceBidirectional(start, dest);
+		case HIERARCHY:
+			return hierarchy.distance(start, dest);
+		case ALT:
+			return engine.distance(start, dest, landmarks);
+		case QUANTIZED:
+			return dial().pathWeight(frozen.idOf(start, "start"), 
+					frozen.idOf(dest, "dest"));
+		default:
+			return engine.distance(start, dest);
+		}
+	}
+	
+	/**
+	 * Finds the edges of the shortest path between two nodes of the snapshot with the
+	 * building matrix or the routing mode, bypassing the route cache.
+	 */
+	private int[] search(int s, int t) {
+		if(matrix != null && matrix.contains(s) && matrix.contains(t)) {
+			SearchState.recordSettled(0);
+			return matrix.findEdges(s, t);
+		}
+		switch(getEffectiveRoutingMode()) {
+		case ASTAR:
+			return engine.findEdges(s, t, euclidean);
+		case BIDIRECTIONAL:
+			return engine.findEdgesBidirectional(s, t);
+		case HIERARCHY:
+			return hierarchy.findEdges(s, t);
+		case ALT:
+			return engine.findEdges(s, t, landmarks);
+		case QUANTIZED:
+			return dial().findEdges(s, t);
+		default:
+			return engine.findEdges(s, t, null);
+		}
+	}
+	
+	/**
+	 * Finds the shortest path between two points as findPath does, but on the executor
+	 * of this rather than the calling thread, so the caller never waits on the search.
+	 * Cancelling the returned future stops the search soon after, from within its
+	 * loop, rather than letting it run to the end. The graph must not be changed while
+	 * the query runs.
+	 * 
+	 * @param start The starting point of the path
+	 * @param dest The destination point of the path
+	 * @return a future completed with findPath(start, dest), or exceptionally with
+	 * 		   whatever findPath throws
+	 * @throws IllegalArgumentException if start == null || dest == null || 
+	 * 		   start or dest is not in the graph
+	 */
+	public CompletableFuture<List<Edge<Double, CampusPoint>>> findPathAsync(
+			final CampusPoint start, final CampusPoint dest) 
+			throws IllegalArgumentException {
+		return submit(start, dest, new Callable<List<Edge<Double, CampusPoint>>>() {
+			@Override
+			public List<Edge<Double, CampusPoint>> call() {
+				return findPath(start, dest);
+			}
+		});
+	}
+	
+	/**
+	 * Finds the shortest path between two points as findRoute does, but on the executor
+	 * of this, in the same way as findPathAsync.
+	 * 
+	 * @param start The starting point of the path
+	 * @param dest The destination point of the path
+	 * @return a future completed with findRoute(start, dest), or exceptionally with
+	 * 		   whatever findRoute throws
+	 * @throws IllegalArgumentException if start == null || dest == null || 
+	 * 		   start or dest is not in the graph
+	 */
+	public CompletableFuture<PathResult> findRouteAsync(final CampusPoint start, 
+			final CampusPoint dest) throws IllegalArgumentException {
+		return submit(start, dest, new Callable<PathResult>() {
+			@Override
+			public PathResult call() {
+				return findRoute(start, dest);
+			}
+		});
+	}
+	
+	/**
+	 * Checks the ends of a path query, then runs it on the executor of this, stopping
+	 * its search if the returned future is cancelled.
+	 */
+	private <R> CompletableFuture<R> submit(CampusPoint start, CampusPoint dest, 
+			final Callable<R> query) throws IllegalArgumentException {
+		checkRep();
+		refresh();
+		frozen.idOf(start, "start");
+		frozen.idOf(dest, "dest");
+		final CompletableFuture<R> future = new CompletableFuture<R>();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if(future.isDone())
+					return;
+				// a thread per query would otherwise allocate new search arrays each time
+				SearchState.borrow();
+				SearchState.cancelWith(future);
+				try {
+					future.complete(query.call());
+				} catch(CancellationException e) {
+					// the future was cancelled, so it is already complete
+				} catch(Exception e) {
+					future.completeExceptionally(e);
+				} finally {
+					SearchState.cancelWith(null);
+					SearchState.release();
+				}
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * Sets the executor that findPathAsync and findRouteAsync run queries on. By default
+	 * each query runs on a virtual thread of its own where the Java runtime supports
+	 * them, and on a pooled daemon thread otherwise. Either way a query searches with
+	 * arrays borrowed from a shared pool, not the running thread's own, so a new thread
+	 * per query does not mean new search arrays per query.
+	 * 
+	 * @param executor The executor to run queries on
+	 * @throws IllegalArgumentException if executor == null
+	 * @modifies this
+	 * @effects sets the executor of this to executor
+	 */
+	public void setExecutor(Executor executor) throws IllegalArgumentException {
+		if(executor == null)
+			throw new IllegalArgumentException("executor is null");
+		this.executor = executor;
+	}
+	
+	/** Holds the default executor, created on first use. */
+	private static class DefaultExecutor {
+		
+		static final Executor INSTANCE = create();
+		
+		/**
+		 * Returns an executor that runs each task on a new virtual thread, looked up
+		 * reflectively since virtual threads only exist from Java 21, or else a pool of
+		 * daemon threads that does not keep the program alive.
+		 */
+		private static Executor create() {
+			try {
+				return (Executor) Executors.class.getMethod(
+						"newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch(ReflectiveOperationException e) {
+				return Executors.newCachedThreadPool(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "campus-paths-query");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+		}
+	}
+	
+	/**
+	 * Finds the shortest path between each pair of points in a batch, as findPath would,
+	 * in parallel on the common fork-join pool, which uses every available processor.
+	 * 
+	 * @param starts The starting point of each path
+	 * @param dests The destination point of each path
+	 * @return a list whose i-th element is findPath(starts.get(i), dests.get(i))
+	 * @throws IllegalArgumentException if starts == null || dests == null ||
+	 * 		   starts.size() != dests.size() || any point is null or not in the graph
+	 */
+	public List<List<Edge<Double, CampusPoint>>> findPathsBatch(List<CampusPoint> starts,
+			List<CampusPoint> dests) throws IllegalArgumentException {
+		return findPathsBatch(starts, dests, ForkJoinPool.commonPool(), BATCH_CHUNK);
+	}
+	
+	/**
+	 * Finds the shortest path between each pair of points in a batch, as findPath would.
+	 * The batch is split into chunks of consecutive pairs that run as tasks on a pool of
+	 * worker threads, each of which reuses its own search arrays for every path it
+	 * finds. The graph must not be changed while the batch runs.
+	 * 
+	 * @param starts The starting point of each path
+	 * @param dests The destination point of each path
+	 * @param parallelism The number of worker threads
+	 * @param chunkSize The largest number of paths found by one task
+	 * @return a list whose i-th element is findPath(starts.get(i), dests.get(i))
+	 * @throws IllegalArgumentException if starts == null || dests == null ||
+	 * 		   starts.size() != dests.size() || any point is null or not in the graph ||
+	 * 		   parallelism < 1 || chunkSize < 1
+	 */
+	public List<List<Edge<Double, CampusPoint>>> findPathsBatch(List<CampusPoint> starts,
+			List<CampusPoint> dests, int parallelism, int chunkSize) 
+			throws IllegalArgumentException {
+		if(parallelism < 1 || chunkSize < 1)
+			throw new IllegalArgumentException("parallelism and chunkSize must be positive");
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return findPathsBatch(starts, dests, pool, chunkSize);
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Finds the shortest path between each pair of points in a batch on the given pool.
+	 * 
+	 * @requires pool != null && chunkSize > 0
+	 * @throws IllegalArgumentException if starts == null || dests == null ||
+	 * 		   starts.size() != dests.size() || any point is null or not in the graph
+	 */
+	private List<List<Edge<Double, CampusPoint>>> findPathsBatch(List<CampusPoint> starts,
+			List<CampusPoint> dests, ForkJoinPool pool, int chunkSize) 
+			throws IllegalArgumentException {
+		checkRep();
+		if(starts == null || dests == null || starts.size() != dests.size())
+			throw new IllegalArgumentException("starts and dests must pair up");
+		refresh();
+		// check every pair up front so workers cannot fail part way through
+		for(int i = 0; i < starts.size(); i++) {
+			frozen.idOf(starts.get(i), "start");
+			frozen.idOf(dests.get(i), "dest");
+		}
+		// tasks set disjoint elements, and invoke waits for them all before returning
+		List<Edge<Double, CampusPoint>> none = null;
+		List<List<Edge<Double, CampusPoint>>> paths = 
+				new ArrayList<List<Edge<Double, CampusPoint>>>(
+						Collections.nCopies(starts.size(), none));
+		pool.invoke(new Batch(starts, dests, paths, chunkSize, 0, paths.size()));
+		return paths;
+	}
+	
+	/**
+	 * Finds the paths of pairs [lo, hi) of a batch, splitting the range in half until
+	 * each task has at most chunkSize pairs.
+	 */
+	@SuppressWarnings("serial")
+	private class Batch extends RecursiveAction {
+		
+		private final List<CampusPoint> starts;
+		private final List<CampusPoint> dests;
+		private final List<List<Edge<Double, CampusPoint>>> paths;
+		private final int chunkSize;
+		private final int lo;
+		private final int hi;
+		
+		Batch(List<CampusPoint> starts, List<CampusPoint> dests, 
+				List<List<Edge<Double, CampusPoint>>> paths, int chunkSize, int lo, int hi) {
+			this.starts = starts;
+			this.dests = dests;
+			this.paths = paths;
+			this.chunkSize = chunkSize;
+			this.lo = lo;
+			this.hi = hi;
+		}
+		
+		@Override
+		protected void compute() {
+			if(hi - lo > chunkSize) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Batch(starts, dests, paths, chunkSize, lo, mid),
+						new Batch(starts, dests, paths, chunkSize, mid, hi));
+				return;
+			}
+			for(int i = lo; i < hi; i++)
+				paths.set(i, findPath(starts.get(i), dests.get(i)));
+		}
+	}
+	
+	/**
+	 * Finds the shortest paths from one point to each of many, with a single search
+	 * that stops once every destination has been reached. This is much faster than
+	 * finding each path separately, since the search around start is only done once.
+	 * The routing mode, building matrix and route cache are not used.
+	 * 
+	 * @param start The starting point of the paths
+	 * @param dests The destination points of the paths
+	 * @return a map from each destination that can be reached from start to its route,
+	 * 		   in the order of dests
+	 * @throws IllegalArgumentException if start == null || dests == null ||
+	 * 		   dests contains null || start or any of dests is not in the graph
+	 */
+	public Map<CampusPoint, Route> findPaths(CampusPoint start, 
+			Collection<CampusPoint> dests) throws IllegalArgumentException {
+		checkRep();
+		if(dests == null)
+			throw new IllegalArgumentException("dests is null");
+		refresh();
+		int s = frozen.idOf(start, "start");
+		int[] targets = new int[dests.size()];
+		int i = 0;
+		for(CampusPoint dest : dests)
+			targets[i++] = frozen.idOf(dest, "dest");
+		SearchState state = engine.dijkstra(s, targets);
+		Map<CampusPoint, Route> routes = new LinkedHashMap<CampusPoint, Route>();
+		for(CampusPoint dest : dests) {
+			int t = frozen.idOf(dest);
+			if(state.isSettled(t) && !routes.containsKey(dest)) {
+				routes.put(dest, new Route(Collections.unmodifiableList(
+						engine.pathTo(state, t)), state.distance(t)));
+			}
+		}
+		return routes;
+	}
+
+	/**
+	 * Finds the length of the shortest path from each of the given sources to each of
+	 * the given targets, using every available processor.
+	 *
+	 * @param sources The starting points of the paths
+	 * @param targets The destination points of the paths
+	 * @return distanceTable(sources, targets, available processors)
+	 * @throws IllegalArgumentException if sources == null || targets == null ||
+	 * 		   any point is null or not in the graph
+	 */
+	public double[][] distanceTable(List<CampusPoint> sources, List<CampusPoint> targets)
+			throws IllegalArgumentException {
+		return distanceTable(sources, targets, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Finds the length of the shortest path from each of the given sources to each of
+	 * the given targets. Once a contraction hierarchy has been built with
+	 * buildHierarchy, the table is found by the bucket method, with one small search
+	 * up the hierarchy from each target and one from each source; until then, with
+	 * one search from each source that runs until it has reached every target. Either
+	 * way the searches run on a pool of worker threads. The routing mode, building
+	 * matrix and route cache are not used, and the graph must not be changed while the
+	 * table is found.
+	 *
+	 * @param sources The starting points of the paths
+	 * @param targets The destination points of the paths
+	 * @param parallelism The number of worker threads
+	 * @return a table whose [i][j] element is the length of the shortest path from
+	 * 		   sources.get(i) to targets.get(j), infinity if there is none
+	 * @throws IllegalArgumentException if sources == null || targets == null ||
+	 * 		   any point is null or not in the graph || parallelism < 1
+	 */
+	public double[][] distanceTable(List<CampusPoint> sources, List<CampusPoint> targets,
+			int parallelism) throws IllegalArgumentException {
+		checkRep();
+		if(sources == null || targets == null)
+			throw new IllegalArgumentException("sources and/or targets is null");
+		if(parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive");
+		refresh();
+		int[] s = new int[sources.size()];
+		for(int i = 0; i < s.length; i++)
+			s[i] = frozen.idOf(sources.get(i), "source");
+		int[] t = new int[targets.size()];
+		for(int j = 0; j < t.length; j++)
+			t[j] = frozen.idOf(targets.get(j), "target");
+		ForkJoinPool pool = (parallelism == 1) ? null : new ForkJoinPool(parallelism);
+		try {
+			if(hierarchy != null)
+				return hierarchy.distanceTable(s, t, pool);
+			return engine.distanceTable(s, t, pool);
+		} finally {
+			if(pool != null)
+				pool.shutdown();
+		}
+	}
+
+	/**
+	 * Finds every point within the given walking distance of start, along with its
+	 * distance. The search stops at the distance rather than covering the whole
+	 * campus, so it is fast enough to repeat as the distance is adjusted. Buildings
+	 * among the points are those for which isBuilding() is true.
+	 * 
+	 * @param start The starting point
+	 * @param maxDistance The largest distance from start, in feet
+	 * @return a map from each point whose shortest path from start is at most
+	 * 		   maxDistance long to that length, by increasing distance (start first)
+	 * @throws IllegalArgumentException if start == null || start is not in the graph ||
+	 * 		   !(maxDistance >= 0)
+	 */
+	public Map<CampusPoint, Double> findReachable(CampusPoint start, double maxDistance)
+			throws IllegalArgumentException {
+		checkRep();
+		if(!(maxDistance >= 0))
+			throw new IllegalArgumentException("maxDistance must not be negative");
+		refresh();
+		SearchState state = engine.dijkstraWithin(frozen.idOf(start, "start"), maxDistance);
+		Map<CampusPoint, Double> reachable = new LinkedHashMap<CampusPoint, Double>(
+				state.settledCount * 4 / 3 + 1);
+		for(int i = 0; i < state.settledCount; i++) {
+			int v = state.order[i];
+			reachable.put(frozen.nodeOf(v), state.dist[v]);
+		}
+		return reachable;
+	}
+	
+	/**
+	 * Finds every point within the given walking time of start, along with its
+	 * distance, walking at WALK_SPEED.
+	 * 
+	 * @param start The starting point
+	 * @param seconds The longest walking time from start, in seconds
+	 * @return findReachable(start, seconds * WALK_SPEED)
+	 * @throws IllegalArgumentException if start == null || start is not in the graph ||
+	 * 		   !(seconds >= 0)
+	 */
+	public Map<CampusPoint, Double> findReachableInTime(CampusPoint start, double seconds)
+			throws IllegalArgumentException {
+		return findReachable(start, seconds * WALK_SPEED);
+	}
+	
+	/**
+	 * Finds the points nearest to the given coordinates.
+	 * 
+	 * @param x The x coordinate to search around
+	 * @param y The y coordinate to search around
+	 * @param k The number of points wanted
+	 * @param buildingsOnly Whether to find only buildings
+	 * @return a list of the min(k, number of candidates) points or buildings nearest to
+	 * 		   (x, y), nearest first
+	 * @throws IllegalArgumentException if k < 0
+	 */
+	public List<CampusPoint> findNearest(double x, double y, int k, boolean buildingsOnly)
+			throws IllegalArgumentException {
+		if(k < 0)
+			throw new IllegalArgumentException("k must not be negative");
+		if(buildingsOnly)
+			return toBuildings(buildingIndex.nearest(x, y, k));
+		refresh();
+		return toPoints(points.nearest(x, y, k));
+	}
+	
+	/**
+	 * Finds the points within the given straight-line distance of the given
+	 * coordinates.
+	 * 
+	 * @param x The x coordinate to search around
+	 * @param y The y coordinate to search around
+	 * @param radius The largest distance from (x, y)
+	 * @param buildingsOnly Whether to find only buildings
+	 * @return a list of the points or buildings at most radius from (x, y), nearest
+	 * 		   first
+	 */
+	public List<CampusPoint> findWithin(double x, double y, double radius, 
+			boolean buildingsOnly) {
+		if(buildingsOnly)
+			return toBuildings(buildingIndex.within(x, y, radius));
+		refresh();
+		return toPoints(points.within(x, y, radius));
+	}
+	
+	/**
+	 * Finds the points inside the given box, edges included.
+	 * 
+	 * @param minX The smallest x coordinate of the box
+	 * @param minY The smallest y coordinate of the box
+	 * @param maxX The largest x coordinate of the box
+	 * @param maxY The largest y coordinate of the box
+	 * @param buildingsOnly Whether to find only buildings
+	 * @return a list of the points or buildings inside the box, in no particular order
+	 */
+	public List<CampusPoint> findInBox(double minX, double minY, double maxX, double maxY,
+			boolean buildingsOnly) {
+		if(buildingsOnly)
+			return toBuildings(buildingIndex.inBox(minX, minY, maxX, maxY));
+		refresh();
+		return toPoints(points.inBox(minX, minY, maxX, maxY));
+	}
+	
+	/**
+	 * Returns the point on a path segment nearest to the given coordinates, where each
+	 * edge is taken to run straight between the locations of its two points. This is
+	 * where findPath from the same coordinates starts or ends.
+	 * 
+	 * @param x The x coordinate to snap
+	 * @param y The y coordinate to snap
+	 * @return a new point at the nearest location on any path segment, or null if the
+	 * 		   graph has no open edges
+	 */
+	public CampusPoint snap(double x, double y) {
+		checkRep();
+		refresh();
+		int e = segments.nearest(x, y);
+		if(e < 0)
+			return null;
+		return along(e, segments.fraction(e, x, y));
+	}
+	
+	/**
+	 * Finds the shortest path between two locations that need not be points of the
+	 * graph. Each location is snapped to the nearest path segment, and the path starts
+	 * and ends at those snapped locations; an edge is split in proportion to where
+	 * along its segment a snapped location lies. The graph is not changed, and the
+	 * routing mode, building matrix and route cache are not used.
+	 * 
+	 * @param startX The x coordinate of the start
+	 * @param startY The y coordinate of the start
+	 * @param destX The x coordinate of the destination
+	 * @param destY The y coordinate of the destination
+	 * @return A list of edges leading from snap(startX, startY) to snap(destX, destY),
+	 * 		   whose first and last edges may be parts of edges of the graph, ending at
+	 * 		   points not in the graph; null if no path found
+	 * @throws IllegalArgumentException if the graph has no open edges
+	 */
+	public List<Edge<Double, CampusPoint>> findPath(double startX, double startY, 
+			double destX, double destY) throws IllegalArgumentException {
+		checkRep();
+		refresh();
+		int e = segments.nearest(startX, startY);
+		int f = segments.nearest(destX, destY);
+		if(e < 0)
+			throw new IllegalArgumentException("graph has no paths to snap to");
+		double fe = segments.fraction(e, startX, startY);
+		double ff = segments.fraction(f, destX, destY);
+		CampusPoint end = along(f, ff);
+
+		// the start can walk on to the target of e, or back along e's reverse edge
+		int u = frozen.source(e);
+		int v = frozen.target(e);
+		int back = frozen.findEdge(v, u);
+		int[] sources = (back < 0) ? new int[] {v} : new int[] {v, u};
+		double[] sourceDist = (back < 0) ? new double[] {(1 - fe) * frozen.weight(e)}
+				: new double[] {(1 - fe) * frozen.weight(e), fe * frozen.weight(back)};
+		// the destination can be walked to from the source of f, or from its target
+		// along f's reverse edge
+		int a = frozen.source(f);
+		int b = frozen.target(f);
+		int fback = frozen.findEdge(b, a);
+		int[] targets = (fback < 0) ? new int[] {a} : new int[] {a, b};
+		double[] targetDist = (fback < 0) ? new double[] {ff * frozen.weight(f)}
+				: new double[] {ff * frozen.weight(f), (1 - ff) * frozen.weight(fback)};
+
+		// both ends on one segment may be joined along it without reaching a point
+		double direct = Double.POSITIVE_INFINITY;
+		if(f == e && ff >= fe)
+			direct = (ff - fe) * frozen.weight(e);
+		else if(f == e && back >= 0)
+			direct = (fe - ff) * frozen.weight(back);
+		else if(f == back && 1 - ff >= fe)
+			direct = (1 - ff - fe) * frozen.weight(e);
+		else if(f == back)
+			direct = (fe - (1 - ff)) * frozen.weight(back);
+
+		SearchState state = engine.dijkstra(sources, sourceDist, targets, targetDist);
+		int best = -1;
+		double bestDist = direct;
+		for(int i = 0; i < targets.length; i++) {
+			double d = state.distance(targets[i]) + targetDist[i];
+			if(d < bestDist) {
+				best = i;
+				bestDist = d;
+			}
+		}
+		List<Edge<Double, CampusPoint>> path = new ArrayList<Edge<Double, CampusPoint>>();
+		if(best < 0) {
+			if(direct == Double.POSITIVE_INFINITY)
+				return null;
+			path.add(new Edge<Double, CampusPoint>(direct, end));
+			return path;
+		}
+		int t = targets[best];
+		int first = t;
+		while(state.parent[first] >= 0)
+			first = frozen.source(state.parent[first]);
+		// a source keeps the shorter of its starting distances
+		path.add(new Edge<Double, CampusPoint>(state.dist[first], frozen.nodeOf(first)));
+		path.addAll(engine.pathTo(state, t));
+		path.add(new Edge<Double, CampusPoint>(targetDist[best], end));
+		return path;
+	}
+	
+	/**
+	 * Returns a new point the given fraction of the way along the segment of edge e.
+	 */
+	private CampusPoint along(int e, double fraction) {
+		int u = frozen.source(e);
+		int v = frozen.target(e);
+		return new CampusPoint(xs[u] + fraction * (xs[v] - xs[u]), 
+				ys[u] + fraction * (ys[v] - ys[u]));
+	}
+	
+	/**
+	 * Returns the nodes of the snapshot with the given ids.
+	 */
+	private List<CampusPoint> toPoints(int[] ids) {
+		List<CampusPoint> result = new ArrayList<CampusPoint>(ids.length);
+		for(int id : ids)
+			result.add(frozen.nodeOf(id));
+		return result;
+	}
+	
+	/**
+	 * Returns the buildings at the given positions.
+	 */
+	private List<CampusPoint> toBuildings(int[] positions) {
+		List<CampusPoint> result = new ArrayList<CampusPoint>(positions.length);
+		for(int i : positions)
+			result.add(buildings.get(i));
+		return result;
+	}
+	
+	/**
+	 * Closes every edge from one point to another, as for construction, so that no path
+	 * found uses it until it is reopened. The graph itself is not changed, and the
+	 * closure lasts across changes to it for as long as the edge is in it. The building
+	 * matrix, if built, is repaired rather than rebuilt, and only cached paths that use
+	 * the edge are dropped. The contraction hierarchy must be built again to be used.
+	 * 
+	 * @param from The point the edge leaves
+	 * @param to The point the edge enters
+	 * @throws IllegalArgumentException if from or to is null or not in the graph, or
+	 * 		   there is no edge from from to to
+	 * @modifies this
+	 * @effects closes the edges from from to to
+	 */
+	public void closeEdge(CampusPoint from, CampusPoint to) 
+			throws IllegalArgumentException {
+		changeEdge(from, to, Double.POSITIVE_INFINITY);
+	}
+	
+	/**
+	 * Reopens every edge from one point to another, giving each back the length it has
+	 * in the graph, whether it was closed or given another length. Derived data is
+	 * updated as by closeEdge, except that the route cache is emptied and landmark
+	 * tables are dropped, since a shorter edge can shorten any path.
+	 * 
+	 * @param from The point the edge leaves
+	 * @param to The point the edge enters
+	 * @throws IllegalArgumentException if from or to is null or not in the graph, or
+	 * 		   there is no edge from from to to
+	 * @modifies this
+	 * @effects gives the edges from from to to their lengths in the graph
+	 */
+	public void reopenEdge(CampusPoint from, CampusPoint to) 
+			throws IllegalArgumentException {
+		changeEdge(from, to, null);
+	}
+	
+	/**
+	 * Gives every edge from one point to another a new length for routing, as for a
+	 * detour, without changing the graph. Derived data is updated as by closeEdge when
+	 * the edges get longer and as by reopenEdge when any gets shorter.
+	 * 
+	 * @param from The point the edge leaves
+	 * @param to The point the edge enters
+	 * @param length The new length of the edges
+	 * @throws IllegalArgumentException if from or to is null or not in the graph, or
+	 * 		   there is no edge from from to to, or !(length >= 0)
+	 * @modifies this
+	 * @effects sets the length of the edges from from to to to length
+	 */
+	public void setEdgeLength(CampusPoint from, CampusPoint to, double length) 
+			throws IllegalArgumentException {
+		if(!(length >= 0))
+			throw new IllegalArgumentException("length must not be negative");
+		changeEdge(from, to, length);
+	}
+	
+	/**
+	 * Sets the length of the edges from one point to another, or restores their lengths
+	 * in the graph if length is null, and updates the snapshot and what is derived
+	 * from it to match.
+	 */
+	private void changeEdge(CampusPoint from, CampusPoint to, Double length) 
+			throws IllegalArgumentException {
+		checkRep();
+		refresh();
+		int u = frozen.idOf(from, "from");
+		int v = frozen.idOf(to, "to");
+		int[] edges = edgesBetween(u, v);
+		if(edges.length == 0)
+			throw new IllegalArgumentException("there is no edge from from to to");
+		
+		Map<CampusPoint, Double> lengths = overrides.get(from);
+		if(length != null) {
+			if(lengths == null) {
+				lengths = new HashMap<CampusPoint, Double>();
+				overrides.put(from, lengths);
+			}
+			lengths.put(to, length);
+		} else if(lengths != null) {
+			lengths.remove(to);
+			if(lengths.isEmpty())
+				overrides.remove(from);
+		}
+		Double[] labels = new Double[edges.length];
+		double[] weights = new double[edges.length];
+		for(int i = 0; i < edges.length; i++) {
+			labels[i] = (length == null) ? base.label(edges[i]) : length;
+			weights[i] = (length == null) ? base.weight(edges[i]) : length;
+		}
+		
+		FrozenGraph<CampusPoint, Double> old = frozen;
+		frozen = frozen.withEdges(edges, labels, weights);
+		engine = new PathEngine<CampusPoint, Double>(frozen);
+		segments = segments.withGraph(frozen);
+		euclidean = EuclideanHeuristic.forGraph(frozen, xs, ys);
+		dial = null;
+		dialTried = false;
+		hierarchy = null;
+		boolean shorter = false;
+		for(int e : edges)
+			shorter = shorter || frozen.weight(e) < old.weight(e);
+		if(shorter) {
+			// landmark bounds stay valid when edges only get longer, but not shorter
+			landmarks = null;
+			cache.clear();
+		} else {
+			cache.removeUsing(u, v);
+		}
+		if(matrix != null)
+			matrix.reweigh(frozen, edges);
+		checkRep();
+	}
+	
+	/**
+	 * Returns the indices of the edges from u to v in the snapshot.
+	 */
+	private int[] edgesBetween(int u, int v) {
+		int count = 0;
+		for(int e = base.firstEdge(u); e < base.endEdge(u); e++) {
+			if(base.target(e) == v)
+				count++;
+		}
+		int[] edges = new int[count];
+		for(int e = base.firstEdge(u); e < base.endEdge(u); e++) {
+			if(base.target(e) == v)
+				edges[--count] = e;
+		}
+		return edges;
+	}
+	
+	/**
+	 * Sets the limits of the route cache, which remembers recently found paths and
+	 * evicts the least recently used one when either limit would be exceeded. The
+	 * cache is emptied, its counters reset, and it is emptied again whenever the graph
+	 * changes. It starts out disabled.
+	 * 
+	 * @param maxRoutes The most paths held at once; 0 disables the cache
+	 * @param maxEdges The most edges held at once over all paths, where each path
+	 * 		  counts one extra; 0 disables the cache
+	 * @throws IllegalArgumentException if maxRoutes < 0 || maxEdges < 0
+	 * @modifies this
+	 * @effects replaces the route cache with an empty one with the given limits
+	 */
+	public void setRouteCache(int maxRoutes, long maxEdges) throws IllegalArgumentException {
+		if(maxRoutes < 0 || maxEdges < 0)
+			throw new IllegalArgumentException("cache limits must not be negative");
+		cache = new RouteCache<CampusPoint>(maxRoutes, maxEdges);
+	}
+	
+	/**
+	 * Returns the number of findPath and findRoute calls answered from the route cache.
+	 * 
+	 * @return the number of route cache hits
+	 */
+	public long getCacheHits() {
+		return cache.hits();
+	}
+	
+	/**
+	 * Returns the number of findPath and findRoute calls the route cache could not
+	 * answer.
+	 * 
+	 * @return the number of route cache misses
+	 */
+	public long getCacheMisses() {
+		return cache.misses();
+	}
+	
+	/**
+	 * Returns the number of paths evicted from the route cache to stay within its
+	 * limits.
+	 * 
+	 * @return the number of route cache evictions
+	 */
+	public long getCacheEvictions() {
+		return cache.evictions();
+	}
+	
+	/**
+	 * Builds a contraction hierarchy of the current graph for the HIERARCHY routing
+	 * mode. This takes much longer than a single query, so it is only worth doing when
+	 * many queries will be run before the graph next changes; the hierarchy is dropped
+	 * whenever the graph changes.
+	 * 
+	 * @modifies this
+	 * @effects builds a contraction hierarchy of the current graph
+	 * @return the hierarchy, for its preprocessing statistics
+	 */
+	public ContractionHierarchy<CampusPoint, Double> buildHierarchy() {
 		checkRep();
-		return MarvelPaths2.findShortestPath(this.graph, start, dest);
+		refresh();
+		hierarchy = new ContractionHierarchy<CampusPoint, Double>(frozen);
+		checkRep();
+		return hierarchy;
+	}
+	
+	/**
+	 * Prepares the ALT routing mode by picking k landmarks on the current graph and
+	 * computing the distances to and from each, using every available processor. If
+	 * the graph was read from a paths file, the distances are saved next to it and read
+	 * back on later calls, as long as the data and k have not changed since.
+	 * 
+	 * @param k The number of landmarks; more give better estimates but take more
+	 * 		  memory and time per estimate
+	 * @throws IllegalArgumentException if k < 1
+	 * @modifies this
+	 * @effects builds landmark distance tables for the current graph
+	 * @return true iff the tables were read from a saved file rather than computed
+	 */
+	public boolean buildLandmarks(int k) throws IllegalArgumentException {
+		checkRep();
+		refresh();
+		if(k < 1)
+			throw new IllegalArgumentException("k must be positive");
+		
+		k = Math.min(k, frozen.nodeCount());
+		if(k == 0)
+			return false;
+		File file = landmarkFile();
+		long fingerprint = frozen.fingerprint();
+		if(file != null) {
+			landmarks = LandmarkHeuristic.load(file, fingerprint, frozen.nodeCount(), k);
+			if(landmarks != null)
+				return true;
+		}
+		landmarks = LandmarkHeuristic.select(engine, k, 
+				Runtime.getRuntime().availableProcessors());
+		if(file != null) {
+			try {
+				landmarks.save(file, fingerprint);
+			} catch(IOException e) {
+				// the tables still work; they will just be computed again next time
+				file.delete();
+			}
+		}
+		checkRep();
+		return false;
+	}
+	
+	/**
+	 * Precomputes the distance and a shortest path between every pair of buildings on
+	 * the current graph, running one search into each building in parallel, so that
+	 * findPath between buildings is a table lookup. The matrix is dropped whenever the
+	 * graph changes.
+	 * 
+	 * @modifies this
+	 * @effects builds the building matrix for the current graph
+	 */
+	public void buildBuildingMatrix() {
+		checkRep();
+		refresh();
+		matrix = BuildingMatrix.build(engine, buildingIds(), ForkJoinPool.commonPool());
+		checkRep();
+	}
+	
+	/**
+	 * Saves the building matrix to the given file.
+	 * 
+	 * @param file The file to write
+	 * @throws IllegalArgumentException if file == null
+	 * @throws IllegalStateException if no building matrix has been built or loaded
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveBuildingMatrix(String file) throws IllegalArgumentException, 
+			IllegalStateException, IOException {
+		if(file == null)
+			throw new IllegalArgumentException("file is null");
+		if(matrix == null)
+			throw new IllegalStateException("no building matrix has been built");
+		matrix.save(new File(file));
+	}
+	
+	/**
+	 * Loads a building matrix saved by saveBuildingMatrix, if it was saved for the
+	 * current graph and buildings.
+	 * 
+	 * @param file The file to read
+	 * @throws IllegalArgumentException if file == null
+	 * @throws IOException if the file cannot be read or does not hold a building matrix
+	 * @modifies this
+	 * @effects uses the saved matrix for findPath if it fits the current data
+	 * @return true iff the saved matrix fits the current data and was loaded
+	 */
+	public boolean loadBuildingMatrix(String file) throws IllegalArgumentException, 
+			IOException {
+		checkRep();
+		if(file == null)
+			throw new IllegalArgumentException("file is null");
+		refresh();
+		BuildingMatrix<CampusPoint, Double> loaded = 
+				BuildingMatrix.load(new File(file), frozen, buildingIds());
+		if(loaded != null)
+			matrix = loaded;
+		checkRep();
+		return loaded != null;
+	}
+	
+	/**
+	 * Returns the distinct ids in the current snapshot of the buildings on the graph.
+	 */
+	private int[] buildingIds() {
+		boolean[] seen = new boolean[frozen.nodeCount()];
+		int[] ids = new int[buildings.size()];
+		int count = 0;
+		for(CampusPoint b : buildings) {
+			int id = frozen.idOf(b);
+			if(id >= 0 && !seen[id]) {
+				seen[id] = true;
+				ids[count++] = id;
+			}
+		}
+		return Arrays.copyOf(ids, count);
+	}
+	
+	/**
+	 * Returns the file the landmark tables are saved to: the paths file with its
+	 * extension replaced by .landmarks, or null if the graph was not read from a file.
+	 */
+	private File landmarkFile() {
+		if(pathsFile == null)
+			return null;
+		File paths = new File(pathsFile);
+		String name = paths.getName();
+		if(name.lastIndexOf('.') > 0)
+			name = name.substring(0, name.lastIndexOf('.'));
+		return new File(paths.getAbsoluteFile().getParentFile(), name + ".landmarks");
+	}
+	
+	/**
+	 * Sets the search algorithm used by findPath. Every mode but QUANTIZED
+	 * finds a shortest path.
+	 * 
+	 * @param mode The routing mode to use
+	 * @throws IllegalArgumentException if mode == null
+	 * @modifies this
+	 * @effects findPath uses the given mode
+	 */
+	public void setRoutingMode(RoutingMode mode) throws IllegalArgumentException {
+		if(mode == null)
+			throw new IllegalArgumentException("mode is null");
+		this.mode = mode;
+	}
+	
+	/**
+	 * Returns the routing mode findPath was set to use.
+	 * 
+	 * @return the routing mode findPath was set to use
+	 */
+	public RoutingMode getRoutingMode() {
+		return mode;
+	}
+	
+	/**
+	 * Returns the routing mode findPath actually runs, which differs from the mode it
+	 * was set to use when that mode cannot run on the loaded data.
+	 * 
+	 * @return the routing mode findPath actually runs
+	 */
+	public RoutingMode getEffectiveRoutingMode() {
+		if(mode == RoutingMode.ASTAR && euclidean == null)
+			return RoutingMode.DIJKSTRA;
+		if(mode == RoutingMode.HIERARCHY && hierarchy == null)
+			return RoutingMode.DIJKSTRA;
+		if(mode == RoutingMode.ALT && landmarks == null)
+			return RoutingMode.DIJKSTRA;
+		if(mode == RoutingMode.QUANTIZED && dial() == null)
+			return RoutingMode.DIJKSTRA;
+		return mode;
+	}
+	
+	/**
+	 * Returns the bucket search over the current snapshot, rounding its edge weights on
+	 * first use after each change so that graphs never searched in QUANTIZED mode never
+	 * pay for it, or null if some edge is too long to round.
+	 */
+	private DialSearch<CampusPoint, Double> dial() {
+		if(!dialTried) {
+			synchronized(this) {
+				if(!dialTried) {
+					dial = DialSearch.forGraph(frozen, QUANTUM);
+					dialTried = true;
+				}
+			}
+		}
+		return dial;
+	}
+	
+	/**
+	 * Returns the number of points settled by the last route search on the calling
+	 * thread, as a measure of how much of the campus the search explored.
+	 * 
+	 * @return the number of points settled by the calling thread's last search
+	 */
+	public int getSettledCount() {
+		return PathEngine.lastSettledCount();
 	}
 	
 	/**
@@ -101,11 +1274,7 @@ public class CampusPaths implements Iterable<CampusPoint> {
 	 * @return building with given abbreviated name, null if not found
 	 */
 	public CampusPoint getBuilding(String abbrName) {
-		for(CampusPoint p : buildings) {
-			if(p.getAbbr().equals(abbrName))
-				return p;
-		}
-		return null;
+		return byAbbr.get(abbrName);
 	}
 	
 	/**
@@ -135,37 +1304,125 @@ public class CampusPaths implements Iterable<CampusPoint> {
 		if(end == null)
 			throw new IllegalArgumentException("end is null");
 		
-		// Declare variables, including pi/npi for ease of use
-		String direc = "";
-		double dx = end.getX() - start.getX();
-		double dy = start.getY() - end.getY();
-		double theta = Math.atan2(dy, dx);
-		double pi = Math.PI;
-		double npi = -1 * Math.PI;
-		
-		// Use theta to find direction between points
-		if(theta >= npi / 8 && theta <= pi / 8) {
-			direc = "E";
-		} else if(theta > pi / 8 && theta < 3 * pi / 8) {
-			direc = "NE";
-		} else if(theta >= 3 * pi / 8 && theta <= 5 * pi / 8) {
-			direc = "N";
-		} else if(theta > 5 * pi / 8 && theta < 7 * pi / 8) {
-			direc = "NW";
-		} else if(theta >= 7 * pi / 8 || theta <= 7 * npi / 8) {
-			direc = "W";
-		} else if(theta > 7 * npi / 8 && theta < 5 * npi / 8) {
-			direc = "SW";
-		} else if(theta >= 5 * npi / 8 && theta <= 3 * npi / 8) {
-			direc = "S"; 
-		} else {
-			direc = "SE";
-		}
+		String direc = Directions.NAMES[Directions.heading(end.getX() - start.getX(), 
+				start.getY() - end.getY())];
 		
 		checkRep();
 		return direc;
 	}
 
+	/**
+	 * Finds the shortest path between two points, as findRoute would, and writes out
+	 * how to walk it. Each line of the directions is one leg of the path, a run of
+	 * steps in the same direction, of the form "\tWalk N feet D to (x, y)", where D is
+	 * as getDirection gives it; a last line gives the total distance. Lengths and
+	 * coordinates are rounded to whole feet.
+	 *
+	 * @param start The starting point of the path
+	 * @param dest The destination point of the path
+	 * @return the directions from start to dest, each line ending in a newline, or null
+	 * 		   if there is no path
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public String getDirections(CampusPoint start, CampusPoint dest)
+			throws IllegalArgumentException {
+		PathResult route = findRoute(start, dest);
+		return (route == null) ? null : describe(route, true);
+	}
+
+	/**
+	 * Writes out how to walk the given route, as getDirections does, optionally with a
+	 * line for every step rather than for every leg.
+	 *
+	 * @param route The route to be described
+	 * @param merge Whether consecutive steps in the same direction share a line
+	 * @requires route was found by this since the graph last changed
+	 * @return the directions along route
+	 */
+	String describe(PathResult route, boolean merge) {
+		checkRep();
+		return directions.describe(route, merge);
+	}
+
+	/**
+	 * Indexes the buildings by name and by location.
+	 */
+	private void indexBuildings() {
+		byAbbr = new HashMap<String, CampusPoint>();
+		double[] bx = new double[buildings.size()];
+		double[] by = new double[buildings.size()];
+		for(int i = 0; i < buildings.size(); i++) {
+			CampusPoint b = buildings.get(i);
+			if(!byAbbr.containsKey(b.getAbbr()))
+				byAbbr.put(b.getAbbr(), b);
+			bx[i] = b.getX();
+			by[i] = b.getY();
+		}
+		buildingIndex = new KdTree(bx, by);
+	}
+
+	/**
+	 * Takes a new snapshot of the graph if it has changed since the last one.
+	 */
+	private void refresh() {
+		if(graph.getVersion() != frozenVersion)
+			freeze();
+	}
+
+	/**
+	 * Takes a new snapshot of the graph for routing queries to run on, dropping all
+	 * data derived from the old one.
+	 */
+	private void freeze() {
+		frozenVersion = graph.getVersion();
+		base = graph.freeze();
+		frozen = base;
+		// closed and lengthened edges that are still in the graph stay so
+		List<Integer> changed = new ArrayList<Integer>();
+		List<Double> lengths = new ArrayList<Double>();
+		for(CampusPoint from : overrides.keySet()) {
+			for(Map.Entry<CampusPoint, Double> to : overrides.get(from).entrySet()) {
+				int u = base.idOf(from);
+				int v = base.idOf(to.getKey());
+				if(u >= 0 && v >= 0) {
+					for(int e : edgesBetween(u, v)) {
+						changed.add(e);
+						lengths.add(to.getValue());
+					}
+				}
+			}
+		}
+		if(!changed.isEmpty()) {
+			int[] edges = new int[changed.size()];
+			double[] weights = new double[changed.size()];
+			for(int i = 0; i < edges.length; i++) {
+				edges[i] = changed.get(i);
+				weights[i] = lengths.get(i);
+			}
+			frozen = base.withEdges(edges, lengths.toArray(new Double[edges.length]), 
+					weights);
+		}
+		engine = new PathEngine<CampusPoint, Double>(frozen);
+		xs = new double[frozen.nodeCount()];
+		ys = new double[frozen.nodeCount()];
+		for(int i = 0; i < frozen.nodeCount(); i++) {
+			xs[i] = frozen.nodeOf(i).getX();
+			ys[i] = frozen.nodeOf(i).getY();
+		}
+		points = new KdTree(xs, ys);
+		segments = new SegmentIndex(frozen, xs, ys);
+		directions = new Directions(base, xs, ys);
+		// A* needs every edge to be at least as long as the straight line it spans
+		euclidean = EuclideanHeuristic.forGraph(frozen, xs, ys);
+		dial = null;
+		dialTried = false;
+		hierarchy = null;
+		landmarks = null;
+		matrix = null;
+		cache.clear();
+	}
+
 	@Override
 	public Iterator<CampusPoint> iterator() {
 		return graph.iterator();
@@ -174,6 +1431,71 @@ public class CampusPaths implements Iterable<CampusPoint> {
 	private void checkRep() {
 		assert graph != null : "graph is null";
 		assert buildings != null : "buildings is null";
+		assert base != null && frozen != null : "snapshot is null";
+		assert engine != null && engine.getGraph() == frozen : "engine is stale";
+		assert dial == null || dial.getGraph() == frozen : "quantized search is stale";
+		assert hierarchy == null || hierarchy.getGraph() == frozen : "hierarchy is stale";
+		assert matrix == null || matrix.getGraph() == frozen : "building matrix is stale";
+	}
+	
+	/** The search algorithms findPath can use. */
+	public static enum RoutingMode {
+		/** Dijkstra's algorithm, exploring outward from the start in every direction */
+		DIJKSTRA,
+		/** A* search, directed toward the destination by straight-line distance; runs as
+		 *  Dijkstra's algorithm if some path is shorter than the straight line it spans */
+		ASTAR,
+		/** Dijkstra's algorithm run forward from the start and backward from the
+		 *  destination at once, stopping when the two searches meet */
+		BIDIRECTIONAL,
+		/** Search of a contraction hierarchy, which must first be built with
+		 *  buildHierarchy; runs as Dijkstra's algorithm until then */
+		HIERARCHY,
+		/** A* search, directed toward the destination by distances to and from
+		 *  landmarks, which must first be built with buildLandmarks; runs as
+		 *  Dijkstra's algorithm until then */
+		ALT,
+		/** Dijkstra's algorithm over edge lengths rounded to whole multiples of
+		 *  QUANTUM, ordered by buckets instead of a heap; a path found may be up to
+		 *  QUANTUM / 2 per edge longer than the shortest, and is not cached. Runs as
+		 *  Dijkstra's algorithm if some edge is too long to round */
+		QUANTIZED
+	}
+	
+	/** A path between two points together with its length. */
+	public static class Route {
+		
+		private final List<Edge<Double, CampusPoint>> path;
+		private final double distance;
+		
+		/**
+		 * Creates a route along the given path.
+		 * 
+		 * @param path The edges of the path
+		 * @param distance The total length of the path
+		 */
+		Route(List<Edge<Double, CampusPoint>> path, double distance) {
+			this.path = path;
+			this.distance = distance;
+		}
+		
+		/**
+		 * Returns the edges of this route.
+		 * 
+		 * @return an unmodifiable list of the edges of this route
+		 */
+		public List<Edge<Double, CampusPoint>> getPath() {
+			return path;
+		}
+		
+		/**
+		 * Returns the total length of this route.
+		 * 
+		 * @return the sum of the edge labels of this route
+		 */
+		public double getDistance() {
+			return distance;
+		}
 	}
 	
 	/** Compares buildings specific to the campus path applications. */
@@ -2,9 +2,16 @@ package hw9;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+import javax.swing.SwingUtilities;
 
 import hw8.CampusPaths;
 import hw8.CampusPoint;
+import hw8.PathResult;
 
 /** 
  * CampusPathsController is the controller for the CampusPaths model, listening
@@ -17,6 +24,9 @@ public class CampusPathsController {
 	private CampusPaths model;
 	/** The view in the model-view-controller architectural pattern */
 	private CampusPathsView view;
+	/** The route query whose result the view is waiting for, if any; only touched on
+	 *  the event dispatch thread */
+	private CompletableFuture<PathResult> pending;
 	
 	/**
 	 * Adds button functions to the buttons in the GUI.
@@ -40,17 +50,30 @@ public class CampusPathsController {
 				view.getStartingBox().setSelectedIndex(0);
 				view.getDestBox().setSelectedIndex(0);
 			}
+			cancelPending();
 			view.clearPath();
 		}
 		
 	}
 	
+	/**
+	 * Cancels the route query the view is waiting for, if any, so that its search stops
+	 * and its result is never shown.
+	 */
+	private void cancelPending() {
+		if(pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+	}
+	
 	/** Adds find path functionality to the find button */
 	private class FindListener implements ActionListener {
 		
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			if(e.getSource().equals(view.getFindButton())) {
+				cancelPending();
 				view.clearPath();
 				String[] startTokens = 
 						((String)view.getStartingBox().getSelectedItem()).split("-");
@@ -71,16 +94,63 @@ public class CampusPathsController {
 					}
 					
 					view.setEndpoints(start, end);
-					view.setPath(model.findPath(start, end));
-					
-					// Calculate estimated walk time based on avg human walk speed = 4.6 ft/s
-					int time = (int) Math.round((view.getDistance() / 4.6) / 60);
-					view.getDistText().setText(" Distance (feet): " + view.getDistance() + " ");
-					view.getWalkTimeText().setText(" Walk Time (min): " + time + " ");
+					// search off the event dispatch thread so the GUI stays responsive
+					final CompletableFuture<PathResult> query = 
+							model.findRouteAsync(start, end);
+					pending = query;
+					query.whenComplete(new BiConsumer<PathResult, Throwable>() {
+						@Override
+						public void accept(final PathResult path, final Throwable error) {
+							SwingUtilities.invokeLater(new Runnable() {
+								@Override
+								public void run() {
+									// a newer query or a reset supersedes this one
+									if(pending != query)
+										return;
+									pending = null;
+									if(error == null)
+										showPath(path);
+									else
+										showError(error);
+								}
+							});
+						}
+					});
 				}
 			}
 		}
 		
+		/**
+		 * Tells the user that the query failed and rethrows the failure on the event
+		 * dispatch thread, as the search would have thrown had it run there. A cancelled
+		 * query is not a failure.
+		 */
+		private void showError(Throwable error) {
+			Throwable cause = (error instanceof CompletionException 
+					&& error.getCause() != null) ? error.getCause() : error;
+			if(cause instanceof CancellationException)
+				return;
+			view.getDistText().setText(" No route found: " + cause.getMessage() + " ");
+			view.getWalkTimeText().setText("");
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException("route query failed", cause);
+		}
+		
+		/**
+		 * Shows the given path with its distance and walk time.
+		 */
+		private void showPath(PathResult path) {
+			view.setPath(path);
+			
+			// Calculate estimated walk time based on avg human walk speed
+			int time = (int) Math.round((view.getDistance() / CampusPaths.WALK_SPEED) / 60);
+			view.getDistText().setText(" Distance (feet): " + view.getDistance() + " ");
+			view.getWalkTimeText().setText(" Walk Time (min): " + time + " ");
+		}
+		
 	}
 	
 }
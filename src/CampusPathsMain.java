@@ -1,5 +1,7 @@
 package hw9;
 
+import java.io.IOException;
+
 import hw8.CampusPaths;
 
 /**
@@ -14,6 +16,10 @@ public class CampusPathsMain {
 	private static final String PATHS_FILE = "./src/hw8/data/campus_paths.dat";
 	/** The buildings file to be read from */
 	private static final String BUILDINGS_FILE = "./src/hw8/data/campus_buildings.dat";
+	/** The file the building matrix is saved to, next to the data files */
+	private static final String MATRIX_FILE = "./src/hw8/data/campus_buildings.matrix";
+	/** The number of recently found routes kept for repeated requests */
+	private static final int CACHED_ROUTES = 256;
 	
 	/**
 	 * Runs the campus paths GUI.
@@ -23,6 +29,10 @@ public class CampusPathsMain {
 	public static void main(String[] args) {
 		try {
 			CampusPaths model = new CampusPaths(PATHS_FILE, BUILDINGS_FILE);
+			// the GUI only routes between buildings, so answer those from a table
+			loadBuildingMatrix(model);
+			// users flip back and forth between the same few routes
+			model.setRouteCache(CACHED_ROUTES, Long.MAX_VALUE);
 			CampusPathsView view = new CampusPathsView(model);
 			new CampusPathsController(model, view);
 		} catch(Exception e) {
@@ -30,4 +40,25 @@ public class CampusPathsMain {
 		}
 	}
 	
+	/**
+	 * Loads the building matrix saved for the current data, or builds it and saves it
+	 * for the next run if there is none or the data have changed since it was saved.
+	 * 
+	 * @param model The model whose building matrix is set up
+	 */
+	private static void loadBuildingMatrix(CampusPaths model) {
+		try {
+			if(model.loadBuildingMatrix(MATRIX_FILE))
+				return;
+		} catch(IOException e) {
+			// not saved yet, or unreadable; built below
+		}
+		model.buildBuildingMatrix();
+		try {
+			model.saveBuildingMatrix(MATRIX_FILE);
+		} catch(IOException e) {
+			// the matrix still works; it will just be built again next run
+		}
+	}
+	
 }
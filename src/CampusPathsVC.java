@@ -1,11 +1,9 @@
 package hw8;
 
-import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
 
-import hw5.*;
 import hw8.CampusParser.MalformedDataException;
 import hw8.CampusPaths.BuildingComparator;
 
@@ -120,21 +118,10 @@ public class CampusPathsVC {
 			System.out.println("Unknown building: " + end);
 		
 		if(startValid && endValid) {
-			List<Edge<Double, CampusPoint>> path = model.findPath(startBuild, endBuild);
+			PathResult path = model.findRoute(startBuild, endBuild);
 			System.out.println("Path from " + startBuild.getName() + " to " + 
 					endBuild.getName() + ":");	
-			
-			CampusPoint curr = startBuild;
-			double totalDist = 0.0;
-			for(int i = 0; i < path.size(); i++) {
-				Edge<Double, CampusPoint> currEdge = path.get(i);
-				String direc = model.getDirection(curr, currEdge.getDestination());
-				System.out.println("\tWalk " + Math.round(currEdge.getLabel()) + " feet " + 
-						direc + " to " + currEdge.getDestination());
-				totalDist = totalDist + currEdge.getLabel();
-				curr = currEdge.getDestination();
-			}
-			System.out.println("Total distance: " + Math.round(totalDist) + " feet");
+			System.out.print(model.describe(path, false));
 		}
 		System.out.println();
 	}
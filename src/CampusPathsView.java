@@ -3,15 +3,14 @@ package hw9;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.List;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.Border;
 
-import hw5.Edge;
 import hw8.CampusPaths;
 import hw8.CampusPoint;
+import hw8.PathResult;
 
 
 /**
@@ -224,10 +223,10 @@ public class CampusPathsView {
 	 * 
 	 * @param path The path to be set as the map's current path
 	 */
-	public void setPath(List<Edge<Double, CampusPoint>> path) {
+	public void setPath(PathResult path) {
 		map.path = path;
 		for(int i = 0; i < path.size(); i++) {
-			map.distance = map.distance + (int)Math.round(path.get(i).getLabel());
+			map.distance = map.distance + (int)Math.round(path.getStepDistance(i));
 		}
 	}
 	
@@ -334,7 +333,7 @@ public class CampusPathsView {
 		/** The distance of the current path */
 		private int distance;
 		/** The current path */
-		private List<Edge<Double, CampusPoint>> path;
+		private PathResult path;
 		/** The starting building of the current path */
 		private CampusPoint startPoint;
 		/** The destination building of the current path */
@@ -442,9 +441,9 @@ public class CampusPathsView {
 				g2.setColor(PRIMARY_COLOR);
 				
 				// traverse the entire path, drawing lines for each segment
-				for(int i = 0; i < path.size() - 1; i++) {
-					CampusPoint p1 = path.get(i).getDestination();
-					CampusPoint p2 = path.get(i+1).getDestination();
+				for(int i = 1; i < path.size(); i++) {
+					CampusPoint p1 = path.getPoint(i);
+					CampusPoint p2 = path.getPoint(i+1);
 					int p1x = (int) Math.round(p1.getX() * currWidth / imageWidth);
 					int p1y = (int) Math.round(p1.getY() * currHeight / imageHeight);
 					int p2x = (int) Math.round(p2.getX() * currWidth / imageWidth);
@@ -460,8 +459,7 @@ public class CampusPathsView {
 		 * Clears the current path (if any).
 		 */
 		public void clearPath() {
-			if(path != null)
-				path.clear();
+			path = null;
 			distance = 0;
 		}
 	}
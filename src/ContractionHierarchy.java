@@ -0,0 +1,779 @@
+package hw8;
+
+import hw5.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ContractionHierarchy is a preprocessed form of a FrozenGraph that answers shortest-path
+ * queries by searching only a small part of the graph. Nodes are contracted one at a
+ * time in order of importance; whenever removing a node would lengthen a shortest path
+ * between two of its remaining neighbours, a shortcut arc standing for the two-arc path
+ * through it is added. A query then runs a bidirectional search that only follows arcs
+ * toward more important nodes, and unpacks the shortcuts on the path it finds back into
+ * the original edges.
+ *
+ * @specfield graph     : FrozenGraph<T, E> // the graph the hierarchy was built from
+ * @specfield rank      : map from node id to int // contraction order of each node
+ * @specfield shortcuts : set of arcs // arcs added during contraction, each standing
+ * 									// for a path of two other arcs
+ *
+ * @author Logan Ricord
+ */
+public class ContractionHierarchy<T, E> {
+
+	/** Most nodes a witness search may settle before giving up */
+	private static final int WITNESS_LIMIT = 200;
+
+	/** Most nodes a witness search may settle when only estimating a priority */
+	private static final int ESTIMATE_LIMIT = 15;
+
+	/** Most searches one task of a distance table runs */
+	private static final int TABLE_CHUNK = 8;
+
+	/** The graph the hierarchy was built from */
+	private final FrozenGraph<T, E> graph;
+
+	/** Contraction order of each node */
+	private final int[] rank;
+
+	/** Endpoints and weight of each arc; arcs [0, m) are the edges of graph */
+	private int[] arcFrom;
+	private int[] arcTo;
+	private double[] arcWeight;
+
+	/** The two arcs a shortcut stands for, in path order; -1 for original edges */
+	private int[] arcFirst;
+	private int[] arcSecond;
+
+	/** Number of arcs */
+	private int arcCount;
+
+	/** Arcs leading up the hierarchy out of node i are upArcs[upOffsets[i]..) */
+	private final int[] upOffsets;
+	private final int[] upArcs;
+
+	/** Arcs leading up the hierarchy into node i are downArcs[downOffsets[i]..) */
+	private final int[] downOffsets;
+	private final int[] downArcs;
+
+	/** Time taken to build this, in nanoseconds */
+	private final long buildNanos;
+
+	// Abstraction Function:
+	//		AF(r) = ContractionHierarchy of r.graph such that
+	//			rank(v) = r.rank[v]
+	//			shortcuts = {arcs a | r.graph.edgeCount() <= a < r.arcCount}, where arc a
+	//						goes from arcFrom[a] to arcTo[a] with weight arcWeight[a] and
+	//						stands for arcFirst[a] followed by arcSecond[a]
+	//
+	// Representation Invariant:
+	//		rank is a permutation of [0, graph.nodeCount()) &&
+	//		foreach arc a < graph.edgeCount(), a is edge a of graph && arcFirst[a] = -1 &&
+	//		foreach shortcut a, arcTo[arcFirst[a]] = arcFrom[arcSecond[a]] &&
+	//			arcWeight[a] = arcWeight[arcFirst[a]] + arcWeight[arcSecond[a]] &&
+	//		upArcs holds exactly the arcs a with rank[arcFrom[a]] < rank[arcTo[a]],
+	//			grouped by arcFrom[a], and downArcs exactly the arcs a with
+	//			rank[arcFrom[a]] > rank[arcTo[a]], grouped by arcTo[a]
+
+	/**
+	 * Builds a contraction hierarchy of the given graph.
+	 *
+	 * @param graph The graph to be preprocessed
+	 * @throws IllegalArgumentException if graph == null
+	 */
+	public ContractionHierarchy(FrozenGraph<T, E> graph) throws IllegalArgumentException {
+		if(graph == null)
+			throw new IllegalArgumentException("graph is null");
+		long start = System.nanoTime();
+		this.graph = graph;
+		int n = graph.nodeCount();
+		int m = graph.edgeCount();
+		arcFrom = new int[Math.max(16, 2 * m)];
+		arcTo = new int[arcFrom.length];
+		arcWeight = new double[arcFrom.length];
+		arcFirst = new int[arcFrom.length];
+		arcSecond = new int[arcFrom.length];
+		for(int u = 0; u < n; u++) {
+			for(int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+				arcFrom[e] = u;
+				arcTo[e] = graph.target(e);
+				arcWeight[e] = graph.weight(e);
+				arcFirst[e] = -1;
+				arcSecond[e] = -1;
+			}
+		}
+		arcCount = m;
+
+		rank = new Contractor(n).contract();
+
+		// split arcs by direction in the hierarchy, dropping self-loops
+		upOffsets = new int[n + 1];
+		downOffsets = new int[n + 1];
+		for(int a = 0; a < arcCount; a++) {
+			if(rank[arcFrom[a]] < rank[arcTo[a]])
+				upOffsets[arcFrom[a] + 1]++;
+			else if(rank[arcFrom[a]] > rank[arcTo[a]])
+				downOffsets[arcTo[a] + 1]++;
+		}
+		for(int i = 0; i < n; i++) {
+			upOffsets[i + 1] = upOffsets[i + 1] + upOffsets[i];
+			downOffsets[i + 1] = downOffsets[i + 1] + downOffsets[i];
+		}
+		upArcs = new int[upOffsets[n]];
+		downArcs = new int[downOffsets[n]];
+		int[] upNext = Arrays.copyOf(upOffsets, n);
+		int[] downNext = Arrays.copyOf(downOffsets, n);
+		for(int a = 0; a < arcCount; a++) {
+			if(rank[arcFrom[a]] < rank[arcTo[a]])
+				upArcs[upNext[arcFrom[a]]++] = a;
+			else if(rank[arcFrom[a]] > rank[arcTo[a]])
+				downArcs[downNext[arcTo[a]]++] = a;
+		}
+		buildNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns the graph this hierarchy was built from.
+	 *
+	 * @return the graph this hierarchy was built from
+	 */
+	public FrozenGraph<T, E> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the number of shortcuts added while building this.
+	 *
+	 * @return the number of shortcuts in this
+	 */
+	public int shortcutCount() {
+		return arcCount - graph.edgeCount();
+	}
+
+	/**
+	 * Returns the time taken to build this.
+	 *
+	 * @return the time taken to build this, in nanoseconds
+	 */
+	public long buildNanos() {
+		return buildNanos;
+	}
+
+	/**
+	 * Finds the shortest path between two nodes. If no path is found, returns null.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return a list of edges of the graph leading from start to dest (empty if start
+	 * 		   equals dest), null if no path found
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public List<Edge<E, T>> findPath(T start, T dest) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		return PathEngine.edgeList(graph, findEdges(s, t));
+	}
+
+	/**
+	 * Finds the edges of the graph along a shortest path between two nodes.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target
+	 * @return the ids of the edges leading from s to t in order, null if no path found
+	 */
+	int[] findEdges(int s, int t) {
+		SearchState forward = SearchState.local(0, graph.nodeCount());
+		SearchState backward = SearchState.local(1, graph.nodeCount());
+		int meet = search(s, t, forward, backward);
+		if(meet < 0)
+			return null;
+
+		// collect the arcs of the path, then unpack each into edges of the graph
+		int[] arcs = new int[16];
+		int count = 0;
+		for(int v = meet; forward.parent[v] >= 0; v = arcFrom[forward.parent[v]]) {
+			if(count == arcs.length)
+				arcs = Arrays.copyOf(arcs, 2 * count);
+			arcs[count++] = forward.parent[v];
+		}
+		reverse(arcs, count);
+		for(int v = meet; backward.parent[v] >= 0; v = arcTo[backward.parent[v]]) {
+			if(count == arcs.length)
+				arcs = Arrays.copyOf(arcs, 2 * count);
+			arcs[count++] = backward.parent[v];
+		}
+		// unpack depth-first, later arcs and second halves of shortcuts on the stack
+		int[] stack = new int[count + 8];
+		int top = 0;
+		for(int i = count - 1; i >= 0; i--)
+			stack[top++] = arcs[i];
+		int[] edges = new int[count + 8];
+		int size = 0;
+		while(top > 0) {
+			int a = stack[--top];
+			if(arcFirst[a] < 0) {
+				if(size == edges.length)
+					edges = Arrays.copyOf(edges, 2 * size);
+				edges[size++] = a;
+			} else {
+				if(top + 2 > stack.length)
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				stack[top++] = arcSecond[a];
+				stack[top++] = arcFirst[a];
+			}
+		}
+		return Arrays.copyOf(edges, size);
+	}
+
+	/**
+	 * Finds the length of the shortest path between two nodes, without unpacking the
+	 * path. Repeated calls on the same thread allocate nothing.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return the total weight of a shortest path from start to dest, infinity if there
+	 * 		   is none
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public double distance(T start, T dest) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		SearchState forward = SearchState.local(0, graph.nodeCount());
+		SearchState backward = SearchState.local(1, graph.nodeCount());
+		int meet = search(s, t, forward, backward);
+		if(meet < 0)
+			return Double.POSITIVE_INFINITY;
+		return forward.dist[meet] + backward.dist[meet];
+	}
+
+	/**
+	 * Finds the distance from each of the given sources to each of the given targets
+	 * with the bucket method. An upward search backward from each target leaves an
+	 * entry, the target and its distance, in a bucket at every node it settles; an
+	 * upward search forward from each source then meets every target at the nodes it
+	 * settles by reading their buckets. Each search covers only the small upward part
+	 * of the graph, and the searches of each round run in parallel on the given pool.
+	 *
+	 * @param sources The ids of the sources
+	 * @param targets The ids of the targets
+	 * @param pool The pool to run the searches on, or null to run them on the calling
+	 * 		  thread
+	 * @return a table whose [i][j] element is the total weight of a shortest path from
+	 * 		   sources[i] to targets[j], infinity if there is none
+	 */
+	double[][] distanceTable(int[] sources, int[] targets, ForkJoinPool pool) {
+		int n = graph.nodeCount();
+		Table table = new Table(sources, targets);
+		run(new Sweeps(table, false, 0, targets.length), pool);
+
+		// gather the entries into one bucket per node
+		int[] offsets = new int[n + 1];
+		for(int[] space : table.spaces) {
+			for(int u : space)
+				offsets[u + 1]++;
+		}
+		for(int u = 0; u < n; u++)
+			offsets[u + 1] = offsets[u + 1] + offsets[u];
+		int[] next = Arrays.copyOf(offsets, n);
+		table.bucketTargets = new int[offsets[n]];
+		table.bucketDist = new double[offsets[n]];
+		for(int j = 0; j < targets.length; j++) {
+			int[] space = table.spaces[j];
+			for(int k = 0; k < space.length; k++) {
+				table.bucketTargets[next[space[k]]] = j;
+				table.bucketDist[next[space[k]]++] = table.spaceDist[j][k];
+			}
+		}
+		table.bucketOffsets = offsets;
+		table.spaces = null;
+		table.spaceDist = null;
+
+		run(new Sweeps(table, true, 0, sources.length), pool);
+		return table.rows;
+	}
+
+	/**
+	 * Runs the given searches on the pool, or on the calling thread if there is none.
+	 */
+	private void run(Sweeps task, ForkJoinPool pool) {
+		if(pool == null)
+			task.runAll();
+		else
+			pool.invoke(task);
+	}
+
+	/**
+	 * Runs an upward search from s over the whole of its upward part of the graph,
+	 * forward along arcs out of each node or backward along arcs into it.
+	 *
+	 * @return the calling thread's search state after the search
+	 */
+	private SearchState sweep(int s, boolean forward) {
+		SearchState state = SearchState.local(forward ? 0 : 1, graph.nodeCount());
+		int[] offsets = forward ? upOffsets : downOffsets;
+		int[] arcs = forward ? upArcs : downArcs;
+		int[] ends = forward ? arcTo : arcFrom;
+		state.addSource(s, 0.0);
+		while(!state.heap.isEmpty()) {
+			int u = state.settleNext();
+			if(stalled(state, u, forward))
+				continue;
+			double du = state.dist[u];
+			for(int i = offsets[u]; i < offsets[u + 1]; i++) {
+				int a = arcs[i];
+				int v = ends[a];
+				double d = du + arcWeight[a];
+				if(!state.isSettled(v) && d < state.distance(v))
+					state.improve(v, d, a, d);
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Returns true if u is stalled in the given upward search.
+	 */
+	private boolean stalled(SearchState state, int u, boolean forward) {
+		if(forward)
+			return stalled(state, u, downOffsets, downArcs, arcFrom);
+		return stalled(state, u, upOffsets, upArcs, arcTo);
+	}
+
+	/** The sources, targets, buckets and results of a distance table. */
+	private static class Table {
+
+		final int[] sources;
+		final int[] targets;
+
+		/** The nodes settled, unstalled, by the search from each target, and their
+		 *  distances to it */
+		int[][] spaces;
+		double[][] spaceDist;
+
+		/** Entries of the bucket of node u are [bucketOffsets[u], bucketOffsets[u + 1]),
+		 *  each a position in targets and the distance to that target */
+		int[] bucketOffsets;
+		int[] bucketTargets;
+		double[] bucketDist;
+
+		/** The distance from each source to each target */
+		final double[][] rows;
+
+		Table(int[] sources, int[] targets) {
+			this.sources = sources;
+			this.targets = targets;
+			spaces = new int[targets.length][];
+			spaceDist = new double[targets.length][];
+			rows = new double[sources.length][targets.length];
+		}
+	}
+
+	/**
+	 * Runs the searches from targets [lo, hi) of a table, filling in their buckets, or
+	 * from sources [lo, hi), filling in their rows, splitting the range in half until
+	 * each task has at most TABLE_CHUNK searches.
+	 */
+	@SuppressWarnings("serial")
+	private class Sweeps extends RecursiveAction {
+
+		private final Table table;
+		private final boolean forward;
+		private final int lo;
+		private final int hi;
+
+		Sweeps(Table table, boolean forward, int lo, int hi) {
+			this.table = table;
+			this.forward = forward;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if(hi - lo > TABLE_CHUNK) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Sweeps(table, forward, lo, mid), 
+						new Sweeps(table, forward, mid, hi));
+				return;
+			}
+			runAll();
+		}
+
+		/**
+		 * Runs every search of this on the calling thread.
+		 */
+		void runAll() {
+			for(int i = lo; i < hi; i++) {
+				if(forward)
+					fillRow(i);
+				else
+					fillSpace(i);
+			}
+		}
+
+		/**
+		 * Searches backward from target j, keeping the nodes whose distance is exact.
+		 */
+		private void fillSpace(int j) {
+			SearchState state = sweep(table.targets[j], false);
+			int[] space = new int[state.settledCount];
+			double[] dist = new double[state.settledCount];
+			int count = 0;
+			for(int k = 0; k < state.settledCount; k++) {
+				int u = state.order[k];
+				// a node stalled once the search is over still cannot be where a
+				// shortest path turns down, so it needs no entry
+				if(!stalled(state, u, false)) {
+					space[count] = u;
+					dist[count++] = state.dist[u];
+				}
+			}
+			table.spaces[j] = Arrays.copyOf(space, count);
+			table.spaceDist[j] = Arrays.copyOf(dist, count);
+		}
+
+		/**
+		 * Searches forward from source i, meeting each target in the buckets of the
+		 * nodes it settles.
+		 */
+		private void fillRow(int i) {
+			double[] row = table.rows[i];
+			Arrays.fill(row, Double.POSITIVE_INFINITY);
+			SearchState state = sweep(table.sources[i], true);
+			for(int k = 0; k < state.settledCount; k++) {
+				int u = state.order[k];
+				if(stalled(state, u, true))
+					continue;
+				double du = state.dist[u];
+				for(int b = table.bucketOffsets[u]; b < table.bucketOffsets[u + 1]; b++) {
+					int j = table.bucketTargets[b];
+					double d = du + table.bucketDist[b];
+					if(d < row[j])
+						row[j] = d;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the upward bidirectional search between s and t. Each side stops once its
+	 * queue minimum reaches the best meeting distance seen so far.
+	 *
+	 * @return the node where the searches meet on a shortest path, or -1 if none
+	 */
+	private int search(int s, int t, SearchState forward, SearchState backward) {
+		forward.addSource(s, 0.0);
+		backward.addSource(t, 0.0);
+		double best = Double.POSITIVE_INFINITY;
+		int meet = -1;
+		IndexedHeap fheap = forward.heap;
+		IndexedHeap bheap = backward.heap;
+		while(true) {
+			boolean goForward = !fheap.isEmpty() && fheap.peekKey() < best;
+			boolean goBackward = !bheap.isEmpty() && bheap.peekKey() < best;
+			if(!goForward && !goBackward)
+				break;
+			if(goForward && (!goBackward || fheap.peekKey() <= bheap.peekKey())) {
+				int u = forward.settleNext();
+				double du = forward.dist[u];
+				if(backward.isReached(u) && du + backward.dist[u] < best) {
+					best = du + backward.dist[u];
+					meet = u;
+				}
+				if(stalled(forward, u, downOffsets, downArcs, arcFrom))
+					continue;
+				for(int i = upOffsets[u]; i < upOffsets[u + 1]; i++) {
+					int a = upArcs[i];
+					int v = arcTo[a];
+					double d = du + arcWeight[a];
+					if(!forward.isSettled(v) && d < forward.distance(v))
+						forward.improve(v, d, a, d);
+				}
+			} else {
+				int u = backward.settleNext();
+				double du = backward.dist[u];
+				if(forward.isReached(u) && du + forward.dist[u] < best) {
+					best = du + forward.dist[u];
+					meet = u;
+				}
+				if(stalled(backward, u, upOffsets, upArcs, arcTo))
+					continue;
+				for(int i = downOffsets[u]; i < downOffsets[u + 1]; i++) {
+					int a = downArcs[i];
+					int v = arcFrom[a];
+					double d = du + arcWeight[a];
+					if(!backward.isSettled(v) && d < backward.distance(v))
+						backward.improve(v, d, a, d);
+				}
+			}
+		}
+		SearchState.recordSettled(forward.settledCount + backward.settledCount);
+		return meet;
+	}
+
+	/**
+	 * Returns true if some arc from a more important node, which the search does not
+	 * follow, shows that u's distance is not shortest. The arcs of such a node cannot
+	 * lie on a shortest path, so they need not be relaxed.
+	 *
+	 * @param state The search that settled u
+	 * @param u The settled node
+	 * @param offsets The offsets of the arcs leading down into u along the search
+	 * @param arcs The arcs leading down into u along the search
+	 * @param ends The far end of each arc from u
+	 */
+	private boolean stalled(SearchState state, int u, int[] offsets, int[] arcs, int[] ends) {
+		double du = state.dist[u];
+		for(int i = offsets[u]; i < offsets[u + 1]; i++) {
+			int a = arcs[i];
+			int w = ends[a];
+			if(state.isReached(w) && state.dist[w] + arcWeight[a] < du)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Reverses the first count entries of a.
+	 */
+	private static void reverse(int[] a, int count) {
+		for(int i = 0, j = count - 1; i < j; i++, j--) {
+			int tmp = a[i];
+			a[i] = a[j];
+			a[j] = tmp;
+		}
+	}
+
+	/**
+	 * Adds a shortcut arc and returns its index.
+	 */
+	private int addShortcut(int first, int second) {
+		if(arcCount == arcFrom.length) {
+			int size = 2 * arcCount;
+			arcFrom = Arrays.copyOf(arcFrom, size);
+			arcTo = Arrays.copyOf(arcTo, size);
+			arcWeight = Arrays.copyOf(arcWeight, size);
+			arcFirst = Arrays.copyOf(arcFirst, size);
+			arcSecond = Arrays.copyOf(arcSecond, size);
+		}
+		int a = arcCount++;
+		arcFrom[a] = arcFrom[first];
+		arcTo[a] = arcTo[second];
+		arcWeight[a] = arcWeight[first] + arcWeight[second];
+		arcFirst[a] = first;
+		arcSecond[a] = second;
+		return a;
+	}
+
+	/**
+	 * Contractor holds the working state used while contracting the nodes: the arcs
+	 * between uncontracted nodes, and a priority queue ordering nodes by how much their
+	 * contraction would add to the graph.
+	 */
+	private class Contractor {
+
+		/** Arcs out of and into each uncontracted node, from and to uncontracted nodes */
+		private final int[][] outArcs;
+		private final int[] outCount;
+		private final int[][] inArcs;
+		private final int[] inCount;
+
+		/** Whether each node has been contracted */
+		private final boolean[] contracted;
+
+		/** One more than the highest level of any contracted neighbour of each node */
+		private final int[] level;
+
+		/** Witness search state */
+		private final SearchState witness;
+
+		/** targets[x] = v while x is an unsettled target of a witness search around v */
+		private final int[] targets;
+
+		/** Arc pairs (in, out) to be replaced by shortcuts, found by findShortcuts */
+		private int[] pending;
+		private int pendingCount;
+
+		/** Uncontracted nodes keyed by contraction priority */
+		private final IndexedHeap queue;
+
+		/**
+		 * Creates the working state for contracting a graph of n nodes.
+		 */
+		Contractor(int n) {
+			outArcs = new int[n][];
+			outCount = new int[n];
+			inArcs = new int[n][];
+			inCount = new int[n];
+			for(int v = 0; v < n; v++) {
+				outArcs[v] = new int[Math.max(2, graph.outDegree(v))];
+				inArcs[v] = new int[2];
+			}
+			for(int a = 0; a < arcCount; a++) {
+				if(arcFrom[a] != arcTo[a])
+					link(a);
+			}
+			contracted = new boolean[n];
+			level = new int[n];
+			witness = new SearchState(n);
+			targets = new int[n];
+			Arrays.fill(targets, -1);
+			pending = new int[16];
+			queue = new IndexedHeap(n);
+		}
+
+		/**
+		 * Contracts every node and returns the rank of each.
+		 */
+		int[] contract() {
+			int n = contracted.length;
+			for(int v = 0; v < n; v++)
+				queue.insertOrDecrease(v, priority(v));
+			int[] order = new int[n];
+			int next = 0;
+			while(!queue.isEmpty()) {
+				int v = queue.poll();
+				// priorities go stale as neighbours are contracted; re-check lazily
+				double p = priority(v);
+				if(!queue.isEmpty() && p > queue.peekKey()) {
+					queue.insertOrDecrease(v, p);
+					continue;
+				}
+				contractNode(v);
+				order[v] = next++;
+			}
+			return order;
+		}
+
+		/**
+		 * Returns the contraction priority of v: twice the number of shortcuts its
+		 * contraction would add per arc it would remove, plus its level so that
+		 * contraction spreads evenly over the graph. Shortcuts are counted with cheap,
+		 * short witness searches, which may overestimate them.
+		 */
+		private double priority(int v) {
+			findShortcuts(v, ESTIMATE_LIMIT);
+			int degree = inCount[v] + outCount[v];
+			return 2.0 * pendingCount / Math.max(1, degree) + level[v];
+		}
+
+		/**
+		 * Removes v from the remaining graph, adding the shortcuts it needs.
+		 */
+		private void contractNode(int v) {
+			findShortcuts(v, WITNESS_LIMIT);
+			for(int i = 0; i < pendingCount; i++)
+				link(addShortcut(pending[2 * i], pending[2 * i + 1]));
+			contracted[v] = true;
+			for(int i = 0; i < outCount[v]; i++) {
+				int x = arcTo[outArcs[v][i]];
+				inCount[x] = unlink(inArcs[x], inCount[x], v, arcFrom);
+				level[x] = Math.max(level[x], level[v] + 1);
+			}
+			for(int i = 0; i < inCount[v]; i++) {
+				int u = arcFrom[inArcs[v][i]];
+				outCount[u] = unlink(outArcs[u], outCount[u], v, arcTo);
+				level[u] = Math.max(level[u], level[v] + 1);
+			}
+		}
+
+		/**
+		 * Finds the shortcuts needed to contract v and leaves them in pending. A
+		 * shortcut u -> x replaces the path u -> v -> x unless a witness search from u
+		 * that avoids v, settling at most limit nodes, finds a path to x that is no
+		 * longer.
+		 */
+		private void findShortcuts(int v, int limit) {
+			pendingCount = 0;
+			for(int i = 0; i < inCount[v]; i++) {
+				int in = inArcs[v][i];
+				int u = arcFrom[in];
+				double max = -1.0;
+				int remaining = 0;
+				for(int j = 0; j < outCount[v]; j++) {
+					int x = arcTo[outArcs[v][j]];
+					if(x != u) {
+						max = Math.max(max, arcWeight[in] + arcWeight[outArcs[v][j]]);
+						if(targets[x] != v) {
+							targets[x] = v;
+							remaining++;
+						}
+					}
+				}
+				if(remaining == 0)
+					continue;
+				witnessSearch(u, v, max, remaining, limit);
+				for(int j = 0; j < outCount[v]; j++) {
+					int out = outArcs[v][j];
+					int x = arcTo[out];
+					targets[x] = -1;
+					if(x != u && witness.distance(x) > arcWeight[in] + arcWeight[out]) {
+						if(2 * pendingCount + 2 > pending.length)
+							pending = Arrays.copyOf(pending, 2 * pending.length);
+						pending[2 * pendingCount] = in;
+						pending[2 * pendingCount + 1] = out;
+						pendingCount++;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Runs a Dijkstra search from u that avoids v, stopping once the given number of
+		 * targets are settled, past distance max, or after limit nodes are settled.
+		 */
+		private void witnessSearch(int u, int v, double max, int remaining, int limit) {
+			witness.reset();
+			witness.addSource(u, 0.0);
+			while(!witness.heap.isEmpty() && witness.heap.peekKey() <= max
+					&& witness.settledCount < limit) {
+				int y = witness.settleNext();
+				if(targets[y] == v && --remaining == 0)
+					break;
+				double dy = witness.dist[y];
+				for(int i = 0; i < outCount[y]; i++) {
+					int a = outArcs[y][i];
+					int z = arcTo[a];
+					if(z == v)
+						continue;
+					double d = dy + arcWeight[a];
+					if(!witness.isSettled(z) && d < witness.distance(z))
+						witness.improve(z, d, a, d);
+				}
+			}
+		}
+
+		/**
+		 * Adds arc a to the arc lists of its endpoints.
+		 */
+		private void link(int a) {
+			int u = arcFrom[a];
+			int x = arcTo[a];
+			if(outCount[u] == outArcs[u].length)
+				outArcs[u] = Arrays.copyOf(outArcs[u], 2 * outCount[u]);
+			outArcs[u][outCount[u]++] = a;
+			if(inCount[x] == inArcs[x].length)
+				inArcs[x] = Arrays.copyOf(inArcs[x], 2 * inCount[x]);
+			inArcs[x][inCount[x]++] = a;
+		}
+
+		/**
+		 * Removes the arcs whose end (as given by ends) is v from the first count entries
+		 * of arcs, and returns the number left.
+		 */
+		private int unlink(int[] arcs, int count, int v, int[] ends) {
+			int kept = 0;
+			for(int i = 0; i < count; i++) {
+				if(ends[arcs[i]] != v)
+					arcs[kept++] = arcs[i];
+			}
+			return kept;
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package hw8;
+
+import hw5.FrozenGraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DeltaStepping finds the distance from one node to every node of a FrozenGraph with
+ * the delta-stepping algorithm of Meyer and Sanders, relaxing the edges of many nodes
+ * at once on a ForkJoinPool. Nodes are kept in buckets of tentative distance, each
+ * delta wide. The nodes of the lowest bucket are relaxed together over edges no
+ * heavier than delta, again and again until the bucket stays empty, and then over
+ * their heavier edges, which can only reach later buckets. A small delta does little
+ * more work than Dijkstra's algorithm but leaves little to do at once; a large one
+ * the reverse. About the average edge weight is usually a good choice.
+ *
+ * Distances are lowered with compare-and-set on their bits, and each search keeps its
+ * buckets, frontier and queue of improved nodes in int arrays. The distances found are
+ * exactly those of Dijkstra's algorithm: each is the smallest, over all paths, of the
+ * weights of the path added up in order.
+ *
+ * @specfield graph : FrozenGraph // the graph searched
+ * @specfield delta : double      // the width of a bucket
+ *
+ * @author Logan Ricord
+ */
+class DeltaStepping {
+
+	/** Most nodes whose edges one task relaxes */
+	private static final int GRAIN = 256;
+
+	/** The graph searched */
+	private final FrozenGraph<?, ?> graph;
+
+	/** The width of a bucket */
+	private final double delta;
+
+	/** The pool the relaxations run on, or null to run them on the calling thread */
+	private final ForkJoinPool pool;
+
+	/** Bits of the tentative distance of each node */
+	private final AtomicLongArray dist;
+
+	/** Buckets, bucket b held in slot b % slots.length, with the number of nodes in each;
+	 *  a node may be held more than once, or in a bucket its distance has left */
+	private int[][] slots;
+	private int[] slotSize;
+
+	/** Number of nodes held over all slots */
+	private long pending;
+
+	/** Nodes whose edges are relaxed next, and their number */
+	private int[] frontier;
+	private int frontierSize;
+
+	/** Nodes of the current bucket whose heavy edges are still to be relaxed */
+	private int[] heavy;
+	private int heavySize;
+
+	/** Nodes improved by the last relaxation, reserved through improvedSize; -1 marks
+	 *  unused places */
+	private final int[] improved;
+	private final AtomicInteger improvedSize = new AtomicInteger();
+
+	/** inFrontier[v] = frontierStamp iff v is in frontier; likewise for heavy */
+	private final int[] inFrontier;
+	private int frontierStamp;
+	private final int[] inHeavy;
+	private int heavyStamp = 1;
+
+	// Abstraction Function:
+	//		AF(r) = DeltaStepping searching r.graph with buckets r.delta wide
+	//
+	// Representation Invariant:
+	//		delta > 0 && every node whose tentative distance is finite and whose edges
+	//		have not been relaxed at that distance is held in the slot of its bucket, in
+	//		frontier or in heavy
+
+	private DeltaStepping(FrozenGraph<?, ?> graph, double delta, ForkJoinPool pool) {
+		this.graph = graph;
+		this.delta = delta;
+		this.pool = pool;
+		int n = graph.nodeCount();
+		dist = new AtomicLongArray(n);
+		long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+		for(int v = 0; v < n; v++)
+			dist.set(v, infinity);
+		// edges reach at most maxWeight / delta buckets past the current one, so with
+		// that many slots no two pending buckets share one unless it is capped
+		double maxWeight = 0.0;
+		for(int e = 0; e < graph.edgeCount(); e++) {
+			if(graph.weight(e) < Double.POSITIVE_INFINITY)
+				maxWeight = Math.max(maxWeight, graph.weight(e));
+		}
+		int count = (int) Math.min(1 << 16, (long) (maxWeight / delta) + 2);
+		slots = new int[count][];
+		slotSize = new int[count];
+		frontier = new int[16];
+		heavy = new int[16];
+		improved = new int[graph.edgeCount()];
+		inFrontier = new int[n];
+		inHeavy = new int[n];
+	}
+
+	/**
+	 * Finds the distance from s to every node of graph.
+	 *
+	 * @param graph The graph to be searched
+	 * @param s The id of the source
+	 * @param delta The width of a bucket
+	 * @param pool The pool to relax edges on, or null to relax them on the calling thread
+	 * @requires 0 <= s < graph.nodeCount() && delta > 0 && no edge of graph weighs less
+	 * 			 than zero
+	 * @return an array whose v-th element is the length of the shortest path from s to
+	 * 		   node v, infinity if there is none
+	 */
+	static double[] distances(FrozenGraph<?, ?> graph, int s, double delta,
+			ForkJoinPool pool) {
+		DeltaStepping search = new DeltaStepping(graph, delta, pool);
+		search.run(s);
+		double[] result = new double[graph.nodeCount()];
+		for(int v = 0; v < result.length; v++)
+			result[v] = search.distance(v);
+		return result;
+	}
+
+	private double distance(int v) {
+		return Double.longBitsToDouble(dist.get(v));
+	}
+
+	private long bucketOf(double d) {
+		return (long) (d / delta);
+	}
+
+	/**
+	 * Settles every node reachable from s, one bucket at a time.
+	 */
+	private void run(int s) {
+		dist.set(s, Double.doubleToLongBits(0.0));
+		hold(s, 0);
+		long bucket = 0;
+		int empty = 0;
+		while(pending > 0) {
+			take(bucket);
+			if(frontierSize == 0) {
+				// a whole round of the slots without a node means a gap in distances;
+				// jump over it rather than stepping through each empty bucket
+				if(++empty >= slots.length) {
+					bucket = lowestBucket(bucket);
+					empty = 0;
+				} else {
+					bucket++;
+				}
+				continue;
+			}
+			empty = 0;
+			while(frontierSize > 0) {
+				while(frontierSize > 0) {
+					for(int i = 0; i < frontierSize; i++)
+						addHeavy(frontier[i]);
+					relax(frontier, frontierSize, true);
+					frontierStamp++;
+					frontierSize = 0;
+					sortImproved(bucket);
+				}
+				// heavy edges normally reach only later buckets, but rounding may put a
+				// node back in this one, in which case the light edges go around again
+				relax(heavy, heavySize, false);
+				heavyStamp++;
+				heavySize = 0;
+				sortImproved(bucket);
+			}
+			bucket++;
+		}
+	}
+
+	/**
+	 * Moves the nodes of the given bucket from its slot into frontier, keeping those of
+	 * later buckets that share the slot and dropping those whose distance has since
+	 * fallen into an earlier bucket.
+	 */
+	private void take(long bucket) {
+		int slot = (int) (bucket % slots.length);
+		int[] nodes = slots[slot];
+		int kept = 0;
+		frontierStamp++;
+		frontierSize = 0;
+		for(int i = 0; i < slotSize[slot]; i++) {
+			int v = nodes[i];
+			long b = bucketOf(distance(v));
+			if(b == bucket)
+				addFrontier(v);
+			else if(b > bucket)
+				nodes[kept++] = v;
+		}
+		pending = pending - (slotSize[slot] - kept);
+		slotSize[slot] = kept;
+	}
+
+	/**
+	 * Returns the lowest bucket of a node held in some slot, dropping the nodes held in
+	 * buckets before the given one, which their distance has left.
+	 */
+	private long lowestBucket(long bucket) {
+		long lowest = Long.MAX_VALUE;
+		for(int slot = 0; slot < slots.length; slot++) {
+			int kept = 0;
+			for(int i = 0; i < slotSize[slot]; i++) {
+				int v = slots[slot][i];
+				long b = bucketOf(distance(v));
+				if(b >= bucket) {
+					slots[slot][kept++] = v;
+					lowest = Math.min(lowest, b);
+				}
+			}
+			pending = pending - (slotSize[slot] - kept);
+			slotSize[slot] = kept;
+		}
+		return lowest;
+	}
+
+	/**
+	 * Places each node improved by the last relaxation in frontier if it fell into the
+	 * current bucket, or else in the slot of its bucket.
+	 */
+	private void sortImproved(long bucket) {
+		int size = improvedSize.getAndSet(0);
+		for(int i = 0; i < size; i++) {
+			int v = improved[i];
+			if(v < 0)
+				continue;
+			long b = bucketOf(distance(v));
+			if(b == bucket)
+				addFrontier(v);
+			else
+				hold(v, b);
+		}
+	}
+
+	private void hold(int v, long bucket) {
+		int slot = (int) (bucket % slots.length);
+		if(slots[slot] == null)
+			slots[slot] = new int[16];
+		else if(slotSize[slot] == slots[slot].length)
+			slots[slot] = Arrays.copyOf(slots[slot], 2 * slotSize[slot]);
+		slots[slot][slotSize[slot]++] = v;
+		pending++;
+	}
+
+	private void addFrontier(int v) {
+		if(inFrontier[v] == frontierStamp)
+			return;
+		inFrontier[v] = frontierStamp;
+		if(frontierSize == frontier.length)
+			frontier = Arrays.copyOf(frontier, 2 * frontierSize);
+		frontier[frontierSize++] = v;
+	}
+
+	private void addHeavy(int v) {
+		if(inHeavy[v] == heavyStamp)
+			return;
+		inHeavy[v] = heavyStamp;
+		if(heavySize == heavy.length)
+			heavy = Arrays.copyOf(heavy, 2 * heavySize);
+		heavy[heavySize++] = v;
+	}
+
+	/**
+	 * Relaxes the light or heavy edges of nodes[0, size), in parallel if there is a pool
+	 * and more nodes than one task takes.
+	 */
+	private void relax(int[] nodes, int size, boolean light) {
+		if(pool == null || size <= GRAIN)
+			relax(nodes, 0, size, light);
+		else
+			pool.invoke(new Relax(nodes, 0, size, light));
+	}
+
+	/**
+	 * Relaxes the light or heavy edges of nodes[lo, hi), reserving room in improved for
+	 * one node per edge, since no edge improves more than one node.
+	 */
+	private void relax(int[] nodes, int lo, int hi, boolean light) {
+		int edges = 0;
+		for(int i = lo; i < hi; i++)
+			edges = edges + graph.endEdge(nodes[i]) - graph.firstEdge(nodes[i]);
+		int next = improvedSize.getAndAdd(edges);
+		int end = next + edges;
+		for(int i = lo; i < hi; i++) {
+			int u = nodes[i];
+			double du = distance(u);
+			for(int e = graph.firstEdge(u), last = graph.endEdge(u); e < last; e++) {
+				double w = graph.weight(e);
+				if((w <= delta) != light)
+					continue;
+				int v = graph.target(e);
+				double d = du + w;
+				long old = dist.get(v);
+				while(d < Double.longBitsToDouble(old)) {
+					if(dist.compareAndSet(v, old, Double.doubleToLongBits(d))) {
+						improved[next++] = v;
+						break;
+					}
+					old = dist.get(v);
+				}
+			}
+		}
+		while(next < end)
+			improved[next++] = -1;
+	}
+
+	/**
+	 * Relaxes the light or heavy edges of nodes[lo, hi), splitting the range in half
+	 * until each task has at most GRAIN nodes.
+	 */
+	@SuppressWarnings("serial")
+	private class Relax extends RecursiveAction {
+
+		private final int[] nodes;
+		private final int lo;
+		private final int hi;
+		private final boolean light;
+
+		Relax(int[] nodes, int lo, int hi, boolean light) {
+			this.nodes = nodes;
+			this.lo = lo;
+			this.hi = hi;
+			this.light = light;
+		}
+
+		@Override
+		protected void compute() {
+			if(hi - lo > GRAIN) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Relax(nodes, lo, mid, light), new Relax(nodes, mid, hi, light));
+				return;
+			}
+			relax(nodes, lo, hi, light);
+		}
+	}
+}
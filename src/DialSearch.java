@@ -0,0 +1,286 @@
+package hw8;
+
+import hw5.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DialSearch finds shortest paths in a FrozenGraph whose edge weights are rounded to
+ * whole multiples of a resolution, such as a foot. Rounding is done once, when the
+ * search is built, and Dijkstra's algorithm then runs over the whole numbers on a
+ * BucketQueue instead of a heap: every tentative distance lies within one edge of the
+ * distance last settled, so a ring of buckets that wide orders the queue with no
+ * comparisons at all. The paths found are shortest under the rounded weights, so each
+ * is at most half a resolution per edge (of it and of a truly shortest path) longer
+ * than the shortest. Edges of infinite weight count as closed and are never followed.
+ * A DialSearch may be shared by any number of threads.
+ *
+ * @specfield graph      : FrozenGraph<T, E> // the graph that is searched
+ * @specfield resolution : double            // the unit edge weights are rounded to
+ *
+ * @author Logan Ricord
+ */
+public class DialSearch<T, E> {
+
+	/** Most resolutions an edge may weigh, which bounds the buckets kept per thread */
+	public static final int MAX_LENGTH = 1 << 16;
+
+	/** The graph that is searched */
+	private final FrozenGraph<T, E> graph;
+
+	/** The unit edge weights are rounded to */
+	private final double resolution;
+
+	/** Weight of each edge in resolutions, rounded, or -1 if the edge is closed */
+	private final int[] lengths;
+
+	/** Engine over graph, for ids and paths */
+	private final PathEngine<T, E> engine;
+
+	/** The bucket queue of each thread, created on first use */
+	private final ThreadLocal<BucketQueue> queues;
+
+	// Abstraction Function:
+	//		AF(r) = DialSearch searching r.graph with each edge weight rounded to the
+	//				nearest multiple of r.resolution
+	//
+	// Representation Invariant:
+	//		graph != null && resolution > 0 && lengths.length = graph.edgeCount() &&
+	//		foreach edge e, lengths[e] = -1 if graph.weight(e) is infinite, else
+	//		lengths[e] = round(graph.weight(e) / resolution) <= MAX_LENGTH
+
+	/**
+	 * Creates a DialSearch over the given snapshot, rounding each edge weight to the
+	 * nearest multiple of resolution.
+	 *
+	 * @param graph The snapshot to be searched
+	 * @param resolution The unit edge weights are rounded to
+	 * @throws IllegalArgumentException if graph == null || !(resolution > 0) ||
+	 * 		   some edge of finite weight rounds to more than MAX_LENGTH resolutions
+	 */
+	public DialSearch(FrozenGraph<T, E> graph, double resolution)
+			throws IllegalArgumentException {
+		this(graph, resolution, quantiseAll(graph, resolution));
+	}
+
+	/**
+	 * Creates a DialSearch over the given snapshot with the given rounded weights.
+	 */
+	private DialSearch(FrozenGraph<T, E> graph, double resolution, int[] lengths) {
+		this.graph = graph;
+		this.resolution = resolution;
+		this.lengths = lengths;
+		this.engine = new PathEngine<T, E>(graph);
+		final int maxStep = maxLength(lengths);
+		queues = new ThreadLocal<BucketQueue>() {
+			@Override
+			protected BucketQueue initialValue() {
+				return new BucketQueue(maxStep);
+			}
+		};
+	}
+
+	/**
+	 * Returns a DialSearch over the given snapshot rounding edge weights to the nearest
+	 * multiple of resolution, or null if some edge is too long to round that finely.
+	 *
+	 * @param graph The snapshot to be searched
+	 * @param resolution The unit edge weights are rounded to
+	 * @requires graph != null && resolution > 0
+	 * @return a DialSearch over graph, or null if some edge of finite weight rounds to
+	 * 		   more than MAX_LENGTH resolutions
+	 */
+	static <T, E> DialSearch<T, E> forGraph(FrozenGraph<T, E> graph, double resolution) {
+		int[] lengths = quantise(graph, resolution);
+		return (lengths == null) ? null : new DialSearch<T, E>(graph, resolution, lengths);
+	}
+
+	/**
+	 * Rounds the weight of each edge of graph to a whole number of resolutions.
+	 *
+	 * @return the rounded weights, -1 for closed edges, or null if some edge rounds to
+	 * 		   more than MAX_LENGTH
+	 * @throws IllegalArgumentException if graph == null || !(resolution > 0)
+	 */
+	private static int[] quantise(FrozenGraph<?, ?> graph, double resolution)
+			throws IllegalArgumentException {
+		if(graph == null)
+			throw new IllegalArgumentException("graph is null");
+		if(!(resolution > 0))
+			throw new IllegalArgumentException("resolution must be positive");
+		int[] lengths = new int[graph.edgeCount()];
+		for(int e = 0; e < lengths.length; e++) {
+			double weight = graph.weight(e);
+			if(weight == Double.POSITIVE_INFINITY) {
+				lengths[e] = -1;
+				continue;
+			}
+			long length = Math.round(weight / resolution);
+			if(length > MAX_LENGTH)
+				return null;
+			lengths[e] = (int) length;
+		}
+		return lengths;
+	}
+
+	/**
+	 * Rounds the weight of each edge of graph as quantise does, throwing if some edge is
+	 * too long.
+	 */
+	private static int[] quantiseAll(FrozenGraph<?, ?> graph, double resolution)
+			throws IllegalArgumentException {
+		int[] lengths = quantise(graph, resolution);
+		if(lengths == null)
+			throw new IllegalArgumentException("an edge is longer than " + MAX_LENGTH +
+					" resolutions");
+		return lengths;
+	}
+
+	private static int maxLength(int[] lengths) {
+		int max = 0;
+		for(int length : lengths)
+			max = Math.max(max, length);
+		return max;
+	}
+
+	/**
+	 * Returns the snapshot searched by this.
+	 *
+	 * @return the snapshot searched by this
+	 */
+	public FrozenGraph<T, E> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the unit edge weights are rounded to.
+	 *
+	 * @return the resolution of this
+	 */
+	public double getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * Finds a shortest path between two nodes under the rounded edge weights. If no
+	 * path is found, returns null.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return a list of edges leading from start to dest (empty if start equals dest),
+	 * 		   null if no path found
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public List<Edge<E, T>> findPath(T start, T dest) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		return PathEngine.edgeList(graph, findEdges(s, t));
+	}
+
+	/**
+	 * Finds the length of a shortest path between two nodes under the rounded edge
+	 * weights, without building the path.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return the sum of the rounded weights of a shortest path from start to dest,
+	 * 		   infinity if there is none
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public double distance(T start, T dest) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		SearchState state = search(s, t);
+		return state.isSettled(t) ? state.dist[t] * resolution : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Finds the distance from a node to every node of the graph under the rounded edge
+	 * weights.
+	 *
+	 * @param start The node the distances are measured from
+	 * @return an array whose i-th element is the sum of the rounded weights of a
+	 * 		   shortest path from start to getGraph().nodeOf(i), infinity if there is none
+	 * @throws IllegalArgumentException if start == null || start is not in the graph
+	 */
+	public double[] distancesFrom(T start) throws IllegalArgumentException {
+		SearchState state = search(graph.idOf(start, "start"), -1);
+		double[] result = new double[graph.nodeCount()];
+		Arrays.fill(result, Double.POSITIVE_INFINITY);
+		for(int i = 0; i < state.settledCount; i++)
+			result[state.order[i]] = state.dist[state.order[i]] * resolution;
+		return result;
+	}
+
+	/**
+	 * Finds the edges of a shortest path between two nodes under the rounded weights.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target
+	 * @return the ids of the edges leading from s to t in order, null if no path found
+	 */
+	int[] findEdges(int s, int t) {
+		SearchState state = search(s, t);
+		return state.isSettled(t) ? engine.edgesTo(state, t) : null;
+	}
+
+	/**
+	 * Finds the total unrounded weight of the path findEdges(s, t) finds, without
+	 * building the path.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target
+	 * @return the sum of the weights of the edges of findEdges(s, t), infinity if it
+	 * 		   finds no path
+	 */
+	double pathWeight(int s, int t) {
+		SearchState state = search(s, t);
+		if(!state.isSettled(t))
+			return Double.POSITIVE_INFINITY;
+		double total = 0.0;
+		for(int e = state.parent[t]; e >= 0; e = state.parent[graph.source(e)])
+			total = total + graph.weight(e);
+		return total;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm over the rounded weights from s on the calling thread's
+	 * search state and bucket queue, stopping once t is settled. Distances in the state
+	 * are whole numbers of resolutions.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target, or -1 to settle every reachable node
+	 * @return the calling thread's search state after the search
+	 */
+	SearchState search(int s, int t) {
+		SearchState state = SearchState.local(0, graph.nodeCount());
+		BucketQueue queue = queues.get();
+		queue.clear();
+		state.reach(s, 0.0, -1);
+		queue.add(s, 0);
+		while(!queue.isEmpty()) {
+			int u = queue.poll();
+			// a node is added again each time it improves, and settled the first time
+			if(state.isSettled(u))
+				continue;
+			state.settle(u);
+			if(u == t)
+				break;
+			long du = queue.currentKey();
+			for(int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+				int length = lengths[e];
+				if(length < 0)
+					continue;
+				int v = graph.target(e);
+				long d = du + length;
+				if(!state.isSettled(v) && state.reach(v, d, e))
+					queue.add(v, d);
+			}
+		}
+		SearchState.recordSettled(state.settledCount);
+		return state;
+	}
+}
@@ -0,0 +1,164 @@
+package hw8;
+
+import hw5.FrozenGraph;
+
+/**
+ * Directions writes out paths through a FrozenGraph as walking instructions. The
+ * compass heading of every edge is worked out once, when the directions are built, so
+ * describing a path only adds up lengths and copies text. Consecutive steps with the
+ * same heading may be joined into a single instruction.
+ *
+ * @specfield headings  : map from edge to compass direction // from its source toward
+ * 															  // its target
+ * @specfield locations : map from node to (x, y)
+ *
+ * @author Logan Ricord
+ */
+class Directions {
+
+	/** Names of the headings, counterclockwise from east */
+	static final String[] NAMES = {"E", "NE", "N", "NW", "W", "SW", "S", "SE"};
+
+	/** Coordinates of each node */
+	private final double[] xs;
+	private final double[] ys;
+
+	/** headings[e] = position in NAMES of the heading of edge e */
+	private final byte[] headings;
+
+	// Abstraction Function:
+	//		AF(r) = Directions such that headings(e) = NAMES[r.headings[e]] and
+	//				locations(v) = (r.xs[v], r.ys[v])
+	//
+	// Representation Invariant:
+	//		xs.length = ys.length && 0 <= headings[e] < NAMES.length for each e &&
+	//		headings[e] = heading(xs[t] - xs[s], ys[s] - ys[t]) for the source s and
+	//		target t of edge e
+
+	/**
+	 * Works out the heading of each edge of the given graph.
+	 *
+	 * @param graph The graph whose paths are described
+	 * @param xs The x coordinate of each node
+	 * @param ys The y coordinate of each node
+	 * @requires xs and ys hold the coordinates of each node of graph and are not changed
+	 * 			 afterward
+	 */
+	Directions(FrozenGraph<?, ?> graph, double[] xs, double[] ys) {
+		this.xs = xs;
+		this.ys = ys;
+		headings = new byte[graph.edgeCount()];
+		for(int e = 0; e < headings.length; e++) {
+			int s = graph.source(e);
+			int t = graph.target(e);
+			// y grows southward on the map
+			headings[e] = (byte) heading(xs[t] - xs[s], ys[s] - ys[t]);
+		}
+	}
+
+	/**
+	 * Returns the compass heading of a displacement, to the nearest eighth of a turn.
+	 * Headings exactly between two compass points go to N, E, S or W.
+	 *
+	 * @param dx The displacement eastward
+	 * @param dy The displacement northward
+	 * @return the position in NAMES of the heading of (dx, dy)
+	 */
+	static int heading(double dx, double dy) {
+		double theta = Math.atan2(dy, dx);
+		double pi = Math.PI;
+		double npi = -1 * Math.PI;
+
+		if(theta >= npi / 8 && theta <= pi / 8)
+			return 0;
+		else if(theta > pi / 8 && theta < 3 * pi / 8)
+			return 1;
+		else if(theta >= 3 * pi / 8 && theta <= 5 * pi / 8)
+			return 2;
+		else if(theta > 5 * pi / 8 && theta < 7 * pi / 8)
+			return 3;
+		else if(theta >= 7 * pi / 8 || theta <= 7 * npi / 8)
+			return 4;
+		else if(theta > 7 * npi / 8 && theta < 5 * npi / 8)
+			return 5;
+		else if(theta >= 5 * npi / 8 && theta <= 3 * npi / 8)
+			return 6;
+		else
+			return 7;
+	}
+
+	/**
+	 * Writes out the given path as one line per leg, of the form
+	 * "\tWalk N feet D to (x, y)\n", followed by "Total distance: N feet\n". Lengths
+	 * and coordinates are rounded to whole feet. The text is built in a single buffer
+	 * sized to fit it exactly.
+	 *
+	 * @param path The path to be described
+	 * @param merge Whether consecutive steps with the same heading make a single leg;
+	 * 		  otherwise each step is a leg of its own
+	 * @requires path runs through a graph with the nodes and edges, by id, of the graph
+	 * 			 this was built from
+	 * @return the walking instructions for path
+	 */
+	String describe(PathResult path, boolean merge) {
+		// measure the text first, so the buffer is never grown
+		int length = 16 + digits(Math.round(path.getDistance())) + 6;
+		for(int i = 0; i < path.size(); i = legEnd(path, i, merge))
+			length = length + legLength(path, i, legEnd(path, i, merge));
+		StringBuilder text = new StringBuilder(length);
+		for(int i = 0; i < path.size(); ) {
+			int end = legEnd(path, i, merge);
+			int v = path.nodeAt(end);
+			text.append("\tWalk ").append(Math.round(legDistance(path, i, end)))
+					.append(" feet ").append(NAMES[headings[path.edgeAt(i)]])
+					.append(" to (").append(Math.round(xs[v])).append(", ")
+					.append(Math.round(ys[v])).append(")\n");
+			i = end;
+		}
+		text.append("Total distance: ").append(Math.round(path.getDistance()))
+				.append(" feet\n");
+		return text.toString();
+	}
+
+	/**
+	 * Returns the position just past the last step of the leg starting at step i.
+	 */
+	private int legEnd(PathResult path, int i, boolean merge) {
+		int heading = headings[path.edgeAt(i)];
+		int end = i + 1;
+		while(merge && end < path.size() && headings[path.edgeAt(end)] == heading)
+			end++;
+		return end;
+	}
+
+	/**
+	 * Returns the length of steps [i, end) of path.
+	 */
+	private static double legDistance(PathResult path, int i, int end) {
+		double sum = 0.0;
+		for(int j = i; j < end; j++)
+			sum = sum + path.getStepDistance(j);
+		return sum;
+	}
+
+	/**
+	 * Returns the number of characters in the line for steps [i, end) of path.
+	 */
+	private int legLength(PathResult path, int i, int end) {
+		int v = path.nodeAt(end);
+		// "\tWalk ", " feet ", " to (", ", ", ")\n" and the heading
+		return 6 + 6 + 5 + 2 + 2 + NAMES[headings[path.edgeAt(i)]].length()
+				+ digits(Math.round(legDistance(path, i, end)))
+				+ digits(Math.round(xs[v])) + digits(Math.round(ys[v]));
+	}
+
+	/**
+	 * Returns the number of characters in the decimal form of n.
+	 */
+	private static int digits(long n) {
+		int count = (n < 0) ? 2 : 1;
+		for(long rest = n / 10; rest != 0; rest = rest / 10)
+			count++;
+		return count;
+	}
+}
@@ -0,0 +1,37 @@
+package hw5;
+
+/**
+ * <b>EdgeWeigher</b> gives the primitive weight of an edge label, so that graphs with
+ * any kind of label can be searched as weighted graphs without boxing during the
+ * search.
+ *
+ * @author Logan Ricord
+ */
+
+public interface EdgeWeigher<E> {
+
+	/** Weighs Number labels by their double value. */
+	public static final EdgeWeigher<Object> NUMBER = new EdgeWeigher<Object>() {
+		@Override
+		public double weight(Object label) {
+			return ((Number) label).doubleValue();
+		}
+	};
+
+	/** Weighs every label as 1, for counting edges. */
+	public static final EdgeWeigher<Object> UNIT = new EdgeWeigher<Object>() {
+		@Override
+		public double weight(Object label) {
+			return 1.0;
+		}
+	};
+
+	/**
+	 * Returns the weight of an edge with the given label.
+	 *
+	 * @param label The label of the edge
+	 * @requires label != null
+	 * @return the weight of an edge with the given label; must not be negative
+	 */
+	public double weight(E label);
+}
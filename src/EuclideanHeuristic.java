@@ -0,0 +1,84 @@
+package hw8;
+
+import hw5.FrozenGraph;
+
+/**
+ * EuclideanHeuristic estimates the distance between two campus points by their
+ * straight-line distance, scaled by the smallest ratio of an edge's weight to its
+ * straight-line length. The scale lets the estimate stay tight when edge weights and
+ * coordinates are in different units, while keeping it consistent.
+ *
+ * @specfield scale : double // factor applied to straight-line distances
+ *
+ * @author Logan Ricord
+ */
+class EuclideanHeuristic implements Heuristic {
+
+	/** Coordinates of each node, by id */
+	private final double[] xs;
+	private final double[] ys;
+
+	/** Factor applied to straight-line distances */
+	private final double scale;
+
+	// Abstraction Function:
+	//		AF(r) = heuristic estimating the distance from v to t as
+	//				r.scale * |(xs[v], ys[v]) - (xs[t], ys[t])|
+	//
+	// Representation Invariant:
+	//		xs.length = ys.length && scale > 0
+
+	/**
+	 * Constructs a heuristic over the given coordinates.
+	 */
+	private EuclideanHeuristic(double[] xs, double[] ys, double scale) {
+		this.xs = xs;
+		this.ys = ys;
+		this.scale = scale;
+	}
+
+	/**
+	 * Returns a consistent straight-line heuristic for the given graph, or null if some
+	 * edge is shorter than the straight-line distance between its endpoints, in which
+	 * case no straight-line heuristic is consistent.
+	 *
+	 * @param graph The graph the heuristic is for
+	 * @param xs The x coordinate of each node of graph, by id
+	 * @param ys The y coordinate of each node of graph, by id
+	 * @return a consistent heuristic for graph, or null if there is none
+	 */
+	static EuclideanHeuristic forGraph(FrozenGraph<CampusPoint, ?> graph,
+			double[] xs, double[] ys) {
+		double scale = Double.POSITIVE_INFINITY;
+		for(int u = 0; u < graph.nodeCount(); u++) {
+			for(int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+				int v = graph.target(e);
+				double length = Math.hypot(xs[u] - xs[v], ys[u] - ys[v]);
+				if(length > 0)
+					scale = Math.min(scale, graph.weight(e) / length);
+			}
+		}
+		if(scale < 1.0)
+			return null;
+		if(scale == Double.POSITIVE_INFINITY)
+			scale = 1.0;
+		// shave off a little so rounding cannot make estimates inconsistent
+		return new EuclideanHeuristic(xs, ys, scale * (1 - 1e-9));
+	}
+
+	/**
+	 * Returns the factor applied to straight-line distances.
+	 *
+	 * @return the factor applied to straight-line distances
+	 */
+	double getScale() {
+		return scale;
+	}
+
+	@Override
+	public double estimate(int v, int t) {
+		double dx = xs[v] - xs[t];
+		double dy = ys[v] - ys[t];
+		return scale * Math.sqrt(dx * dx + dy * dy);
+	}
+}
@@ -0,0 +1,470 @@
+package hw5;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * <b>FrozenGraph</b> represents an <b>immutable</b> compressed-sparse-row snapshot of a
+ * Graph, with each edge label weighed once into a primitive weight. Every node is given
+ * a dense int id in [0, nodeCount()), and the outgoing edges of the node with id i are
+ * stored contiguously at edge indices [firstEdge(i), endEdge(i)). A node has the id it
+ * has in the Graph, less the number of nodes with smaller ids removed from the Graph
+ * before it was frozen.
+ *
+ * @specfield nodes   : sequence of T // the nodes of the snapshot, indexed by id
+ * @specfield edges   : sequence of (source, target, weight, label) // indexed by edge index,
+ * 									  grouped by source id
+ *
+ * @author Logan Ricord
+ */
+
+public class FrozenGraph<T, E> implements Iterable<T> {
+
+	/** Nodes of this, indexed by id */
+	private final Object[] nodes;
+
+	/** Maps each node to its id */
+	private final Map<T, Integer> ids;
+
+	/** Edges of node i are at indices [offsets[i], offsets[i+1]) */
+	private final int[] offsets;
+
+	/** Target node id of each edge */
+	private final int[] targets;
+
+	/** Weight of each edge */
+	private final double[] weights;
+
+	/** Original label of each edge */
+	private final Object[] labels;
+
+	/** Incoming edges of node i are inEdges[inOffsets[i]..inOffsets[i+1]), built on
+	 *  first use */
+	private volatile int[] inOffsets;
+	private int[] inEdges;
+
+	/** Source node id of each incoming edge, in the same order as inEdges */
+	private int[] inSources;
+
+	// Abstraction Function:
+	//		AF(r) = FrozenGraph such that
+	//			nodes = [nodes[0], ..., nodes[n-1]] where n = nodes.length
+	//			edges = for each i in [0, n) and each e in [offsets[i], offsets[i+1]),
+	//					(i, targets[e], weights[e], labels[e])
+	//
+	// Representation Invariant:
+	//		offsets.length = nodes.length + 1 && offsets[0] = 0 &&
+	//		offsets is non-decreasing && offsets[nodes.length] = targets.length &&
+	//		targets.length = weights.length = labels.length &&
+	//		foreach e, 0 <= targets[e] < nodes.length &&
+	//		foreach i, ids.get(nodes[i]) = i &&
+	//		if inOffsets != null, inEdges[inOffsets[i]..inOffsets[i+1]) holds exactly the
+	//		indices of the edges e with targets[e] = i, and inSources holds their sources
+
+	/**
+	 * Creates a FrozenGraph from the given arrays, which it takes over.
+	 *
+	 * @param nodes The node with each id
+	 * @param offsets Edges of node i are at indices [offsets[i], offsets[i+1])
+	 * @param targets Target node id of each edge
+	 * @param labels Label of each edge
+	 * @param weigher Gives the weight of each edge label
+	 * @requires no argument is null && offsets.length = nodes.length + 1 &&
+	 * 			 offsets[0] = 0 && offsets is non-decreasing &&
+	 * 			 offsets[nodes.length] = targets.length = labels.length &&
+	 * 			 foreach e, 0 <= targets[e] < nodes.length && nodes has no duplicates
+	 * @effects constructs a new FrozenGraph over the given arrays
+	 */
+	FrozenGraph(Object[] nodes, int[] offsets, int[] targets, Object[] labels,
+			EdgeWeigher<? super E> weigher) {
+		int n = nodes.length;
+		this.nodes = nodes;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.labels = labels;
+		ids = new HashMap<T, Integer>(2 * n);
+		for(int id = 0; id < n; id++) {
+			@SuppressWarnings("unchecked")
+			T node = (T) nodes[id];
+			ids.put(node, id);
+		}
+
+		weights = new double[targets.length];
+		for(int e = 0; e < weights.length; e++) {
+			@SuppressWarnings("unchecked")
+			E label = (E) labels[e];
+			weights[e] = weigher.weight(label);
+			assert weights[e] >= 0 : "negative edge weight";
+		}
+		checkRep();
+	}
+
+	/**
+	 * Creates a FrozenGraph with the nodes and edge structure of the given one but the
+	 * given edge weights and labels, sharing every other array with it.
+	 */
+	private FrozenGraph(FrozenGraph<T, E> base, double[] weights, Object[] labels) {
+		nodes = base.nodes;
+		ids = base.ids;
+		offsets = base.offsets;
+		targets = base.targets;
+		this.weights = weights;
+		this.labels = labels;
+		// the reverse index depends only on the structure, so it is shared too
+		inOffsets = base.reverseIndex();
+		inEdges = base.inEdges;
+		inSources = base.inSources;
+		checkRep();
+	}
+
+	/**
+	 * Returns a snapshot equal to this except that the given edges have the given labels
+	 * and weights. Node ids and edge indices are the same in both, and only the weights
+	 * and labels are copied, so this takes time linear in the number of edges but
+	 * builds nothing else.
+	 *
+	 * @param edges The indices of the edges to change
+	 * @param newLabels The new label of each edge in edges
+	 * @param newWeights The new weight of each edge in edges
+	 * @requires edges.length == newLabels.length == newWeights.length &&
+	 * 			 each edge is in [0, edgeCount()) && each label is not null &&
+	 * 			 each weight is >= 0
+	 * @return a snapshot with the nodes and edges of this, in which edge edges[i] has
+	 * 		   label newLabels[i] and weight newWeights[i]
+	 */
+	public FrozenGraph<T, E> withEdges(int[] edges, E[] newLabels, double[] newWeights) {
+		double[] w = weights.clone();
+		Object[] l = labels.clone();
+		for(int i = 0; i < edges.length; i++) {
+			assert newWeights[i] >= 0 : "negative edge weight";
+			w[edges[i]] = newWeights[i];
+			l[edges[i]] = newLabels[i];
+		}
+		return new FrozenGraph<T, E>(this, w, l);
+	}
+
+	/**
+	 * Returns the number of nodes in this.
+	 *
+	 * @return number of nodes in this
+	 */
+	public int nodeCount() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the number of edges in this.
+	 *
+	 * @return number of edges in this
+	 */
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the id of the given node, or -1 if node is not in this.
+	 *
+	 * @param node The node whose id will be returned
+	 * @return the id of node, or -1 if node is not in this
+	 */
+	public int idOf(T node) {
+		Integer id = (node == null) ? null : ids.get(node);
+		return (id == null) ? -1 : id;
+	}
+
+	/**
+	 * Returns the id of the given node, throwing if it is not in this.
+	 *
+	 * @param node The node whose id will be returned
+	 * @param name The name of the node, for the exception message
+	 * @return the id of node
+	 * @throws IllegalArgumentException if node == null || node is not in this
+	 */
+	public int idOf(T node, String name) throws IllegalArgumentException {
+		if(node == null)
+			throw new IllegalArgumentException(name + " is null");
+		int id = idOf(node);
+		if(id < 0)
+			throw new IllegalArgumentException(name + " is not in the graph");
+		return id;
+	}
+
+	/**
+	 * Returns the node with the given id.
+	 *
+	 * @param id The id of the node to be returned
+	 * @requires 0 <= id < nodeCount()
+	 * @return the node with the given id
+	 */
+	@SuppressWarnings("unchecked")
+	public T nodeOf(int id) {
+		return (T) nodes[id];
+	}
+
+	/**
+	 * Returns true if node is in this.
+	 *
+	 * @param node The node to be searched for
+	 * @return true iff node is in this
+	 */
+	public boolean contains(T node) {
+		return idOf(node) >= 0;
+	}
+
+	/**
+	 * Returns the index of the first outgoing edge of the given node.
+	 *
+	 * @param id The id of the source node
+	 * @requires 0 <= id < nodeCount()
+	 * @return the index of the first outgoing edge of node id
+	 */
+	public int firstEdge(int id) {
+		return offsets[id];
+	}
+
+	/**
+	 * Returns one past the index of the last outgoing edge of the given node.
+	 *
+	 * @param id The id of the source node
+	 * @requires 0 <= id < nodeCount()
+	 * @return one past the index of the last outgoing edge of node id
+	 */
+	public int endEdge(int id) {
+		return offsets[id + 1];
+	}
+
+	/**
+	 * Returns the number of edges the given node is a source of.
+	 *
+	 * @param id The id of the source node
+	 * @requires 0 <= id < nodeCount()
+	 * @return the number of outgoing edges of node id
+	 */
+	public int outDegree(int id) {
+		return offsets[id + 1] - offsets[id];
+	}
+
+	/**
+	 * Returns the id of the node the given edge points to.
+	 *
+	 * @param edge The index of the edge
+	 * @requires 0 <= edge < edgeCount()
+	 * @return the target id of the edge
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * Returns the position of the first incoming edge of the given node; pass positions
+	 * in [firstInEdge(id), endInEdge(id)) to inEdge to get the edges that point to id.
+	 *
+	 * @param id The id of the target node
+	 * @requires 0 <= id < nodeCount()
+	 * @return the position of the first incoming edge of node id
+	 */
+	public int firstInEdge(int id) {
+		return reverseIndex()[id];
+	}
+
+	/**
+	 * Returns one past the position of the last incoming edge of the given node.
+	 *
+	 * @param id The id of the target node
+	 * @requires 0 <= id < nodeCount()
+	 * @return one past the position of the last incoming edge of node id
+	 */
+	public int endInEdge(int id) {
+		return reverseIndex()[id + 1];
+	}
+
+	/**
+	 * Returns the index of the incoming edge at the given position.
+	 *
+	 * @param position The position of the incoming edge
+	 * @requires firstInEdge(v) <= position < endInEdge(v) for some node v
+	 * @return the index of the edge at position, which points to v
+	 */
+	public int inEdge(int position) {
+		reverseIndex();
+		return inEdges[position];
+	}
+
+	/**
+	 * Returns the id of the source node of the incoming edge at the given position.
+	 *
+	 * @param position The position of the incoming edge
+	 * @requires firstInEdge(v) <= position < endInEdge(v) for some node v
+	 * @return the source id of the edge at position
+	 */
+	public int inSource(int position) {
+		reverseIndex();
+		return inSources[position];
+	}
+
+	/**
+	 * Returns the offsets of the incoming edges of each node, building the reverse
+	 * index on first use.
+	 */
+	private int[] reverseIndex() {
+		int[] offs = inOffsets;
+		if(offs == null) {
+			synchronized(this) {
+				offs = inOffsets;
+				if(offs == null) {
+					// counting sort of the edges by target
+					int n = nodes.length;
+					offs = new int[n + 1];
+					for(int e = 0; e < targets.length; e++)
+						offs[targets[e] + 1]++;
+					for(int i = 0; i < n; i++)
+						offs[i + 1] = offs[i + 1] + offs[i];
+					int[] next = Arrays.copyOf(offs, n);
+					int[] edges = new int[targets.length];
+					int[] sources = new int[targets.length];
+					for(int u = 0; u < n; u++) {
+						for(int e = offsets[u]; e < offsets[u + 1]; e++) {
+							int i = next[targets[e]]++;
+							edges[i] = e;
+							sources[i] = u;
+						}
+					}
+					inEdges = edges;
+					inSources = sources;
+					inOffsets = offs;
+				}
+			}
+		}
+		return offs;
+	}
+
+	/**
+	 * Returns the id of the node the given edge leaves from.
+	 *
+	 * @param edge The index of the edge
+	 * @requires 0 <= edge < edgeCount()
+	 * @return the source id of the edge
+	 */
+	public int source(int edge) {
+		// the source is the last node whose edge range starts at or before edge
+		int lo = 0;
+		int hi = nodes.length - 1;
+		while(lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if(offsets[mid] <= edge)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the weight of the given edge.
+	 *
+	 * @param edge The index of the edge
+	 * @requires 0 <= edge < edgeCount()
+	 * @return the weight of the edge
+	 */
+	public double weight(int edge) {
+		return weights[edge];
+	}
+
+	/**
+	 * Returns the original label of the given edge.
+	 *
+	 * @param edge The index of the edge
+	 * @requires 0 <= edge < edgeCount()
+	 * @return the label of the edge
+	 */
+	@SuppressWarnings("unchecked")
+	public E label(int edge) {
+		return (E) labels[edge];
+	}
+
+	/**
+	 * Returns the given edge as an Edge object, as it would appear in the source Graph.
+	 *
+	 * @param edge The index of the edge
+	 * @requires 0 <= edge < edgeCount()
+	 * @return a new Edge with the label and destination node of the edge
+	 */
+	public Edge<E, T> edge(int edge) {
+		return new Edge<E, T>(label(edge), nodeOf(targets[edge]));
+	}
+
+	/**
+	 * Returns the index of the lightest edge from one node to another, or -1 if there
+	 * is no such edge.
+	 *
+	 * @param from The id of the source node
+	 * @param to The id of the destination node
+	 * @requires 0 <= from < nodeCount()
+	 * @return the index of the lightest edge from node from to node to, -1 if none
+	 */
+	public int findEdge(int from, int to) {
+		int best = -1;
+		for(int e = offsets[from]; e < offsets[from + 1]; e++) {
+			if(targets[e] == to && (best < 0 || weights[e] < weights[best]))
+				best = e;
+		}
+		return best;
+	}
+
+	/**
+	 * Returns a fingerprint of the nodes, ids and weighted edges of this, for telling
+	 * whether data saved for one snapshot still fits another. Snapshots that differ in
+	 * any of these almost surely have different fingerprints.
+	 *
+	 * @return a fingerprint of this
+	 */
+	public long fingerprint() {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[16];
+		for(int v = 0; v < nodes.length; v++) {
+			putLong(buffer, 0, nodes[v].hashCode());
+			putLong(buffer, 8, offsets[v + 1]);
+			crc.update(buffer, 0, 16);
+			for(int e = offsets[v]; e < offsets[v + 1]; e++) {
+				putLong(buffer, 0, targets[e]);
+				putLong(buffer, 8, Double.doubleToLongBits(weights[e]));
+				crc.update(buffer, 0, 16);
+			}
+		}
+		return ((long) nodes.length << 32) ^ crc.getValue();
+	}
+
+	/**
+	 * Writes value into buffer at the given offset, most significant byte first.
+	 */
+	private static void putLong(byte[] buffer, int offset, long value) {
+		for(int i = 7; i >= 0; i--) {
+			buffer[offset + i] = (byte) value;
+			value = value >>> 8;
+		}
+	}
+
+	/**
+	 * Returns an Iterator over the nodes of this, in id order.
+	 *
+	 * @return an Iterator over the nodes of this, in id order
+	 */
+	@SuppressWarnings("unchecked")
+	public Iterator<T> iterator() {
+		return Collections.unmodifiableList(Arrays.asList((T[]) nodes)).iterator();
+	}
+
+	/**
+	 * Checks if this representation invariant holds.
+	 */
+	private void checkRep() {
+		assert offsets.length == nodes.length + 1 : "offsets has wrong length";
+		assert offsets[nodes.length] == targets.length : "offsets does not cover edges";
+		assert targets.length == weights.length : "weights has wrong length";
+		assert targets.length == labels.length : "labels has wrong length";
+	}
+}
@@ -1,17 +1,32 @@
 package hw5;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
 /**
  * <b>Graph</b> represents a mutable directed labeled multi-graph.
+ * 
+ * Each node is given an int id when it is added: the lowest id not yet given out since
+ * the graph was created or cleared. A node keeps its id until it is removed, and ids are
+ * not given out again, so they stay dense unless nodes are removed. Algorithms can look
+ * a node's id up once, keep their state in arrays indexed by id, and walk the edges of
+ * a node by id with outDegree, target and label without hashing any node.
+ * 
+ * The edges entering each node are indexed as well, so that getParents, backward walks
+ * by id with inDegree, source and inLabel, and removing a node or an edge all take time
+ * proportional to the degree of the nodes involved rather than the size of the graph.
+ * 
  * @specfield node  : T 		 // a point in the graph; has a name
  * @specfield nodes : map    	 // the nodes in the graph, mapped to the edges that node 
  * 									is a source of
+ * @specfield id    : map        // each node in the graph mapped to its int id
  * @specfield edge  : Edge<E, T> // connects two nodes in a graph; has a label
  * @specfield edges : set	 	 // the edges in the graph
  * 
@@ -20,8 +35,24 @@ import java.util.HashMap;
 
 public class Graph<T, E> implements Iterable<T> {
 
-	/** Set of node objects in this.*/
-	private Map<T, Set<Edge<E, T>>> nodes;
+	/** Id of each node object in this */
+	private Map<T, Integer> ids;
+	
+	/** Node with each id, null once removed */
+	private List<T> nodeList;
+	
+	/** Edges leaving the node with each id, null once removed */
+	private List<EdgeList<E, T>> out;
+	
+	/** Edges entering the node with each id, as Edges to their sources, null once
+	 *  removed */
+	private List<EdgeList<E, T>> in;
+	
+	/** Number of edges in this */
+	private int edgeTotal;
+	
+	/** Number of changes made to this through its methods */
+	private long version;
 	
 	private static final boolean DEBUG_FLAG = false;
 	
@@ -31,9 +62,20 @@ public class Graph<T, E> implements Iterable<T> {
 	//					mapped to the set of edges that that node is a source of,
 	//					[t1, t2, ..., tn] where n is the number of nodes in the 
 	//					graph; an empty graph is represented by []
+	//					nodes(t) = r.out.get(r.ids.get(t)).set
+	//			id = r.ids
 	//
 	// Representation Invariant:
-	//		foreach T t in nodes, [t1, t2, ..., tn], t != null
+	//		foreach T t in nodes, [t1, t2, ..., tn], t != null &&
+	//		nodeList.size() = out.size() = in.size() &&
+	//		foreach t, nodeList.get(ids.get(t)) = t &&
+	//		nodeList.get(i) = null iff out.get(i) = null iff in.get(i) = null iff no
+	//		node has id i &&
+	//		foreach edge from t to u at position j of out.get(ids.get(t)), its target
+	//		id is ids.get(u), and in.get(ids.get(u)) holds an Edge with the same label
+	//		to t at position out.get(ids.get(t)).twins[j], whose twin is j &&
+	//		every entry of an in list is the twin of an entry of an out list &&
+	//		edgeTotal = the sum of the sizes of the out lists
 	
 	/**
 	 * Creates a Graph.
@@ -41,7 +83,10 @@ public class Graph<T, E> implements Iterable<T> {
 	 * @effects constructs a new Graph with no nodes
 	 */
 	public Graph() {
-		nodes = new HashMap<T, Set<Edge<E, T>>>();
+		ids = new HashMap<T, Integer>();
+		nodeList = new ArrayList<T>();
+		out = new ArrayList<EdgeList<E, T>>();
+		in = new ArrayList<EdgeList<E, T>>();
 		checkRep();
 	}
 	
@@ -53,9 +98,9 @@ public class Graph<T, E> implements Iterable<T> {
 	 * @effects constructs a new Graph with the given node
 	 */
 	public Graph(T node) {
+		this();
 		assert node != null : "node is null";
-		nodes = new HashMap<T, Set<Edge<E, T>>>();
-		nodes.put(node, new HashSet<Edge<E, T>>());
+		intern(node);
 		checkRep();
 	}
 	
@@ -67,9 +112,10 @@ public class Graph<T, E> implements Iterable<T> {
 	 * @effects constructs a new Graph with the given set of nodes
 	 */
 	public Graph(Set<T> nodes) {
+		this();
 		for(T node : nodes) {
 			assert node != null : "nodes contains a null";
-			this.nodes.put(node, new HashSet<Edge<E, T>>());
+			intern(node);
 		}
 		if(DEBUG_FLAG)
 			checkRep();
@@ -85,7 +131,23 @@ public class Graph<T, E> implements Iterable<T> {
 	 */
 	public void addNode(T node) {
 		assert node != null : "node is null";
-		nodes.putIfAbsent(node, new HashSet<Edge<E, T>>());
+		if(intern(node))
+			version++;
+	}
+	
+	/**
+	 * Adds node to this.nodes with the next id if it is not already there.
+	 * 
+	 * @return true iff node was added
+	 */
+	private boolean intern(T node) {
+		if(ids.containsKey(node))
+			return false;
+		ids.put(node, nodeList.size());
+		nodeList.add(node);
+		out.add(new EdgeList<E, T>());
+		in.add(new EdgeList<E, T>());
+		return true;
 	}
 	
 	/**
@@ -103,13 +165,15 @@ public class Graph<T, E> implements Iterable<T> {
 	 */
 	public boolean addNode(Set<T> newNodes) {
 		assert !newNodes.contains(null) : "nodes contains a null";
-		int initSize = nodes.size();
+		int initSize = ids.size();
 		for(T name : newNodes) {
-			nodes.putIfAbsent(name, new HashSet<Edge<E, T>>());
+			intern(name);
 		}
+		if(ids.size() != initSize)
+			version++;
 		checkRep();
 		
-		if(initSize + newNodes.size() != nodes.size())
+		if(initSize + newNodes.size() != ids.size())
 			return false;
 		else
 			return true;
@@ -130,30 +194,200 @@ public class Graph<T, E> implements Iterable<T> {
 		assert this.contains(parent) : "graph does not contain parent";
 		assert this.contains(child) : "graph does not contain child";
 		
-		Set<Edge<E, T>> set = nodes.get(parent);
-		boolean success = set.add(new Edge<E, T>(edgeLabel, child));
-		nodes.put(parent, set);
-		return success;
+		int source = ids.get(parent);
+		int target = ids.get(child);
+		EdgeList<E, T> edges = out.get(source);
+		if(!edges.add(new Edge<E, T>(edgeLabel, child), target))
+			return false;
+		EdgeList<E, T> incoming = in.get(target);
+		incoming.add(new Edge<E, T>(edgeLabel, parent), source);
+		edges.twins[edges.size - 1] = incoming.size - 1;
+		incoming.twins[incoming.size - 1] = edges.size - 1;
+		edgeTotal++;
+		version++;
+		return true;
+	}
+	
+	/**
+	 * Removes the Edge with label edgeLabel from parent to child, if there is one, in
+	 * time proportional to the number of edges leaving parent.
+	 * 
+	 * @param parent The source node of the edge
+	 * @param child The destination node of the edge
+	 * @param edgeLabel The label of the edge
+	 * @effects removes the edge from parent to child with label edgeLabel from this
+	 * @return true iff this had such an edge
+	 */
+	public boolean removeEdge(T parent, T child, E edgeLabel) {
+		Integer source = (parent == null) ? null : ids.get(parent);
+		Integer target = (child == null) ? null : ids.get(child);
+		if(source == null || target == null)
+			return false;
+		EdgeList<E, T> edges = out.get(source);
+		for(int i = 0; i < edges.size; i++) {
+			if(edges.targets[i] == target && edges.labels[i].equals(edgeLabel)) {
+				int twin = edges.twins[i];
+				unlink(out, in, source, i);
+				unlink(in, out, target, twin);
+				edgeTotal--;
+				version++;
+				checkRep();
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Removes edge i of the list of node id on one side (out or in), moving the last
+	 * edge of that list into its place, and points the twin of the moved edge on the
+	 * other side at its new position. Leaves the twin of edge i itself alone.
+	 */
+	private void unlink(List<EdgeList<E, T>> side, List<EdgeList<E, T>> other, int id,
+			int i) {
+		EdgeList<E, T> edges = side.get(id);
+		@SuppressWarnings("unchecked")
+		E label = (E) edges.labels[i];
+		edges.set.remove(new Edge<E, T>(label, nodeList.get(edges.targets[i])));
+		int last = edges.size - 1;
+		if(i != last) {
+			edges.targets[i] = edges.targets[last];
+			edges.labels[i] = edges.labels[last];
+			edges.twins[i] = edges.twins[last];
+			other.get(edges.targets[i]).twins[edges.twins[i]] = i;
+		}
+		edges.labels[last] = null;
+		edges.size = last;
 	}
 	
 	/**
 	 * Returns set of edges associated with given node, or null if node is not in this.nodes.
 	 * 
 	 * @param node The node to be searched for in this
-	 * @return the set of edges associated with given node, or null if node is not in 
-	 * 		   this.nodes
+	 * @return an unmodifiable view of the set of edges associated with given node, or
+	 * 		   null if node is not in this.nodes
 	 */
 	public Set<Edge<E, T>> getEdges(T node) {
-		return nodes.get(node);
+		Integer id = (node == null) ? null : ids.get(node);
+		return (id == null) ? null : out.get(id).view;
 	}
 	
 	/**
 	 * Returns set of nodes in this.nodes.
 	 * 
-	 * @return set of nodes in this.nodes
+	 * @return an unmodifiable view of the set of nodes in this.nodes
 	 */
 	public Set<T> getNodes() {
-		return nodes.keySet();
+		return Collections.unmodifiableSet(ids.keySet());
+	}
+	
+	/**
+	 * Returns the id of the given node, or -1 if node is not in this.
+	 * 
+	 * @param node The node whose id will be returned
+	 * @return id(node), or -1 if node is not in this.nodes
+	 */
+	public int idOf(T node) {
+		Integer id = (node == null) ? null : ids.get(node);
+		return (id == null) ? -1 : id;
+	}
+	
+	/**
+	 * Returns the node with the given id, or null if no node in this has that id.
+	 * 
+	 * @param id The id of the node to be returned
+	 * @requires 0 <= id < idLimit()
+	 * @return the node t with id(t) = id, or null if there is none
+	 */
+	public T nodeOf(int id) {
+		return nodeList.get(id);
+	}
+	
+	/**
+	 * Returns one more than the largest id given to a node since this was created or
+	 * last cleared; equal to nodeCount() unless nodes have been removed.
+	 * 
+	 * @return an upper bound on the ids of the nodes in this
+	 */
+	public int idLimit() {
+		return nodeList.size();
+	}
+	
+	/**
+	 * Returns number of edges that the node with the given id is a source of.
+	 * 
+	 * @param id The id of the source node
+	 * @requires nodeOf(id) != null
+	 * @return the number of edges that node id is a source of
+	 */
+	public int outDegree(int id) {
+		return out.get(id).size;
+	}
+	
+	/**
+	 * Returns the id of the destination of an edge of the node with the given id. Edges
+	 * are numbered from 0 to outDegree(id) - 1, and keep their numbers until edges of
+	 * the node are removed.
+	 * 
+	 * @param id The id of the source node
+	 * @param i The number of the edge among those of node id
+	 * @requires nodeOf(id) != null && 0 <= i < outDegree(id)
+	 * @return the id of the destination of edge i of node id
+	 */
+	public int target(int id, int i) {
+		return out.get(id).targets[i];
+	}
+	
+	/**
+	 * Returns the label of an edge of the node with the given id, numbered as by target.
+	 * 
+	 * @param id The id of the source node
+	 * @param i The number of the edge among those of node id
+	 * @requires nodeOf(id) != null && 0 <= i < outDegree(id)
+	 * @return the label of edge i of node id
+	 */
+	@SuppressWarnings("unchecked")
+	public E label(int id, int i) {
+		return (E) out.get(id).labels[i];
+	}
+	
+	/**
+	 * Returns number of edges that the node with the given id is the destination of.
+	 * 
+	 * @param id The id of the destination node
+	 * @requires nodeOf(id) != null
+	 * @return the number of edges that node id is a destination of
+	 */
+	public int inDegree(int id) {
+		return in.get(id).size;
+	}
+	
+	/**
+	 * Returns the id of the source of an edge entering the node with the given id. Edges
+	 * are numbered from 0 to inDegree(id) - 1, and keep their numbers until edges
+	 * entering the node are removed.
+	 * 
+	 * @param id The id of the destination node
+	 * @param i The number of the edge among those entering node id
+	 * @requires nodeOf(id) != null && 0 <= i < inDegree(id)
+	 * @return the id of the source of edge i entering node id
+	 */
+	public int source(int id, int i) {
+		return in.get(id).targets[i];
+	}
+	
+	/**
+	 * Returns the label of an edge entering the node with the given id, numbered as by
+	 * source.
+	 * 
+	 * @param id The id of the destination node
+	 * @param i The number of the edge among those entering node id
+	 * @requires nodeOf(id) != null && 0 <= i < inDegree(id)
+	 * @return the label of edge i entering node id
+	 */
+	@SuppressWarnings("unchecked")
+	public E inLabel(int id, int i) {
+		return (E) in.get(id).labels[i];
 	}
 	
 	/**
@@ -173,17 +407,60 @@ public class Graph<T, E> implements Iterable<T> {
 		return children;
 	}
 	
+	/**
+	 * Returns set of all parent nodes of given node (i.e. all nodes that are the source
+	 * of an edge to the given node).
+	 * 
+	 * @param node The node whose parents will be returned
+	 * @return set of all parent nodes of given node
+	 */
+	public Set<T> getParents(T node) {
+		Set<T> parents = new HashSet<T>();
+		Integer id = (node == null) ? null : ids.get(node);
+		if(id != null) {
+			EdgeList<E, T> edges = in.get(id);
+			for(int i = 0; i < edges.size; i++) {
+				parents.add(nodeList.get(edges.targets[i]));
+			}
+		}
+		return parents;
+	}
+	
 	/**
 	 * Removes given node from this.nodes, returning set of edges previously associated 
-	 * with that node if successful.
+	 * with that node if successful. Edges from other nodes to the given node are removed
+	 * too. Takes time proportional to the number of edges leaving and entering node.
 	 * 
 	 * @param node The node to be removed from this.nodes
-	 * @effects if this contains node, removes node from this.nodes
+	 * @effects if this contains node, removes node from this.nodes, along with every
+	 * 			edge it is the source or destination of
 	 * @return set of edges previously associated with given node (null if node is not
 	 * 		   in this.nodes)
 	 */
 	public Set<Edge<E, T>> remove(T node) {
-		return nodes.remove(node);
+		Integer id = (node == null) ? null : ids.get(node);
+		if(id == null)
+			return null;
+		// the lists of node itself are dropped whole, so only the other side of each
+		// of its edges is unlinked
+		EdgeList<E, T> edges = out.get(id);
+		for(int i = 0; i < edges.size; i++) {
+			unlink(in, out, edges.targets[i], edges.twins[i]);
+		}
+		edgeTotal = edgeTotal - edges.size;
+		// edges from node to itself are already gone from incoming
+		EdgeList<E, T> incoming = in.get(id);
+		for(int i = 0; i < incoming.size; i++) {
+			unlink(out, in, incoming.targets[i], incoming.twins[i]);
+		}
+		edgeTotal = edgeTotal - incoming.size;
+		ids.remove(node);
+		nodeList.set(id, null);
+		out.set(id, null);
+		in.set(id, null);
+		version++;
+		checkRep();
+		return edges.set;
 	}
 	
 	/**
@@ -193,7 +470,7 @@ public class Graph<T, E> implements Iterable<T> {
 	 * @return true iff node is contained in this.nodes
 	 */
 	public boolean contains(T node) {
-		return nodes.containsKey(node);
+		return ids.containsKey(node);
 	}
 	
 	/**
@@ -202,7 +479,7 @@ public class Graph<T, E> implements Iterable<T> {
 	 * @return number of node objects in this
 	 */
 	public int nodeCount() {
-		return nodes.size();
+		return ids.size();
 	}
 	
 	/**
@@ -211,11 +488,7 @@ public class Graph<T, E> implements Iterable<T> {
 	 * @return number of edges in this
 	 */
 	public int edgeCount() {
-		int count = 0;
-		for(Set<Edge<E, T>> set : nodes.values()) {
-			count = count + set.size();
-		}
-		return count;
+		return edgeTotal;
 	}
 	
 	/**
@@ -241,12 +514,15 @@ public class Graph<T, E> implements Iterable<T> {
 		if(from == null || to == null)
 			throw new IllegalArgumentException("from and/or to is null");
 		
-		if(nodes.get(from) == null || nodes.get(to) == null)
+		Integer source = ids.get(from);
+		Integer target = ids.get(to);
+		if(source == null || target == null)
 			throw new IllegalArgumentException("from and/or to has no mapping in this.nodes");
 		
+		EdgeList<E, T> edges = out.get(source);
 		int count = 0;
-		for(Edge<E, T> edge : nodes.get(from)) {
-			if(edge.getDestination().equals(to))
+		for(int i = 0; i < edges.size; i++) {
+			if(edges.targets[i] == target)
 				count = count + 1;
 		}
 		return count;
@@ -258,7 +534,7 @@ public class Graph<T, E> implements Iterable<T> {
 	 * @return true iff nodes is empty
 	 */
 	public boolean isEmpty() {
-		return nodes.isEmpty();
+		return ids.isEmpty();
 	}
 	
 	/**
@@ -274,22 +550,96 @@ public class Graph<T, E> implements Iterable<T> {
 	}
 	
 	/**
-	 * Removes all nodes in this.nodes.
+	 * Removes all nodes in this.nodes. Ids are given out from 0 again afterwards.
 	 * 
 	 * @effects removes all nodes in this.nodes.
 	 */
 	public void clear() {
-		nodes.clear();
+		if(!ids.isEmpty())
+			version++;
+		ids.clear();
+		nodeList.clear();
+		out.clear();
+		in.clear();
+		edgeTotal = 0;
 		checkRep();
 	}
 	
+	/**
+	 * Returns a number that changes whenever this is changed through addNode, addEdge,
+	 * remove or clear, so that data derived from this can tell when it is out of date.
+	 * 
+	 * @return the version of this
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Returns an immutable compressed-sparse-row snapshot of this, intended for
+	 * read-only queries such as shortest-path searches. Later changes to this are
+	 * not reflected in the returned snapshot.
+	 *
+	 * @requires every edge label in this is a non-negative Number
+	 * @return a FrozenGraph holding the current nodes and edges of this, weighed by
+	 * 		   the values of their labels
+	 */
+	public FrozenGraph<T, E> freeze() {
+		return freeze(EdgeWeigher.NUMBER);
+	}
+	
+	/**
+	 * Returns an immutable compressed-sparse-row snapshot of this, with each edge
+	 * weighed by the given weigher. Later changes to this are not reflected in the
+	 * returned snapshot. The snapshot gives the nodes the ids they have in this, closed
+	 * up over the ids of removed nodes, so they are the same ids unless nodes have been
+	 * removed, and keeps the edges of each node in the order of their numbers in this.
+	 *
+	 * @param weigher Gives the weight of each edge label
+	 * @requires weigher != null
+	 * @return a FrozenGraph holding the current nodes and edges of this
+	 */
+	public FrozenGraph<T, E> freeze(EdgeWeigher<? super E> weigher) {
+		checkRep();
+		int limit = nodeList.size();
+		int n = ids.size();
+		// id in the snapshot of each id in this, -1 for removed nodes
+		int[] remap = new int[limit];
+		Object[] frozenNodes = new Object[n];
+		int next = 0;
+		for(int id = 0; id < limit; id++) {
+			T node = nodeList.get(id);
+			remap[id] = (node == null) ? -1 : next;
+			if(node != null)
+				frozenNodes[next++] = node;
+		}
+		
+		int[] offsets = new int[n + 1];
+		int[] targets = new int[edgeTotal];
+		Object[] labels = new Object[edgeTotal];
+		int e = 0;
+		for(int id = 0; id < limit; id++) {
+			if(remap[id] < 0)
+				continue;
+			offsets[remap[id]] = e;
+			EdgeList<E, T> edges = out.get(id);
+			for(int i = 0; i < edges.size; i++) {
+				targets[e] = remap[edges.targets[i]];
+				labels[e] = edges.labels[i];
+				e++;
+			}
+		}
+		offsets[n] = e;
+		return new FrozenGraph<T, E>(frozenNodes, offsets, targets, labels, weigher);
+	}
+
 	/**
 	 * Returns an Iterator for the nodes contained in this.nodes.
 	 * 
 	 * @return an Iterator for the nodes contained in this.nodes
 	 */
 	public Iterator<T> iterator() {
-		return Collections.unmodifiableSet(nodes.keySet()).iterator();
+		return Collections.unmodifiableSet(ids.keySet()).iterator();
 	}
 	
 	/**
@@ -297,14 +647,74 @@ public class Graph<T, E> implements Iterable<T> {
 	 */
 	private void checkRep() {
 		if(DEBUG_FLAG) {
-			for(T node : nodes.keySet()) {
-				assert node != null : "graph contains a null node";
+			assert nodeList.size() == out.size() && out.size() == in.size()
+					: "node and edge lists differ in length";
+			for(Map.Entry<T, Integer> entry : ids.entrySet()) {
+				assert entry.getKey() != null : "graph contains a null node";
+				assert nodeList.get(entry.getValue()) == entry.getKey() : "ids out of step";
 			}
-			for(Set<Edge<E, T>> set : nodes.values()) {
-				for(Edge<E, T> edge : set) {
+			int count = 0;
+			int inCount = 0;
+			for(int id = 0; id < out.size(); id++) {
+				EdgeList<E, T> edges = out.get(id);
+				assert (edges == null) == (nodeList.get(id) == null) : "stale edge list";
+				if(edges == null)
+					continue;
+				assert edges.set.size() == edges.size : "edge set and arrays differ";
+				for(Edge<E, T> edge : edges.set) {
 					assert edge != null : "graph contains a null edge";
 				}
+				for(int i = 0; i < edges.size; i++) {
+					EdgeList<E, T> incoming = in.get(edges.targets[i]);
+					assert incoming.twins[edges.twins[i]] == i &&
+							incoming.targets[edges.twins[i]] == id : "incoming index is wrong";
+				}
+				count = count + edges.size;
+				inCount = inCount + in.get(id).size;
+			}
+			assert count == edgeTotal && inCount == edgeTotal : "edge count is wrong";
+		}
+	}
+	
+	/**
+	 * The edges leaving (or entering) one node, kept both as a set of Edges, for finding
+	 * duplicates and for getEdges, and as parallel arrays of the ids of the nodes at
+	 * their other ends and their labels, for walking them by id. Each edge also records
+	 * the position of its twin, the same edge in the list at its other end, so that
+	 * either copy can be unlinked without searching for the other.
+	 */
+	private static final class EdgeList<E, T> {
+		
+		/** The edges, as Edge objects */
+		final Set<Edge<E, T>> set = new HashSet<Edge<E, T>>();
+		
+		/** Unmodifiable view of set, handed out by getEdges */
+		final Set<Edge<E, T>> view = Collections.unmodifiableSet(set);
+		
+		/** Id at the other end, label and twin position of edge i, for i < size */
+		int[] targets = new int[2];
+		Object[] labels = new Object[2];
+		int[] twins = new int[2];
+		int size;
+		
+		/**
+		 * Adds edge, whose other end is the node with id target, unless it is already
+		 * here. The caller sets its twin.
+		 * 
+		 * @return true iff edge was added
+		 */
+		boolean add(Edge<E, T> edge, int target) {
+			if(!set.add(edge))
+				return false;
+			if(size == targets.length) {
+				targets = Arrays.copyOf(targets, 2 * size);
+				labels = Arrays.copyOf(labels, 2 * size);
+				twins = Arrays.copyOf(twins, 2 * size);
 			}
+			targets[size] = target;
+			labels[size] = edge.getLabel();
+			size++;
+			return true;
 		}
 	}
 }
@@ -0,0 +1,21 @@
+package hw8;
+
+/**
+ * Heuristic estimates the remaining distance between two nodes of a graph, by int node
+ * id, to guide goal-directed searches. Estimates must never exceed the true distance,
+ * and must be consistent: for every edge (u, v) of weight w,
+ * estimate(u, t) <= w + estimate(v, t).
+ *
+ * @author Logan Ricord
+ */
+interface Heuristic {
+
+	/**
+	 * Returns a lower bound on the distance from v to t.
+	 *
+	 * @param v The id of the node
+	 * @param t The id of the target
+	 * @return a lower bound on the shortest distance from v to t
+	 */
+	double estimate(int v, int t);
+}
@@ -0,0 +1,209 @@
+package hw8;
+
+import java.util.Arrays;
+
+/**
+ * IndexedHeap is a 4-ary min-heap of int ids in [0, capacity) keyed by double priorities,
+ * with decrease-key. Every operation works on primitive arrays allocated up front, so a
+ * heap can be cleared and reused by many searches without allocating.
+ *
+ * @specfield entries : set of (id, key) // the ids in the heap with their keys
+ *
+ * @author Logan Ricord
+ */
+class IndexedHeap {
+
+	/** Ids in the heap, in heap order */
+	private int[] heap;
+
+	/** Key of each id, valid while the id is in the heap */
+	private double[] keys;
+
+	/** Position of each id in heap, or -1 if the id is not in the heap */
+	private int[] pos;
+
+	/** Number of ids in the heap */
+	private int size;
+
+	// Abstraction Function:
+	//		AF(r) = IndexedHeap such that
+	//			entries = {(heap[i], keys[heap[i]]) | 0 <= i < size}
+	//
+	// Representation Invariant:
+	//		0 <= size <= heap.length && pos.length = keys.length = heap.length &&
+	//		foreach 0 <= i < size, pos[heap[i]] = i &&
+	//		foreach 0 < i < size, keys[heap[(i - 1) / 4]] <= keys[heap[i]] &&
+	//		foreach id not among heap[0..size), pos[id] = -1
+
+	/**
+	 * Constructs an empty heap for ids in [0, capacity).
+	 *
+	 * @param capacity One more than the largest id that can be inserted
+	 * @requires capacity >= 0
+	 * @effects constructs an empty IndexedHeap
+	 */
+	IndexedHeap(int capacity) {
+		heap = new int[capacity];
+		keys = new double[capacity];
+		pos = new int[capacity];
+		Arrays.fill(pos, -1);
+		size = 0;
+	}
+
+	/**
+	 * Returns one more than the largest id this heap can hold.
+	 *
+	 * @return the capacity of this
+	 */
+	int capacity() {
+		return pos.length;
+	}
+
+	/**
+	 * Returns the number of ids in this.
+	 *
+	 * @return the number of ids in this
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if this holds no ids.
+	 *
+	 * @return size() == 0
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if the given id is in this.
+	 *
+	 * @param id The id to look for
+	 * @return true iff id is in this
+	 */
+	boolean contains(int id) {
+		return pos[id] >= 0;
+	}
+
+	/**
+	 * Removes every id from this, in time proportional to size().
+	 *
+	 * @modifies this
+	 * @effects removes every id from this
+	 */
+	void clear() {
+		for(int i = 0; i < size; i++)
+			pos[heap[i]] = -1;
+		size = 0;
+	}
+
+	/**
+	 * Inserts id with the given key, or lowers the key of id if it is already in this
+	 * with a larger key.
+	 *
+	 * @param id The id to insert
+	 * @param key The key of id
+	 * @requires 0 <= id < capacity()
+	 * @modifies this
+	 * @effects inserts (id, key), or lowers the key of id to key
+	 * @return true iff this changed
+	 */
+	boolean insertOrDecrease(int id, double key) {
+		int i = pos[id];
+		if(i < 0) {
+			i = size++;
+		} else if(key >= keys[id]) {
+			return false;
+		}
+		keys[id] = key;
+		siftUp(id, i);
+		return true;
+	}
+
+	/**
+	 * Returns the smallest key in this.
+	 *
+	 * @requires size() > 0
+	 * @return the smallest key in this
+	 */
+	double peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Returns the id with the smallest key without removing it.
+	 *
+	 * @requires size() > 0
+	 * @return the id with the smallest key
+	 */
+	int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * Removes and returns the id with the smallest key.
+	 *
+	 * @requires size() > 0
+	 * @modifies this
+	 * @effects removes the id with the smallest key
+	 * @return the id with the smallest key
+	 */
+	int poll() {
+		int top = heap[0];
+		pos[top] = -1;
+		size--;
+		if(size > 0)
+			siftDown(heap[size], 0);
+		return top;
+	}
+
+	/**
+	 * Moves id up from position i until its parent's key is no larger.
+	 */
+	private void siftUp(int id, int i) {
+		double key = keys[id];
+		while(i > 0) {
+			int parent = (i - 1) >> 2;
+			int p = heap[parent];
+			if(keys[p] <= key)
+				break;
+			heap[i] = p;
+			pos[p] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+	/**
+	 * Moves id down from position i until no child has a smaller key.
+	 */
+	private void siftDown(int id, int i) {
+		double key = keys[id];
+		while(true) {
+			int first = (i << 2) + 1;
+			if(first >= size)
+				break;
+			int last = Math.min(first + 4, size);
+			int best = first;
+			double bestKey = keys[heap[first]];
+			for(int c = first + 1; c < last; c++) {
+				double k = keys[heap[c]];
+				if(k < bestKey) {
+					best = c;
+					bestKey = k;
+				}
+			}
+			if(bestKey >= key)
+				break;
+			int child = heap[best];
+			heap[i] = child;
+			pos[child] = i;
+			i = best;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+}
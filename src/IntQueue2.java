@@ -37,8 +37,14 @@ public class IntQueue2 {
     // here. For ease of grading, please place them in hw5/answers.txt
     // instead with your answers to the other written exercises.
 
-    // Starting size for the array
-    private static final int INITIAL_SIZE = 20;
+    // The length of the array is always a power of two, so positions wrap
+    // around with a mask instead of a division. The int methods never box.
+
+    // Starting size for the array; a power of two
+    private static final int INITIAL_SIZE = 16;
+
+    /** Largest capacity a queue can be created with; the largest power of two int */
+    public static final int MAX_CAPACITY = 1 << 30;
 
     int[] entries;
     int front;
@@ -48,7 +54,24 @@ public class IntQueue2 {
      * @effects constructs an empty queue
      */
     public IntQueue2() {
-        entries = new int[INITIAL_SIZE];
+        this(INITIAL_SIZE);
+    }
+
+    /**
+     * @param capacity number of items the queue holds before it first grows
+     * @requires capacity >= 0
+     * @effects constructs an empty queue
+     * @throws IllegalArgumentException if capacity > MAX_CAPACITY
+     */
+    public IntQueue2(int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity cannot exceed " + MAX_CAPACITY);
+        }
+        int length = INITIAL_SIZE;
+        while (length < capacity) {
+            length = length * 2;
+        }
+        entries = new int[length];
         front = 0;
         size = 0;
         checkRep();
@@ -61,18 +84,28 @@ public class IntQueue2 {
      * @effects places entry at the end of the queue
      */
     public void enqueue(Integer entry) {
-        // Enlarge queue if necessary
+        enqueueInt(entry);
+    }
+
+    /**
+     * Enqueue an item without boxing it
+     * @param entry item to be added to the queue
+     * @modifies this
+     * @effects places entry at the end of the queue
+     */
+    public void enqueueInt(int entry) {
+        // Enlarge queue if necessary, unwrapping it to the start of the new array
         if (size == entries.length) {
             int[] newEntries = new int[entries.length * 2];
-            for (int i = 0; i < size; i++) {
-                newEntries[i] = entries[(front+i)%entries.length];
-            }
+            int head = entries.length - front;
+            System.arraycopy(entries, front, newEntries, 0, head);
+            System.arraycopy(entries, 0, newEntries, head, front);
             entries = newEntries;
             front = 0;
         }
 
         // Add item to the end of the queue, wrapping around to the front if necessary
-        entries[(front+size)%entries.length] = entry;
+        entries[(front + size) & (entries.length - 1)] = entry;
         size++;
 
         checkRep();
@@ -86,9 +119,20 @@ public class IntQueue2 {
      * @return the item that was first in the queue
      */
     public Integer dequeue() {
-        Integer ret = entries[front];
+        return dequeueInt();
+    }
+
+    /**
+     * Dequeue an item without boxing it
+     * @requires size() > 0
+     * @modifies this
+     * @effects removes the item at the front of the queue
+     * @return the item that was first in the queue
+     */
+    public int dequeueInt() {
+        int ret = entries[front];
         size--;
-        front = (front+1) % entries.length;
+        front = (front + 1) & (entries.length - 1);
         return ret;
     }
 
@@ -98,6 +142,15 @@ public class IntQueue2 {
      * @return the item currently first in the queue
      */
     public Integer front() {
+        return frontInt();
+    }
+
+    /**
+     * See the next item without removing or boxing it
+     * @requires size() > 0
+     * @return the item currently first in the queue
+     */
+    public int frontInt() {
         return entries[front];
     }
 
@@ -117,6 +170,15 @@ public class IntQueue2 {
         return size == 0;
     }
 
+    /**
+     * @modifies this
+     * @effects empties the queue, keeping its array
+     */
+    public void clear() {
+        front = 0;
+        size = 0;
+    }
+
     public void checkRep() {
         // If I gave this to you, you wouldn't have the fun of figuring out the
         // rep invariant for yourself :)
@@ -0,0 +1,198 @@
+package hw5.problem1;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * IntQueueBenchmark measures the throughput of the int queues used as work queues
+ * between threads: MpmcIntQueue with 1 to N producers and as many consumers, against
+ * an IntQueue2 guarded by a lock, and SpscIntQueue against both with one producer
+ * and one consumer. Run with an optional argument giving N, by default the number
+ * of processors.
+ *
+ * @author Logan Ricord
+ */
+public class IntQueueBenchmark {
+
+    // Note: IntQueueBenchmark does not represent an ADT
+
+    // Items passed through the queue per measurement
+    private static final int ITEMS = 1 << 22;
+
+    // Capacity of the bounded queues
+    private static final int CAPACITY = 1 << 12;
+
+    // Measurements run before timing, for the code to be compiled
+    private static final int WARMUP = 3;
+
+    /**
+     * Runs every benchmark and prints the results.
+     *
+     * @param args Optional largest number of producers (and of consumers)
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int maxThreads = (args.length > 0) ? Integer.parseInt(args[0]) : processors;
+        System.out.println("== int queues: " + ITEMS + " items, capacity " +
+                CAPACITY + ", " + processors + " processors");
+
+        for (int threads = 1; ; threads = Math.min(maxThreads, threads * 2)) {
+            double mpmc = measure(mpmc(), threads);
+            double locked = measure(locked(), threads);
+            String spsc = (threads == 1)
+                    ? String.format(", spsc %.1f Mops/s", measure(spsc(), 1)) : "";
+            System.out.printf("  %d producer%s, %d consumer%s: mpmc %.1f Mops/s, " +
+                    "locked %.1f Mops/s (%.1fx)%s%n", threads,
+                    (threads == 1) ? "" : "s", threads, (threads == 1) ? "" : "s",
+                    mpmc, locked, mpmc / locked, spsc);
+            if (threads >= maxThreads) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * A queue of ints shared between producers and consumers.
+     */
+    private interface Channel {
+        /** Adds v, waiting while there is no room */
+        void put(int v);
+        /** Removes an item, waiting while there is none */
+        int take();
+    }
+
+    private static Channel mpmc() {
+        final MpmcIntQueue queue = new MpmcIntQueue(CAPACITY);
+        return new Channel() {
+            @Override
+            public void put(int v) {
+                queue.enqueueInt(v);
+            }
+
+            @Override
+            public int take() {
+                return queue.dequeueInt();
+            }
+        };
+    }
+
+    private static Channel spsc() {
+        final SpscIntQueue queue = new SpscIntQueue(CAPACITY);
+        return new Channel() {
+            @Override
+            public void put(int v) {
+                queue.enqueueInt(v);
+            }
+
+            @Override
+            public int take() {
+                return queue.dequeueInt();
+            }
+        };
+    }
+
+    /**
+     * Returns an IntQueue2 guarded by its own lock, as a baseline. It grows
+     * rather than waits when full, which only favours it.
+     */
+    private static Channel locked() {
+        final IntQueue2 queue = new IntQueue2(CAPACITY);
+        return new Channel() {
+            @Override
+            public void put(int v) {
+                synchronized (queue) {
+                    queue.enqueueInt(v);
+                }
+            }
+
+            @Override
+            public int take() {
+                while (true) {
+                    synchronized (queue) {
+                        if (!queue.isEmpty()) {
+                            return queue.dequeueInt();
+                        }
+                    }
+                    Thread.yield();
+                }
+            }
+        };
+    }
+
+    /**
+     * Passes ITEMS ints through the channel from the given number of producers
+     * to as many consumers, after WARMUP untimed rounds.
+     *
+     * @return millions of items passed per second in the timed round
+     */
+    private static double measure(Channel channel, int threads)
+            throws InterruptedException {
+        for (int round = 0; round < WARMUP; round++) {
+            run(channel, threads);
+        }
+        return ITEMS / 1e6 / (run(channel, threads) / 1e9);
+    }
+
+    /**
+     * Passes ITEMS ints through the channel, checking that every item comes out.
+     *
+     * @return nanoseconds taken
+     */
+    private static long run(final Channel channel, int threads)
+            throws InterruptedException {
+        final int each = ITEMS / threads;
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[] sums = new long[threads];
+        Thread[] workers = new Thread[2 * threads];
+        for (int i = 0; i < threads; i++) {
+            final int first = i * each;
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    for (int v = first; v < first + each; v++) {
+                        channel.put(v);
+                    }
+                }
+            });
+            final int consumer = i;
+            workers[threads + i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    long sum = 0;
+                    for (int j = 0; j < each; j++) {
+                        sum = sum + channel.take();
+                    }
+                    sums[consumer] = sum;
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long time = System.nanoTime() - begin;
+
+        long total = 0;
+        for (long sum : sums) {
+            total = total + sum;
+        }
+        long items = (long) each * threads;
+        if (total != items * (items - 1) / 2) {
+            System.out.println("  MISMATCH: items lost or repeated");
+        }
+        return time;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package hw8;
+
+import java.util.Arrays;
+
+/**
+ * KdTree is a static two-dimensional k-d tree over a set of points numbered 0 to n - 1,
+ * answering nearest-neighbour, radius and bounding-box queries. The tree is implicit:
+ * a single array holds the point numbers, with the splitting point of each subtree at
+ * the middle of its range and the two halves on either side, alternating between
+ * splitting on x and on y.
+ *
+ * @specfield points : sequence of (x, y) // point i is (xs[i], ys[i])
+ *
+ * @author Logan Ricord
+ */
+class KdTree {
+
+	/** Coordinates of each point */
+	private final double[] xs;
+	private final double[] ys;
+
+	/** Point numbers in tree order */
+	private final int[] tree;
+
+	// Abstraction Function:
+	//		AF(r) = KdTree such that points = ((r.xs[i], r.ys[i]) for 0 <= i < n)
+	//
+	// Representation Invariant:
+	//		xs.length = ys.length = tree.length && tree is a permutation of 0 .. n - 1 &&
+	//		for each range [lo, hi) split at depth d with mid = (lo + hi) / 2, every point
+	//		of tree[lo .. mid) has coordinate d % 2 at most that of tree[mid], and every
+	//		point of tree(mid .. hi) at least that of tree[mid]
+
+	/**
+	 * Builds a tree over the given points in O(n log n) time.
+	 *
+	 * @param xs The x coordinate of each point
+	 * @param ys The y coordinate of each point
+	 * @requires xs.length == ys.length && neither array is changed afterward
+	 */
+	KdTree(double[] xs, double[] ys) {
+		this.xs = xs;
+		this.ys = ys;
+		tree = new int[xs.length];
+		for(int i = 0; i < tree.length; i++)
+			tree[i] = i;
+		build(0, tree.length, 0);
+	}
+
+	/**
+	 * Arranges tree[lo, hi) into a subtree splitting on the given coordinate.
+	 */
+	private void build(int lo, int hi, int depth) {
+		while(hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			double[] c = (depth % 2 == 0) ? xs : ys;
+			select(c, lo, hi, mid);
+			build(mid + 1, hi, depth + 1);
+			// continue with the left half rather than recursing on it
+			hi = mid;
+			depth++;
+		}
+	}
+
+	/**
+	 * Rearranges tree[lo, hi) so that tree[k] is the point that sorting the range by
+	 * coordinate c would put there, with no larger coordinate before it and no smaller
+	 * one after it.
+	 */
+	private void select(double[] c, int lo, int hi, int k) {
+		while(hi - lo > 1) {
+			// three-way partition around the median of three, so repeated coordinates
+			// cannot make the selection quadratic
+			double pivot = median(c[tree[lo]], c[tree[(lo + hi) >>> 1]], c[tree[hi - 1]]);
+			int lt = lo;
+			int gt = hi;
+			int i = lo;
+			while(i < gt) {
+				double v = c[tree[i]];
+				if(v < pivot)
+					swap(lt++, i++);
+				else if(v > pivot)
+					swap(i, --gt);
+				else
+					i++;
+			}
+			if(k < lt)
+				hi = lt;
+			else if(k >= gt)
+				lo = gt;
+			else
+				return;
+		}
+	}
+
+	private static double median(double a, double b, double c) {
+		return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+	}
+
+	private void swap(int i, int j) {
+		int t = tree[i];
+		tree[i] = tree[j];
+		tree[j] = t;
+	}
+
+	/**
+	 * Returns the number of points in this.
+	 *
+	 * @return the number of points
+	 */
+	int size() {
+		return tree.length;
+	}
+
+	/**
+	 * Returns the point at the given position of the tree. The subtree over positions
+	 * [lo, hi) at depth d has its splitting point at (lo + hi) >>> 1, which splits on x
+	 * when d is even and on y when it is odd; the whole tree covers [0, size()) at
+	 * depth 0. This lets other indexes walk the tree with data of their own.
+	 *
+	 * @param position The position in the tree
+	 * @requires 0 <= position < size()
+	 * @return the number of the point at position
+	 */
+	int pointAt(int position) {
+		return tree[position];
+	}
+
+	/**
+	 * Finds the k points nearest to (x, y).
+	 *
+	 * @param x The x coordinate of the query
+	 * @param y The y coordinate of the query
+	 * @param k The number of points wanted
+	 * @requires k >= 0
+	 * @return the numbers of the min(k, size()) points nearest to (x, y), nearest first
+	 */
+	int[] nearest(double x, double y, int k) {
+		k = Math.min(k, tree.length);
+		// a max-heap on squared distance of the best points found so far
+		Candidates best = new Candidates(k);
+		if(k > 0)
+			nearest(x, y, 0, tree.length, 0, best);
+		return best.sorted();
+	}
+
+	private void nearest(double x, double y, int lo, int hi, int depth, Candidates best) {
+		while(hi > lo) {
+			int mid = (lo + hi) >>> 1;
+			int p = tree[mid];
+			double dx = xs[p] - x;
+			double dy = ys[p] - y;
+			best.offer(p, dx * dx + dy * dy);
+			double split = (depth % 2 == 0) ? -dx : -dy;
+			int nearLo = (split < 0) ? lo : mid + 1;
+			int nearHi = (split < 0) ? mid : hi;
+			int farLo = (split < 0) ? mid + 1 : lo;
+			int farHi = (split < 0) ? hi : mid;
+			nearest(x, y, nearLo, nearHi, depth + 1, best);
+			// the far side can only hold closer points if the splitting line is closer
+			if(split * split >= best.bound())
+				return;
+			lo = farLo;
+			hi = farHi;
+			depth++;
+		}
+	}
+
+	/**
+	 * Finds every point within the given distance of (x, y).
+	 *
+	 * @param x The x coordinate of the query
+	 * @param y The y coordinate of the query
+	 * @param radius The largest distance of a point found
+	 * @return the numbers of the points at distance at most radius from (x, y), nearest
+	 * 		   first
+	 */
+	int[] within(double x, double y, double radius) {
+		Candidates found = new Candidates(-1);
+		if(radius >= 0)
+			within(x, y, radius * radius, 0, tree.length, 0, found);
+		return found.sorted();
+	}
+
+	private void within(double x, double y, double r2, int lo, int hi, int depth,
+			Candidates found) {
+		while(hi > lo) {
+			int mid = (lo + hi) >>> 1;
+			int p = tree[mid];
+			double dx = xs[p] - x;
+			double dy = ys[p] - y;
+			double d2 = dx * dx + dy * dy;
+			if(d2 <= r2)
+				found.offer(p, d2);
+			double split = (depth % 2 == 0) ? -dx : -dy;
+			// the half on the query's side is always searched, the other only if the
+			// circle crosses the splitting line
+			if(split <= 0 || split * split <= r2)
+				within(x, y, r2, lo, mid, depth + 1, found);
+			if(split >= 0 || split * split <= r2) {
+				lo = mid + 1;
+				depth++;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Finds every point inside the given box, edges included.
+	 *
+	 * @param minX The smallest x coordinate of the box
+	 * @param minY The smallest y coordinate of the box
+	 * @param maxX The largest x coordinate of the box
+	 * @param maxY The largest y coordinate of the box
+	 * @return the numbers of the points inside the box, in no particular order
+	 */
+	int[] inBox(double minX, double minY, double maxX, double maxY) {
+		Candidates found = new Candidates(-1);
+		inBox(minX, minY, maxX, maxY, 0, tree.length, 0, found);
+		return Arrays.copyOf(found.ids, found.size);
+	}
+
+	private void inBox(double minX, double minY, double maxX, double maxY, int lo, int hi,
+			int depth, Candidates found) {
+		while(hi > lo) {
+			int mid = (lo + hi) >>> 1;
+			int p = tree[mid];
+			double px = xs[p];
+			double py = ys[p];
+			if(px >= minX && px <= maxX && py >= minY && py <= maxY)
+				found.offer(p, 0.0);
+			double split = (depth % 2 == 0) ? px : py;
+			double min = (depth % 2 == 0) ? minX : minY;
+			double max = (depth % 2 == 0) ? maxX : maxY;
+			if(min <= split)
+				inBox(minX, minY, maxX, maxY, lo, mid, depth + 1, found);
+			if(max >= split) {
+				lo = mid + 1;
+				depth++;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Candidates collects point numbers with their squared distances, either keeping
+	 * only the nearest few in a max-heap or keeping all of them in a growing list.
+	 */
+	private static class Candidates {
+
+		/** Most points kept, or -1 to keep every point offered */
+		private final int limit;
+		private int[] ids;
+		private double[] keys;
+		private int size;
+
+		Candidates(int limit) {
+			this.limit = limit;
+			int capacity = (limit < 0) ? 16 : limit;
+			ids = new int[capacity];
+			keys = new double[capacity];
+		}
+
+		/**
+		 * Returns the squared distance a point must be under to be kept.
+		 */
+		double bound() {
+			return (limit < 0 || size < limit) ? Double.POSITIVE_INFINITY : keys[0];
+		}
+
+		/**
+		 * Offers a point at the given squared distance.
+		 */
+		void offer(int id, double key) {
+			if(limit < 0) {
+				if(size == ids.length) {
+					ids = Arrays.copyOf(ids, size * 2);
+					keys = Arrays.copyOf(keys, size * 2);
+				}
+				ids[size] = id;
+				keys[size] = key;
+				size++;
+			} else if(size < limit) {
+				// sift up
+				int i = size++;
+				while(i > 0 && keys[(i - 1) >>> 1] < key) {
+					int parent = (i - 1) >>> 1;
+					ids[i] = ids[parent];
+					keys[i] = keys[parent];
+					i = parent;
+				}
+				ids[i] = id;
+				keys[i] = key;
+			} else if(key < keys[0]) {
+				// replace the farthest
+				siftDown(0, id, key);
+			}
+		}
+
+		/**
+		 * Places the given point at heap position i or below, moving larger children up.
+		 */
+		private void siftDown(int i, int id, double key) {
+			while(true) {
+				int child = 2 * i + 1;
+				if(child >= size)
+					break;
+				if(child + 1 < size && keys[child + 1] > keys[child])
+					child++;
+				if(keys[child] <= key)
+					break;
+				ids[i] = ids[child];
+				keys[i] = keys[child];
+				i = child;
+			}
+			ids[i] = id;
+			keys[i] = key;
+		}
+
+		/**
+		 * Returns the point numbers kept, nearest first, by heapsort. Empties this.
+		 */
+		int[] sorted() {
+			if(limit < 0) {
+				for(int i = size / 2 - 1; i >= 0; i--)
+					siftDown(i, ids[i], keys[i]);
+			}
+			int[] result = new int[size];
+			while(size > 0) {
+				result[size - 1] = ids[0];
+				size--;
+				if(size > 0)
+					siftDown(0, ids[size], keys[size]);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package hw8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * LandmarkHeuristic estimates distances by the triangle inequality over precomputed
+ * distances to and from a few landmark nodes (the ALT technique). For a landmark L, the
+ * distance from v to t is at least d(L, t) - d(L, v) and at least d(v, L) - d(t, L);
+ * the estimate is the largest such bound. Landmarks are picked far apart at the edge
+ * of the graph, where these bounds are tightest.
+ *
+ * @specfield landmarks : sequence of node ids
+ * @specfield from      : map from (landmark, node) to double // d(landmark, node)
+ * @specfield to        : map from (landmark, node) to double // d(node, landmark)
+ *
+ * @author Logan Ricord
+ */
+class LandmarkHeuristic implements Heuristic {
+
+	/** Marks the start of a saved landmark file */
+	private static final int MAGIC = 0x414c5431;
+
+	/** Factor applied to the bounds so rounding cannot make them inconsistent */
+	private static final double SHAVE = 1 - 1e-9;
+
+	/** Ids of the landmarks */
+	private final int[] landmarks;
+
+	/** from[v * k + l] = d(landmarks[l], v), infinity if v cannot be reached */
+	private final double[] from;
+
+	/** to[v * k + l] = d(v, landmarks[l]), infinity if v cannot reach it */
+	private final double[] to;
+
+	// Abstraction Function:
+	//		AF(r) = heuristic over landmarks r.landmarks such that, with k =
+	//				r.landmarks.length, from(l, v) = r.from[v * k + l] and
+	//				to(l, v) = r.to[v * k + l]
+	//
+	// Representation Invariant:
+	//		landmarks.length > 0 && from.length = to.length &&
+	//		from.length is a multiple of landmarks.length
+
+	/**
+	 * Constructs a heuristic over the given tables.
+	 */
+	private LandmarkHeuristic(int[] landmarks, double[] from, double[] to) {
+		this.landmarks = landmarks;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Picks k landmarks of the engine's graph by farthest-point selection and computes
+	 * their distance tables. Each landmark is the node farthest from those already
+	 * picked, so the search from one landmark must finish before the next is picked;
+	 * the searches into each landmark run on a pool of worker threads meanwhile.
+	 *
+	 * @param engine The engine whose graph the heuristic is for
+	 * @param k The number of landmarks
+	 * @param threads The number of worker threads
+	 * @requires 0 < k <= engine.getGraph().nodeCount() && threads > 0
+	 * @return a consistent heuristic for the engine's graph
+	 */
+	static LandmarkHeuristic select(final PathEngine<?, ?> engine, final int k, int threads) {
+		final int n = engine.getGraph().nodeCount();
+		final int[] landmarks = new int[k];
+		final double[] from = new double[n * k];
+		final double[] to = new double[n * k];
+
+		// nearest distance from any landmark picked so far to each node
+		double[] nearest = new double[n];
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> tasks = new ArrayList<Future<?>>();
+			// the first pick only serves to find a node at the edge of the graph
+			int next = farthest(engine.dijkstra(0, -1), nearest, true);
+			for(int l = 0; l < k; l++) {
+				landmarks[l] = next;
+				final int landmark = next;
+				final int column = l;
+				tasks.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						SearchState state = engine.reverseDijkstra(landmark);
+						for(int v = 0; v < n; v++)
+							to[v * k + column] = state.distance(v);
+						return null;
+					}
+				}));
+				SearchState state = engine.dijkstra(landmark, -1);
+				for(int v = 0; v < n; v++)
+					from[v * k + l] = state.distance(v);
+				next = farthest(state, nearest, l == 0);
+			}
+			for(Future<?> task : tasks)
+				task.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while computing landmarks", e);
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("landmark search failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return new LandmarkHeuristic(landmarks, from, to);
+	}
+
+	/**
+	 * Lowers nearest to the distances of a finished one-to-all search and returns the
+	 * node with the largest result. Nodes the search did not reach count as infinitely
+	 * far, so each part of a disconnected graph gets a landmark in turn.
+	 *
+	 * @param state The state of a finished one-to-all search
+	 * @param nearest The nearest distance from a landmark to each node
+	 * @param first Whether to overwrite nearest rather than lower it
+	 * @modifies nearest
+	 * @return the id of the node farthest from every landmark
+	 */
+	private static int farthest(SearchState state, double[] nearest, boolean first) {
+		int best = 0;
+		for(int v = 0; v < nearest.length; v++) {
+			double d = state.distance(v);
+			if(first || d < nearest[v])
+				nearest[v] = d;
+			if(nearest[v] > nearest[best])
+				best = v;
+		}
+		return best;
+	}
+
+	/**
+	 * Reads tables saved by save, if the file exists and was saved for a graph with the
+	 * given fingerprint and node count, with k landmarks.
+	 *
+	 * @param file The file the tables were saved to
+	 * @param fingerprint The fingerprint of the graph the tables are for
+	 * @param n The number of nodes in the graph
+	 * @param k The number of landmarks wanted
+	 * @return the saved heuristic, or null if the file is missing, unreadable, or was
+	 * 		   saved for other data
+	 */
+	static LandmarkHeuristic load(File file, long fingerprint, int n, int k) {
+		if(!file.isFile())
+			return null;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if(in.readInt() != MAGIC || in.readLong() != fingerprint || in.readInt() != n
+					|| in.readInt() != k)
+				return null;
+			int[] landmarks = new int[k];
+			for(int l = 0; l < k; l++)
+				landmarks[l] = in.readInt();
+			double[] from = new double[n * k];
+			for(int i = 0; i < from.length; i++)
+				from[i] = in.readDouble();
+			double[] to = new double[n * k];
+			for(int i = 0; i < to.length; i++)
+				to[i] = in.readDouble();
+			return new LandmarkHeuristic(landmarks, from, to);
+		} catch(IOException e) {
+			// a truncated or damaged file is recomputed like a missing one
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Saves the tables of this to the given file, to be read back by load.
+	 *
+	 * @param file The file to write
+	 * @param fingerprint The fingerprint of the graph this is for
+	 * @throws IOException if the file cannot be written
+	 */
+	void save(File file, long fingerprint) throws IOException {
+		int k = landmarks.length;
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeLong(fingerprint);
+			out.writeInt(from.length / k);
+			out.writeInt(k);
+			for(int l = 0; l < k; l++)
+				out.writeInt(landmarks[l]);
+			for(int i = 0; i < from.length; i++)
+				out.writeDouble(from[i]);
+			for(int i = 0; i < to.length; i++)
+				out.writeDouble(to[i]);
+		} finally {
+			if(out != null)
+				out.close();
+		}
+	}
+
+	/**
+	 * Closes the given stream, if any, ignoring failures.
+	 */
+	private static void close(Closeable stream) {
+		if(stream != null) {
+			try {
+				stream.close();
+			} catch(IOException e) {
+				// nothing more can be done with the stream
+			}
+		}
+	}
+
+	/**
+	 * Returns the ids of the landmarks.
+	 *
+	 * @return a new array of the landmark ids
+	 */
+	int[] getLandmarks() {
+		return landmarks.clone();
+	}
+
+	@Override
+	public double estimate(int v, int t) {
+		int k = landmarks.length;
+		int vi = v * k;
+		int ti = t * k;
+		double best = 0.0;
+		for(int l = 0; l < k; l++) {
+			// comparisons skip the NaN of two infinite distances; an infinite bound
+			// means v cannot reach t at all
+			double d = from[ti + l] - from[vi + l];
+			if(d > best)
+				best = d;
+			d = to[vi + l] - to[ti + l];
+			if(d > best)
+				best = d;
+		}
+		return best * SHAVE;
+	}
+}
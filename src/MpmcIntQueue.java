@@ -0,0 +1,255 @@
+package hw5.problem1;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * MpmcIntQueue is a bounded first-in, first-out queue of ints that any number of
+ * threads may enqueue to and dequeue from at once, without locks.
+ * <p>
+ *
+ * An MpmcIntQueue can be described as [n1, n2, ..., n_k], where n1 is the
+ * least-recently-added item in the queue and is the next item to be
+ * removed, and k is never more than capacity().  Items added by one thread are
+ * removed in the order that thread added them; items added by different
+ * threads at once are ordered by whichever claimed its place first.
+ * <p>
+ *
+ * enqueue, dequeue and front keep the contract of IntQueue1 and IntQueue2, except
+ * that enqueue waits while the queue is full and dequeue and front wait while it is
+ * empty. offerInt and pollInt never wait. size() is only a snapshot, since other
+ * threads may change the queue at any time.
+ *
+ * @author Logan Ricord
+ */
+public class MpmcIntQueue {
+    // This class represents a queue as a ring buffer in which every slot has
+    // a sequence number saying whose turn it is to use the slot (Dmitry
+    // Vyukov's bounded queue). head and tail count items ever dequeued and
+    // ever enqueued. The slot for the item with position p is p & mask.
+    // A slot whose sequence is p is free for the enqueuer at position p.
+    // A slot whose sequence is p + 1 holds the item the dequeuer at
+    // position p takes. Dequeuing gives the slot sequence p + capacity, the
+    // position of the next enqueue to use it. Threads claim a position by
+    // compare-and-set on head or tail, then use the slot with no further
+    // contention.
+    //
+    // head and tail sit in one array, far enough apart that they never
+    // share a cache line with each other or with anything else, so
+    // enqueuers and dequeuers do not slow each other down by false sharing.
+    //
+    // Abstraction Function:
+    //      AF(r) = [values[head & mask], values[(head + 1) & mask], ...,
+    //               values[(tail - 1) & mask]]
+    //
+    // Representation Invariant:
+    //      values.length = sequences.length = mask + 1, a power of two &&
+    //      head <= tail <= head + values.length &&
+    //      foreach position p in [head, tail), the slot p & mask has sequence
+    //      p + 1 once its enqueuer has finished writing it
+
+    // Longs between the counters, enough to fill a cache line on either side
+    static final int PAD = 16;
+
+    // Indices of head and tail in counters
+    private static final int HEAD = PAD;
+    private static final int TAIL = 2 * PAD;
+
+    private final int[] values;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray counters;
+    private final int mask;
+
+    /**
+     * @param capacity most items the queue holds at once
+     * @requires 0 < capacity <= 2^30
+     * @effects constructs an empty queue holding at least capacity items,
+     *          rounded up to a power of two
+     */
+    public MpmcIntQueue(int capacity) {
+        int length = 1;
+        while (length < capacity) {
+            length = length * 2;
+        }
+        values = new int[length];
+        sequences = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            sequences.set(i, i);
+        }
+        counters = new AtomicLongArray(3 * PAD);
+        mask = length - 1;
+    }
+
+    /**
+     *
+     * @return most items the queue holds at once
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Enqueue an item if there is room for it, without waiting
+     * @param entry item to be added to the queue
+     * @modifies this
+     * @effects places entry at the end of the queue unless the queue is full
+     * @return true iff entry was placed
+     */
+    public boolean offerInt(int entry) {
+        long pos = counters.get(TAIL);
+        while (true) {
+            int slot = (int) pos & mask;
+            long turn = sequences.get(slot) - pos;
+            if (turn == 0) {
+                if (counters.compareAndSet(TAIL, pos, pos + 1)) {
+                    values[slot] = entry;
+                    // publishes the value to the dequeuer that waits on this sequence
+                    sequences.set(slot, pos + 1);
+                    return true;
+                }
+                pos = counters.get(TAIL);
+            } else if (turn < 0) {
+                // the slot still holds the item from one lap ago
+                return false;
+            } else {
+                // another enqueuer took this position first
+                pos = counters.get(TAIL);
+            }
+        }
+    }
+
+    /**
+     * Dequeue an item if there is one, without waiting
+     * @param ifEmpty value to return if the queue is empty
+     * @modifies this
+     * @effects removes the item at the front of the queue, if any
+     * @return the item that was first in the queue, or ifEmpty if it was empty
+     */
+    public int pollInt(int ifEmpty) {
+        long pos = counters.get(HEAD);
+        while (true) {
+            int slot = (int) pos & mask;
+            long turn = sequences.get(slot) - (pos + 1);
+            if (turn == 0) {
+                if (counters.compareAndSet(HEAD, pos, pos + 1)) {
+                    int ret = values[slot];
+                    // hands the slot to the enqueuer one lap ahead
+                    sequences.set(slot, pos + mask + 1);
+                    return ret;
+                }
+                pos = counters.get(HEAD);
+            } else if (turn < 0) {
+                // nothing has been written here yet
+                return ifEmpty;
+            } else {
+                pos = counters.get(HEAD);
+            }
+        }
+    }
+
+    /**
+     * Enqueue an item
+     * @param entry item to be added to the queue
+     * @modifies this
+     * @effects places entry at the end of the queue, waiting while it is full
+     * @throws IllegalArgumentException if entry is null
+     */
+    public void enqueue(Integer entry) {
+        if (entry == null) {
+            throw new IllegalArgumentException("entry cannot be null");
+        }
+        enqueueInt(entry);
+    }
+
+    /**
+     * Enqueue an item without boxing it
+     * @param entry item to be added to the queue
+     * @modifies this
+     * @effects places entry at the end of the queue, waiting while it is full
+     */
+    public void enqueueInt(int entry) {
+        while (!offerInt(entry)) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Dequeue an item
+     * @requires size() > 0, or another thread will enqueue
+     * @modifies this
+     * @effects removes the item at the front of the queue, waiting while it is
+     *          empty
+     * @return the item that was first in the queue
+     */
+    public Integer dequeue() {
+        return dequeueInt();
+    }
+
+    /**
+     * Dequeue an item without boxing it
+     * @requires size() > 0, or another thread will enqueue
+     * @modifies this
+     * @effects removes the item at the front of the queue, waiting while it is
+     *          empty
+     * @return the item that was first in the queue
+     */
+    public int dequeueInt() {
+        while (true) {
+            long pos = counters.get(HEAD);
+            int slot = (int) pos & mask;
+            if (sequences.get(slot) == pos + 1
+                    && counters.compareAndSet(HEAD, pos, pos + 1)) {
+                int ret = values[slot];
+                sequences.set(slot, pos + mask + 1);
+                return ret;
+            }
+            if (sequences.get(slot) - (pos + 1) < 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * See the next item without removing it
+     * @requires size() > 0, or another thread will enqueue
+     * @return the item first in the queue at some moment during the call,
+     *         waiting while it is empty
+     */
+    public Integer front() {
+        while (true) {
+            long pos = counters.get(HEAD);
+            int slot = (int) pos & mask;
+            if (sequences.get(slot) == pos + 1) {
+                int ret = values[slot];
+                // the value is only good if no dequeuer took the slot meanwhile
+                if (counters.get(HEAD) == pos) {
+                    return ret;
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     *
+     * @return number of elements in the queue at some moment during the call
+     */
+    public int size() {
+        while (true) {
+            long head = counters.get(HEAD);
+            long tail = counters.get(TAIL);
+            // reading head again makes sure the two were in the queue at once
+            if (counters.get(HEAD) == head) {
+                return (int) Math.max(0, Math.min(values.length, tail - head));
+            }
+        }
+    }
+
+    /**
+     *
+     * @return size() == 0
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
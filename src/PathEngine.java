@@ -0,0 +1,638 @@
+package hw8;
+
+import hw5.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * PathEngine finds shortest paths in a FrozenGraph using Dijkstra's algorithm over int
+ * node ids, or A* when given a heuristic. Search state lives in per-thread arrays that
+ * are reused from query to query, so apart from the returned path a query allocates
+ * nothing. A PathEngine may be shared by any number of threads.
+ *
+ * @specfield graph : FrozenGraph<T, E> // the graph that is searched
+ *
+ * @author Logan Ricord
+ */
+public class PathEngine<T, E> {
+
+	/** Most rows of a distance table one task fills in */
+	private static final int TABLE_CHUNK = 8;
+
+	/** The graph that is searched */
+	private final FrozenGraph<T, E> graph;
+
+	// Abstraction Function:
+	//		AF(r) = PathEngine searching r.graph
+	//
+	// Representation Invariant:
+	//		graph != null
+
+	/**
+	 * Creates a PathEngine over the given snapshot.
+	 *
+	 * @param graph The snapshot to be searched
+	 * @throws IllegalArgumentException if graph == null
+	 */
+	public PathEngine(FrozenGraph<T, E> graph) throws IllegalArgumentException {
+		if(graph == null)
+			throw new IllegalArgumentException("graph is null");
+		this.graph = graph;
+	}
+
+	/**
+	 * Creates a PathEngine over a snapshot of the given graph, with each edge weighed by
+	 * the given weigher.
+	 *
+	 * @param graph The graph to be searched
+	 * @param weigher Gives the weight of each edge label
+	 * @throws IllegalArgumentException if graph == null || weigher == null
+	 */
+	public PathEngine(Graph<T, E> graph, EdgeWeigher<? super E> weigher)
+			throws IllegalArgumentException {
+		if(graph == null || weigher == null)
+			throw new IllegalArgumentException("graph and/or weigher is null");
+		this.graph = graph.freeze(weigher);
+	}
+
+	/**
+	 * Returns the snapshot searched by this.
+	 *
+	 * @return the snapshot searched by this
+	 */
+	public FrozenGraph<T, E> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Finds the shortest path between two nodes in terms of total edge weight. If no
+	 * path is found, returns null.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return a list of edges leading from start to dest (empty if start equals dest),
+	 * 		   null if no path found
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public List<Edge<E, T>> findPath(T start, T dest) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		return edgeList(graph, findEdges(s, t, null));
+	}
+
+	/**
+	 * Finds the shortest path between two nodes with the A* algorithm, using the given
+	 * heuristic to direct the search toward dest. If no path is found, returns null.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @param heuristic A consistent heuristic for the graph
+	 * @return a list of edges leading from start to dest (empty if start equals dest),
+	 * 		   null if no path found
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	List<Edge<E, T>> findPath(T start, T dest, Heuristic heuristic)
+			throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		return edgeList(graph, findEdges(s, t, heuristic));
+	}
+
+	/**
+	 * Finds the shortest path between two nodes with a bidirectional Dijkstra search,
+	 * growing one search forward from start and one backward from dest until they
+	 * meet. If no path is found, returns null.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return a list of edges leading from start to dest (empty if start equals dest),
+	 * 		   null if no path found
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public List<Edge<E, T>> findPathBidirectional(T start, T dest)
+			throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		return edgeList(graph, findEdgesBidirectional(s, t));
+	}
+
+	/**
+	 * Finds the length of the shortest path between two nodes, without building the
+	 * path. Repeated calls on the same thread allocate nothing.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return the total weight of a shortest path from start to dest, infinity if there
+	 * 		   is none
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public double distance(T start, T dest) throws IllegalArgumentException {
+		return distance(start, dest, null);
+	}
+
+	/**
+	 * Finds the length of the shortest path between two nodes with the A* algorithm,
+	 * without building the path.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @param heuristic A consistent heuristic for the graph, or null for Dijkstra's
+	 * 		  algorithm
+	 * @return the total weight of a shortest path from start to dest, infinity if there
+	 * 		   is none
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	double distance(T start, T dest, Heuristic heuristic) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		SearchState state = search(s, t, heuristic);
+		return state.isSettled(t) ? state.dist[t] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Finds the length of the shortest path between two nodes with a bidirectional
+	 * Dijkstra search, without building the path.
+	 *
+	 * @param start The starting node of the path
+	 * @param dest The destination node of the path
+	 * @return the total weight of a shortest path from start to dest, infinity if there
+	 * 		   is none
+	 * @throws IllegalArgumentException if start == null || dest == null ||
+	 * 		   start or dest is not in the graph
+	 */
+	public double distanceBidirectional(T start, T dest) throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		int t = graph.idOf(dest, "dest");
+		SearchState forward = SearchState.local(0, graph.nodeCount());
+		SearchState backward = SearchState.local(1, graph.nodeCount());
+		int meet = bidirectional(s, t, forward, backward);
+		if(meet < 0)
+			return Double.POSITIVE_INFINITY;
+		return forward.dist[meet] + backward.dist[meet];
+	}
+
+	/**
+	 * Finds the distance from a node to every node of the graph with Dijkstra's
+	 * algorithm.
+	 *
+	 * @param start The node the distances are measured from
+	 * @return an array whose i-th element is the total weight of a shortest path from
+	 * 		   start to getGraph().nodeOf(i), infinity if there is none
+	 * @throws IllegalArgumentException if start == null || start is not in the graph
+	 */
+	public double[] distancesFrom(T start) throws IllegalArgumentException {
+		SearchState state = search(graph.idOf(start, "start"), -1, null);
+		double[] result = new double[graph.nodeCount()];
+		Arrays.fill(result, Double.POSITIVE_INFINITY);
+		for(int i = 0; i < state.settledCount; i++)
+			result[state.order[i]] = state.dist[state.order[i]];
+		return result;
+	}
+
+	/**
+	 * Finds the distance from a node to every node of the graph with parallel delta
+	 * stepping, on a pool of the given number of worker threads. The distances are
+	 * exactly those distancesFrom(start) finds; on large graphs with several
+	 * processors they are found sooner.
+	 *
+	 * @param start The node the distances are measured from
+	 * @param delta The width of the distance buckets whose nodes are relaxed together;
+	 * 		  about the average edge weight is usually best
+	 * @param parallelism The number of worker threads
+	 * @return distancesFrom(start)
+	 * @throws IllegalArgumentException if start == null || start is not in the graph ||
+	 * 		   !(delta > 0) || parallelism < 1
+	 */
+	public double[] distancesFrom(T start, double delta, int parallelism)
+			throws IllegalArgumentException {
+		int s = graph.idOf(start, "start");
+		if(!(delta > 0))
+			throw new IllegalArgumentException("delta must be positive");
+		if(parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive");
+		if(parallelism == 1)
+			return DeltaStepping.distances(graph, s, delta, null);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return DeltaStepping.distances(graph, s, delta, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the number of nodes settled by the last query run on the calling thread.
+	 *
+	 * @return the number of nodes settled by the calling thread's last query
+	 */
+	public static int lastSettledCount() {
+		return SearchState.lastSettledCount();
+	}
+
+	/**
+	 * Finds the edges of a shortest path between two nodes with Dijkstra's algorithm, or
+	 * A* if a heuristic is given.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target
+	 * @param heuristic A consistent heuristic, or null for plain Dijkstra
+	 * @return the ids of the edges leading from s to t in order, null if no path found
+	 */
+	int[] findEdges(int s, int t, Heuristic heuristic) {
+		SearchState state = search(s, t, heuristic);
+		return state.isSettled(t) ? edgesTo(state, t) : null;
+	}
+
+	/**
+	 * Finds the edges of a shortest path between two nodes with a bidirectional
+	 * Dijkstra search.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target
+	 * @return the ids of the edges leading from s to t in order, null if no path found
+	 */
+	int[] findEdgesBidirectional(int s, int t) {
+		SearchState forward = SearchState.local(0, graph.nodeCount());
+		SearchState backward = SearchState.local(1, graph.nodeCount());
+		int meet = bidirectional(s, t, forward, backward);
+		if(meet < 0)
+			return null;
+
+		int first = 0;
+		for(int e = forward.parent[meet]; e >= 0; e = forward.parent[graph.source(e)])
+			first++;
+		int count = first;
+		// backward parents are edges leaving each node toward t
+		for(int e = backward.parent[meet]; e >= 0; e = backward.parent[graph.target(e)])
+			count++;
+		int[] edges = new int[count];
+		int i = first;
+		for(int e = forward.parent[meet]; e >= 0; e = forward.parent[graph.source(e)])
+			edges[--i] = e;
+		i = first;
+		for(int e = backward.parent[meet]; e >= 0; e = backward.parent[graph.target(e)])
+			edges[i++] = e;
+		return edges;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from s on the calling thread's search state, stopping
+	 * once t is settled.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target, or -1 to settle every reachable node
+	 * @return the calling thread's search state after the search
+	 */
+	SearchState dijkstra(int s, int t) {
+		return search(s, t, null);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from s on the calling thread's search state, stopping
+	 * once every one of the given targets is settled. The nodes settled by then are
+	 * shared by the paths to all the targets, so one search replaces one per target.
+	 *
+	 * @param s The id of the source
+	 * @param targets The ids of the targets, in any order and possibly repeated
+	 * @modifies targets
+	 * @effects sorts targets
+	 * @return the calling thread's search state after the search
+	 */
+	SearchState dijkstra(int s, int[] targets) {
+		Arrays.sort(targets);
+		int remaining = 0;
+		for(int i = 0; i < targets.length; i++) {
+			if(i == 0 || targets[i] != targets[i - 1])
+				remaining++;
+		}
+		SearchState state = SearchState.local(0, graph.nodeCount());
+		state.addSource(s, 0.0);
+		IndexedHeap heap = state.heap;
+		double[] dist = state.dist;
+		while(remaining > 0 && !heap.isEmpty()) {
+			int u = state.settleNext();
+			if(Arrays.binarySearch(targets, u) >= 0 && --remaining == 0)
+				break;
+			double du = dist[u];
+			for(int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+				int v = graph.target(e);
+				double d = du + graph.weight(e);
+				if(!state.isSettled(v) && d < state.distance(v))
+					state.improve(v, d, e, d);
+			}
+		}
+		SearchState.recordSettled(state.settledCount);
+		return state;
+	}
+
+	/**
+	 * Finds the distance from each of the given sources to each of the given targets,
+	 * with one search from each source that stops once every target is settled. The
+	 * searches run in parallel on the given pool.
+	 *
+	 * @param sources The ids of the sources
+	 * @param targets The ids of the targets
+	 * @param pool The pool to run the searches on, or null to run them on the calling
+	 * 		  thread
+	 * @return a table whose [i][j] element is the total weight of a shortest path from
+	 * 		   sources[i] to targets[j], infinity if there is none
+	 */
+	double[][] distanceTable(int[] sources, int[] targets, ForkJoinPool pool) {
+		double[][] rows = new double[sources.length][targets.length];
+		Rows task = new Rows(sources, targets, rows, 0, sources.length);
+		if(pool == null)
+			task.runAll();
+		else
+			pool.invoke(task);
+		return rows;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm on the calling thread's search state from several
+	 * sources at once, each starting at its own distance, toward several targets, each
+	 * adding its own distance at the end. The search stops once no unsettled node could
+	 * give a shorter total than the best target found, so afterward the reached target
+	 * minimizing distance(t) + its added distance ends a shortest path overall.
+	 *
+	 * @param sources The ids of the sources
+	 * @param sourceDist The starting distance of each source
+	 * @param targets The ids of the targets
+	 * @param targetDist The distance added at the end of each target
+	 * @requires sources and sourceDist have the same length, as do targets and
+	 * 			 targetDist, and all distances are non-negative
+	 * @return the calling thread's search state after the search
+	 */
+	SearchState dijkstra(int[] sources, double[] sourceDist, int[] targets,
+			double[] targetDist) {
+		SearchState state = SearchState.local(0, graph.nodeCount());
+		for(int i = 0; i < sources.length; i++)
+			state.addSource(sources[i], sourceDist[i]);
+		IndexedHeap heap = state.heap;
+		double[] dist = state.dist;
+		double best = Double.POSITIVE_INFINITY;
+		while(!heap.isEmpty() && heap.peekKey() < best) {
+			int u = state.settleNext();
+			double du = dist[u];
+			for(int i = 0; i < targets.length; i++) {
+				if(targets[i] == u)
+					best = Math.min(best, du + targetDist[i]);
+			}
+			for(int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+				int v = graph.target(e);
+				double d = du + graph.weight(e);
+				if(!state.isSettled(v) && d < state.distance(v))
+					state.improve(v, d, e, d);
+			}
+		}
+		SearchState.recordSettled(state.settledCount);
+		return state;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from s on the calling thread's search state, settling
+	 * exactly the nodes within the given distance of s. Nodes farther than that are
+	 * never queued, so the search costs no more than the area it covers.
+	 *
+	 * @param s The id of the source
+	 * @param budget The largest distance of a node to be settled
+	 * @requires budget >= 0
+	 * @return the calling thread's search state after the search, whose order lists
+	 * 		   the nodes within budget of s by increasing distance
+	 */
+	SearchState dijkstraWithin(int s, double budget) {
+		SearchState state = SearchState.local(0, graph.nodeCount());
+		state.addSource(s, 0.0);
+		IndexedHeap heap = state.heap;
+		double[] dist = state.dist;
+		while(!heap.isEmpty()) {
+			int u = state.settleNext();
+			double du = dist[u];
+			for(int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+				int v = graph.target(e);
+				double d = du + graph.weight(e);
+				if(d <= budget && !state.isSettled(v) && d < state.distance(v))
+					state.improve(v, d, e, d);
+			}
+		}
+		SearchState.recordSettled(state.settledCount);
+		return state;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from s on the calling thread's search state, or A* if a
+	 * heuristic is given, stopping once t is settled.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target, or -1 to settle every reachable node
+	 * @param heuristic A consistent heuristic, or null for plain Dijkstra
+	 * @requires heuristic == null || t >= 0
+	 * @return the calling thread's search state after the search
+	 */
+	SearchState search(int s, int t, Heuristic heuristic) {
+		SearchState state = SearchState.local(0, graph.nodeCount());
+		state.addSource(s, 0.0);
+		IndexedHeap heap = state.heap;
+		double[] dist = state.dist;
+		while(!heap.isEmpty()) {
+			int u = state.settleNext();
+			if(u == t)
+				break;
+			double du = dist[u];
+			for(int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+				int v = graph.target(e);
+				double d = du + graph.weight(e);
+				if(!state.isSettled(v) && d < state.distance(v)) {
+					double priority = (heuristic == null) ? d : d + heuristic.estimate(v, t);
+					state.improve(v, d, e, priority);
+				}
+			}
+		}
+		SearchState.recordSettled(state.settledCount);
+		return state;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm backward from t over incoming edges on the calling
+	 * thread's search state, settling every node that can reach t. The distance of each
+	 * settled node is then the length of its shortest path to t.
+	 *
+	 * @param t The id of the target
+	 * @return the calling thread's search state after the search
+	 */
+	SearchState reverseDijkstra(int t) {
+		SearchState state = SearchState.local(0, graph.nodeCount());
+		state.addSource(t, 0.0);
+		IndexedHeap heap = state.heap;
+		double[] dist = state.dist;
+		while(!heap.isEmpty()) {
+			int u = state.settleNext();
+			double du = dist[u];
+			for(int i = graph.firstInEdge(u), end = graph.endInEdge(u); i < end; i++) {
+				int v = graph.inSource(i);
+				double d = du + graph.weight(graph.inEdge(i));
+				if(!state.isSettled(v) && d < state.distance(v))
+					state.improve(v, d, graph.inEdge(i), d);
+			}
+		}
+		SearchState.recordSettled(state.settledCount);
+		return state;
+	}
+
+	/**
+	 * Runs a bidirectional Dijkstra search between s and t, expanding whichever side has
+	 * the smaller queue minimum. The search stops once the two minimums together reach
+	 * the shortest s-t distance seen so far, at which point that distance is optimal.
+	 *
+	 * @param s The id of the source
+	 * @param t The id of the target
+	 * @param forward The state for the search from s, freshly reset
+	 * @param backward The state for the search into t, freshly reset
+	 * @return the id of a node on a shortest s-t path, reached by both searches, or -1
+	 * 		   if t is unreachable from s
+	 */
+	int bidirectional(int s, int t, SearchState forward, SearchState backward) {
+		forward.addSource(s, 0.0);
+		backward.addSource(t, 0.0);
+		double best = (s == t) ? 0.0 : Double.POSITIVE_INFINITY;
+		int meet = (s == t) ? s : -1;
+		IndexedHeap fheap = forward.heap;
+		IndexedHeap bheap = backward.heap;
+		while(!fheap.isEmpty() && !bheap.isEmpty()
+				&& fheap.peekKey() + bheap.peekKey() < best) {
+			if(fheap.peekKey() <= bheap.peekKey()) {
+				int u = forward.settleNext();
+				double du = forward.dist[u];
+				for(int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+					int v = graph.target(e);
+					double d = du + graph.weight(e);
+					if(!forward.isSettled(v) && d < forward.distance(v))
+						forward.improve(v, d, e, d);
+					if(backward.isReached(v) && d + backward.dist[v] < best) {
+						best = d + backward.dist[v];
+						meet = v;
+					}
+				}
+			} else {
+				int u = backward.settleNext();
+				double du = backward.dist[u];
+				for(int i = graph.firstInEdge(u), end = graph.endInEdge(u); i < end; i++) {
+					int e = graph.inEdge(i);
+					int v = graph.inSource(i);
+					double d = du + graph.weight(e);
+					if(!backward.isSettled(v) && d < backward.distance(v))
+						backward.improve(v, d, e, d);
+					if(forward.isReached(v) && d + forward.dist[v] < best) {
+						best = d + forward.dist[v];
+						meet = v;
+					}
+				}
+			}
+		}
+		SearchState.recordSettled(forward.settledCount + backward.settledCount);
+		return meet;
+	}
+
+	/**
+	 * Returns the path to t recorded by the parent edges of a finished search.
+	 *
+	 * @param state The state of a search in which t has been reached
+	 * @param t The id of the last node of the path
+	 * @return a new list of the edges from the search's source to t
+	 */
+	List<Edge<E, T>> pathTo(SearchState state, int t) {
+		return edgeList(graph, edgesTo(state, t));
+	}
+
+	/**
+	 * Returns the edges of the path to t recorded by the parent edges of a finished
+	 * search.
+	 *
+	 * @param state The state of a search in which t has been reached
+	 * @param t The id of the last node of the path
+	 * @return a new array of the ids of the edges from the search's source to t
+	 */
+	int[] edgesTo(SearchState state, int t) {
+		int count = 0;
+		for(int e = state.parent[t]; e >= 0; e = state.parent[graph.source(e)])
+			count++;
+		int[] edges = new int[count];
+		for(int e = state.parent[t]; e >= 0; e = state.parent[graph.source(e)])
+			edges[--count] = e;
+		return edges;
+	}
+
+	/**
+	 * Returns the edges of the given graph with the given ids, in order.
+	 *
+	 * @param graph The graph the edges belong to
+	 * @param edges The ids of the edges, or null
+	 * @return a new list of the edges with ids edges, null if edges == null
+	 */
+	static <T, E> List<Edge<E, T>> edgeList(FrozenGraph<T, E> graph, int[] edges) {
+		if(edges == null)
+			return null;
+		List<Edge<E, T>> path = new ArrayList<Edge<E, T>>(edges.length);
+		for(int e : edges)
+			path.add(graph.edge(e));
+		return path;
+	}
+
+	/**
+	 * Fills in rows [lo, hi) of a distance table, splitting the range in half until each
+	 * task has at most TABLE_CHUNK rows.
+	 */
+	@SuppressWarnings("serial")
+	private class Rows extends RecursiveAction {
+
+		private final int[] sources;
+		private final int[] targets;
+		private final double[][] rows;
+		private final int lo;
+		private final int hi;
+
+		Rows(int[] sources, int[] targets, double[][] rows, int lo, int hi) {
+			this.sources = sources;
+			this.targets = targets;
+			this.rows = rows;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if(hi - lo > TABLE_CHUNK) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Rows(sources, targets, rows, lo, mid),
+						new Rows(sources, targets, rows, mid, hi));
+				return;
+			}
+			runAll();
+		}
+
+		/**
+		 * Fills in every row of this on the calling thread.
+		 */
+		void runAll() {
+			// dijkstra sorts its targets, so it gets a copy
+			int[] sorted = new int[targets.length];
+			for(int i = lo; i < hi; i++) {
+				System.arraycopy(targets, 0, sorted, 0, targets.length);
+				SearchState state = dijkstra(sources[i], sorted);
+				for(int j = 0; j < targets.length; j++) {
+					int t = targets[j];
+					rows[i][j] = state.isSettled(t) ? state.dist[t] 
+							: Double.POSITIVE_INFINITY;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package hw8;
+
+import hw5.*;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PathResult is an <b>immutable</b> path through a snapshot of the campus graph, held
+ * as the ids of its nodes and the distance walked to reach each one. The path as a
+ * list of edges or of points is only built when asked for, so a route that is only
+ * measured or drawn costs two arrays rather than an object per step.
+ *
+ * @specfield nodes     : sequence of CampusPoint // the points of the path, in order,
+ * 												  // starting and ending with its ends
+ * @specfield distances : sequence of double // distances(i) = length of the path from
+ * 											 // nodes(0) to nodes(i)
+ *
+ * @author Logan Ricord
+ */
+public final class PathResult {
+
+	/** The snapshot the path runs through */
+	private final FrozenGraph<CampusPoint, Double> graph;
+
+	/** Id of each node of the path, in order */
+	private final int[] nodes;
+
+	/** Id of each edge of the path, in order */
+	private final int[] steps;
+
+	/** distances[i] = length of the path up to nodes[i] */
+	private final double[] distances;
+
+	/** The edges of the path, once asked for */
+	private volatile List<Edge<Double, CampusPoint>> edges;
+
+	// Abstraction Function:
+	//		AF(r) = PathResult such that nodes(i) = r.graph.nodeOf(r.nodes[i]) and
+	//				distances(i) = r.distances[i]
+	//
+	// Representation Invariant:
+	//		nodes.length = distances.length = steps.length + 1 && distances[0] = 0 &&
+	//		for each 0 <= i < steps.length, steps[i] is the lightest edge of graph from
+	//		nodes[i] to nodes[i + 1] && distances[i + 1] = distances[i] + its weight
+
+	/**
+	 * Creates the path from the given node along the given edges.
+	 *
+	 * @param graph The snapshot the path runs through
+	 * @param start The id of the first node of the path
+	 * @param path The ids of the edges of the path, in order
+	 * @requires path is a path of graph starting at start, each of its edges the lightest
+	 * 			 between its ends, and is not changed afterward
+	 */
+	PathResult(FrozenGraph<CampusPoint, Double> graph, int start, int[] path) {
+		this.graph = graph;
+		steps = path;
+		nodes = new int[path.length + 1];
+		distances = new double[path.length + 1];
+		nodes[0] = start;
+		for(int i = 0; i < path.length; i++) {
+			nodes[i + 1] = graph.target(path[i]);
+			distances[i + 1] = distances[i] + graph.weight(path[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of steps of this path.
+	 *
+	 * @return the number of edges of this path, 0 if it starts where it ends
+	 */
+	public int size() {
+		return nodes.length - 1;
+	}
+
+	/**
+	 * Returns the given point of this path.
+	 *
+	 * @param i The position of the point
+	 * @return nodes(i)
+	 * @throws IndexOutOfBoundsException unless 0 <= i <= size()
+	 */
+	public CampusPoint getPoint(int i) {
+		return graph.nodeOf(nodes[i]);
+	}
+
+	/**
+	 * Returns the first point of this path.
+	 *
+	 * @return nodes(0)
+	 */
+	public CampusPoint getStart() {
+		return getPoint(0);
+	}
+
+	/**
+	 * Returns the last point of this path.
+	 *
+	 * @return nodes(size())
+	 */
+	public CampusPoint getDest() {
+		return getPoint(size());
+	}
+
+	/**
+	 * Returns the distance walked along this path to reach the given point.
+	 *
+	 * @param i The position of the point
+	 * @return distances(i)
+	 * @throws IndexOutOfBoundsException unless 0 <= i <= size()
+	 */
+	public double getDistanceTo(int i) {
+		return distances[i];
+	}
+
+	/**
+	 * Returns the length of the given step of this path.
+	 *
+	 * @param i The position of the step
+	 * @return the length of the edge from nodes(i) to nodes(i + 1)
+	 * @throws IndexOutOfBoundsException unless 0 <= i < size()
+	 */
+	public double getStepDistance(int i) {
+		return graph.weight(steps[i]);
+	}
+
+	/**
+	 * Returns the total length of this path.
+	 *
+	 * @return distances(size())
+	 */
+	public double getDistance() {
+		return distances[nodes.length - 1];
+	}
+
+	/**
+	 * Returns the id of the given node of this path.
+	 *
+	 * @param i The position of the node
+	 * @return the id of nodes(i) in the graph the path runs through
+	 * @throws IndexOutOfBoundsException unless 0 <= i <= size()
+	 */
+	int nodeAt(int i) {
+		return nodes[i];
+	}
+
+	/**
+	 * Returns the id of the given edge of this path.
+	 *
+	 * @param i The position of the step
+	 * @return the id of the edge from nodes(i) to nodes(i + 1) in the graph the path runs
+	 * 		   through
+	 * @throws IndexOutOfBoundsException unless 0 <= i < size()
+	 */
+	int edgeAt(int i) {
+		return steps[i];
+	}
+
+	/**
+	 * Returns true if this path steps from one node to the other.
+	 *
+	 * @param from The id of the node the step leaves
+	 * @param to The id of the node the step enters
+	 * @return true iff from is followed by to in this path
+	 */
+	boolean uses(int from, int to) {
+		for(int i = 0; i + 1 < nodes.length; i++) {
+			if(nodes[i] == from && nodes[i + 1] == to)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the points of this path. The list reads through to this rather than
+	 * copying it.
+	 *
+	 * @return an unmodifiable list of nodes, in order
+	 */
+	public List<CampusPoint> getPoints() {
+		return new AbstractList<CampusPoint>() {
+			@Override
+			public CampusPoint get(int i) {
+				return getPoint(i);
+			}
+
+			@Override
+			public int size() {
+				return nodes.length;
+			}
+		};
+	}
+
+	/**
+	 * Returns the edges of this path, as findPath returns them. The list is built on the
+	 * first call and the same list returned after that.
+	 *
+	 * @return an unmodifiable list of the edges from nodes(i) to nodes(i + 1) for each
+	 * 		   0 <= i < size(), in order
+	 */
+	public List<Edge<Double, CampusPoint>> getEdges() {
+		List<Edge<Double, CampusPoint>> result = edges;
+		if(result == null) {
+			List<Edge<Double, CampusPoint>> path =
+					new ArrayList<Edge<Double, CampusPoint>>(size());
+			for(int i = 0; i < size(); i++)
+				path.add(graph.edge(steps[i]));
+			result = Collections.unmodifiableList(path);
+			edges = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,203 @@
+package hw8;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RouteCache remembers the paths found between pairs of nodes, evicting the least
+ * recently used path once it holds more than a given number of paths or a given total
+ * number of path edges. It also counts its hits, misses and evictions. A RouteCache
+ * may be shared by any number of threads.
+ *
+ * @specfield routes    : map from (start, dest) to PathResult // in order of last use
+ * @specfield maxRoutes : int  // most routes held at once
+ * @specfield maxWeight : long // most route weight held at once
+ * @specfield hits, misses, evictions : long
+ *
+ * @author Logan Ricord
+ */
+class RouteCache<T> {
+
+	/** Cached paths by start and destination, in order of last use */
+	private final LinkedHashMap<Key, PathResult> routes;
+
+	/** Most routes held at once */
+	private final int maxRoutes;
+
+	/** Most total weight held at once */
+	private final long maxWeight;
+
+	/** Total weight of the routes held */
+	private long weight;
+
+	/** Counters of lookups that found a route, lookups that did not, and evictions */
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	// Abstraction Function:
+	//		AF(r) = RouteCache such that
+	//			routes = r.routes in iteration order
+	//			maxRoutes = r.maxRoutes, maxWeight = r.maxWeight
+	//			hits = r.hits, misses = r.misses, evictions = r.evictions
+	//
+	// Representation Invariant:
+	//		routes.size() <= maxRoutes && weight <= maxWeight &&
+	//		weight = sum of weightOf(path) over routes
+
+	/**
+	 * Constructs an empty cache.
+	 *
+	 * @param maxRoutes The most routes held at once
+	 * @param maxWeight The most total weight held at once, where a route weighs one
+	 * 		  more than its number of edges
+	 * @requires maxRoutes >= 0 && maxWeight >= 0
+	 */
+	RouteCache(int maxRoutes, long maxWeight) {
+		this.maxRoutes = maxRoutes;
+		this.maxWeight = maxWeight;
+		routes = new LinkedHashMap<Key, PathResult>(16, 0.75f, true);
+	}
+
+	/**
+	 * Looks up the route between two nodes, counting a hit or a miss.
+	 *
+	 * @param start The start of the route
+	 * @param dest The destination of the route
+	 * @return the cached path from start to dest, null if none is cached
+	 */
+	synchronized PathResult get(T start, T dest) {
+		PathResult path = routes.get(new Key(start, dest));
+		if(path == null)
+			misses++;
+		else
+			hits++;
+		return path;
+	}
+
+	/**
+	 * Caches the route between two nodes, evicting least recently used routes as
+	 * needed to stay within the limits. A path too heavy to fit is not cached.
+	 *
+	 * @param start The start of the route
+	 * @param dest The destination of the route
+	 * @param path The path from start to dest
+	 * @requires path != null
+	 * @modifies this
+	 * @effects caches path as the route from start to dest
+	 */
+	synchronized void put(T start, T dest, PathResult path) {
+		if(weightOf(path) > maxWeight || maxRoutes == 0)
+			return;
+		PathResult old = routes.put(new Key(start, dest), path);
+		if(old != null)
+			weight = weight - weightOf(old);
+		weight = weight + weightOf(path);
+		Iterator<Map.Entry<Key, PathResult>> eldest = routes.entrySet().iterator();
+		while(routes.size() > maxRoutes || weight > maxWeight) {
+			weight = weight - weightOf(eldest.next().getValue());
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes every route from this. The counters are kept.
+	 *
+	 * @modifies this
+	 * @effects empties routes
+	 */
+	synchronized void clear() {
+		routes.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Removes every route that takes a step from one node to another. The counters are
+	 * kept.
+	 *
+	 * @param from The id of the node the step leaves
+	 * @param to The id of the node the step enters
+	 * @modifies this
+	 * @effects removes the routes in which from is followed by to
+	 */
+	synchronized void removeUsing(int from, int to) {
+		Iterator<PathResult> it = routes.values().iterator();
+		while(it.hasNext()) {
+			PathResult path = it.next();
+			if(path.uses(from, to)) {
+				weight = weight - weightOf(path);
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of routes held.
+	 *
+	 * @return the number of routes held
+	 */
+	synchronized int size() {
+		return routes.size();
+	}
+
+	/**
+	 * Returns the number of lookups that found a cached route.
+	 *
+	 * @return the number of hits
+	 */
+	synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that found no cached route.
+	 *
+	 * @return the number of misses
+	 */
+	synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of routes evicted to stay within the limits.
+	 *
+	 * @return the number of evictions
+	 */
+	synchronized long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the weight of a path: one more than its number of edges.
+	 */
+	private static long weightOf(PathResult path) {
+		return path.size() + 1;
+	}
+
+	/** A start and destination pair. */
+	private static final class Key {
+
+		private final Object start;
+		private final Object dest;
+
+		Key(Object start, Object dest) {
+			this.start = start;
+			this.dest = dest;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Key))
+				return false;
+			Key k = (Key) other;
+			return start.equals(k.start) && dest.equals(k.dest);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * start.hashCode() + dest.hashCode();
+		}
+	}
+}
@@ -0,0 +1,982 @@
+package hw8;
+
+import hw5.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * RoutingBenchmark measures the memory and latency of the campus routing code, both on
+ * the real campus data (when the data files are present) and on synthetic grid graphs.
+ * Run with an optional argument giving the side length of the largest synthetic grid.
+ *
+ * @author Logan Ricord
+ */
+public class RoutingBenchmark {
+
+	// Note: RoutingBenchmark does not represent an ADT
+
+	private static final String PATHS_FILE = "./src/hw8/data/campus_paths.dat";
+	private static final String BUILDINGS_FILE = "./src/hw8/data/campus_buildings.dat";
+
+	/** Number of edges closed and reopened when timing repairs of the building matrix */
+	private static final int CLOSURES = 50;
+
+	/** Upper bound on the number of random queries timed per measurement */
+	private static final int QUERIES = 2000;
+
+	/** Queries are reduced on large graphs so that each measurement settles about
+	 *  this many nodes in total */
+	private static final int WORK = 5000000;
+
+	/** Number of destinations of each one-to-many query */
+	private static final int DESTINATIONS = 10;
+
+	/** Most sources and targets of a distance table */
+	private static final int TABLE_SIZE = 200;
+
+	/** Number of landmarks for the ALT routing mode */
+	private static final int LANDMARKS = 16;
+
+	/** Largest number of tree entries (buildings times nodes) a building matrix is
+	 *  built with */
+	private static final long MATRIX_LIMIT = 20000000;
+
+	/** Seed for the synthetic graphs and random queries */
+	private static final long SEED = 331;
+
+	/**
+	 * Runs every benchmark and prints the results.
+	 *
+	 * @param args Optional side length of the largest synthetic grid
+	 */
+	public static void main(String[] args) throws Exception {
+		int maxSide = (args.length > 0) ? Integer.parseInt(args[0]) : 300;
+
+		if(new File(PATHS_FILE).exists() && new File(BUILDINGS_FILE).exists()) {
+			List<CampusPoint> buildings = new ArrayList<CampusPoint>();
+			CampusParser.parseBuildings(BUILDINGS_FILE, buildings);
+			long before = usedMemory();
+			Graph<CampusPoint, Double> graph = new Graph<CampusPoint, Double>();
+			CampusParser.parsePaths(PATHS_FILE, graph, buildings);
+			run("campus", graph, buildings, usedMemory() - before);
+		} else {
+			System.out.println("campus data not found, skipping campus benchmarks");
+		}
+
+		for(int side = 30; side <= maxSide; side = side * 3) {
+			List<CampusPoint> buildings = new ArrayList<CampusPoint>();
+			long before = usedMemory();
+			Graph<CampusPoint, Double> graph = syntheticGrid(side, buildings);
+			run("grid " + side + "x" + side, graph, buildings, usedMemory() - before);
+		}
+	}
+
+	/**
+	 * Runs every benchmark on the given graph.
+	 *
+	 * @param name The name of the graph, for reporting
+	 * @param graph The graph to be benchmarked
+	 * @param buildings The buildings in graph
+	 * @param liveBytes The heap bytes taken by building graph
+	 */
+	private static void run(String name, Graph<CampusPoint, Double> graph,
+			List<CampusPoint> buildings, long liveBytes) throws IOException {
+		System.out.println("== " + name + ": " + graph.nodeCount() + " nodes, " +
+				graph.edgeCount() + " edges, " + buildings.size() + " buildings");
+		compareFrozen(graph, buildings, liveBytes);
+		measureEngine(graph.freeze());
+		measureSpatial(graph.freeze());
+		measureDeltaStepping(graph.freeze());
+		measureQuantized(graph.freeze());
+		CampusPaths model = new CampusPaths(graph, buildings);
+		ContractionHierarchy<CampusPoint, Double> hierarchy = model.buildHierarchy();
+		System.out.printf("  hierarchy: built in %.1f ms, %,d shortcuts (%.2f per edge)%n",
+				hierarchy.buildNanos() / 1e6, hierarchy.shortcutCount(),
+				(double) hierarchy.shortcutCount() / Math.max(1, graph.edgeCount()));
+		long start = System.nanoTime();
+		model.buildLandmarks(LANDMARKS);
+		System.out.printf("  landmarks: %d computed in %.1f ms on %d processors%n", LANDMARKS,
+				(System.nanoTime() - start) / 1e6, Runtime.getRuntime().availableProcessors());
+		compareModes(model);
+		measureOneToMany(model);
+		measureTable(model, hierarchy);
+		measureReachable(model);
+		measureBatch(model);
+		measureDirections(model);
+		if(measureMatrix(model))
+			measureClosures(model);
+		System.out.println();
+	}
+
+	/**
+	 * Compares the memory used by graph against its frozen snapshot, and the latency
+	 * of routing on the live graph against routing on the snapshot.
+	 */
+	private static void compareFrozen(Graph<CampusPoint, Double> graph,
+			List<CampusPoint> buildings, long liveBytes) {
+		long before = usedMemory();
+		FrozenGraph<CampusPoint, Double> frozen = graph.freeze();
+		long frozenBytes = usedMemory() - before;
+		System.out.printf("  memory: live graph %,d bytes (including nodes), " +
+				"frozen snapshot %,d bytes (sharing nodes)%n", liveBytes, frozenBytes);
+
+		CampusPaths model = new CampusPaths(graph, buildings);
+		CampusPoint[][] queries = randomQueries(frozen, queryCount(frozen));
+
+		// warm up both searches before timing them
+		for(CampusPoint[] q : queries) {
+			liveDijkstra(graph, q[0], q[1]);
+			model.findPath(q[0], q[1]);
+		}
+		long start = System.nanoTime();
+		double liveSum = 0.0;
+		for(CampusPoint[] q : queries)
+			liveSum = liveSum + liveDijkstra(graph, q[0], q[1]);
+		long live = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		double frozenSum = 0.0;
+		for(CampusPoint[] q : queries)
+			frozenSum = frozenSum + pathLength(model.findPath(q[0], q[1]));
+		long frz = System.nanoTime() - start;
+
+		System.out.printf("  latency: live graph %.1f us/query, frozen snapshot " +
+				"%.1f us/query (%.2fx)%s%n", live / 1e3 / queries.length,
+				frz / 1e3 / queries.length, (double) live / frz,
+				check(liveSum, frozenSum));
+	}
+
+	/**
+	 * Reports the latency of the shortest-path engine and the bytes it allocates per
+	 * query, which should only be the returned path, both as a list of edges and as a
+	 * PathResult, and likewise for distance queries, which should allocate nothing.
+	 */
+	private static void measureEngine(FrozenGraph<CampusPoint, Double> frozen) {
+		PathEngine<CampusPoint, Double> engine = new PathEngine<CampusPoint, Double>(frozen);
+		CampusPoint[][] queries = randomQueries(frozen, queryCount(frozen));
+		for(CampusPoint[] q : queries)
+			engine.findPath(q[0], q[1]);
+
+		long edges = 0;
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		for(CampusPoint[] q : queries) {
+			List<Edge<Double, CampusPoint>> path = engine.findPath(q[0], q[1]);
+			edges = edges + ((path == null) ? 0 : path.size());
+		}
+		long time = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+		System.out.printf("  engine: %.1f us/query, %,d bytes allocated/query " +
+				"(%.1f path edges/query)%n", time / 1e3 / queries.length,
+				bytes / queries.length, (double) edges / queries.length);
+
+		double sum = 0.0;
+		bytes = allocatedBytes();
+		start = System.nanoTime();
+		for(CampusPoint[] q : queries) {
+			int s = frozen.idOf(q[0]);
+			int[] path = engine.findEdges(s, frozen.idOf(q[1]), null);
+			if(path != null)
+				sum = sum + new PathResult(frozen, s, path).getDistance();
+		}
+		time = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+		System.out.printf("  path result: %.1f us/query, %,d bytes allocated/query%n",
+				time / 1e3 / queries.length, bytes / queries.length);
+
+		bytes = allocatedBytes();
+		start = System.nanoTime();
+		for(CampusPoint[] q : queries)
+			sum = sum + engine.distance(q[0], q[1]);
+		time = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+		System.out.printf("  distance only: %.1f us/query, %,d bytes allocated/query%n",
+				time / 1e3 / queries.length, bytes / queries.length);
+	}
+
+	/**
+	 * Reports the time to find the distances from a few random nodes to every node of
+	 * graph with Dijkstra's algorithm, against delta stepping with buckets as wide as
+	 * the average edge weight on increasing numbers of worker threads up to the number
+	 * of processors. The distances must match exactly.
+	 */
+	private static void measureDeltaStepping(FrozenGraph<CampusPoint, Double> frozen) {
+		PathEngine<CampusPoint, Double> engine = new PathEngine<CampusPoint, Double>(frozen);
+		double total = 0.0;
+		int edges = 0;
+		for(int e = 0; e < frozen.edgeCount(); e++) {
+			if(frozen.weight(e) < Double.POSITIVE_INFINITY) {
+				total = total + frozen.weight(e);
+				edges++;
+			}
+		}
+		if(edges == 0)
+			return;
+		double delta = total / edges;
+		CampusPoint[][] sources = randomQueries(frozen, 5);
+		// enough rounds before timing for both searches to be compiled
+		int warmup = Math.max(1, WORK / 10 / frozen.nodeCount());
+		double[][] expected = new double[sources.length][];
+		for(int round = 0; round < warmup; round++) {
+			for(int i = 0; i < sources.length; i++)
+				engine.distancesFrom(sources[i][0]);
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < sources.length; i++)
+			expected[i] = engine.distancesFrom(sources[i][0]);
+		double dijkstra = (System.nanoTime() - start) / 1e6 / sources.length;
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		StringBuilder line = new StringBuilder(String.format("  one to all: Dijkstra " +
+				"%.1f ms; delta stepping (delta %.0f)", dijkstra, delta));
+		boolean same = true;
+		for(int threads = 1; ; threads = Math.min(processors, threads * 2)) {
+			for(int round = 0; round < warmup; round++) {
+				for(int i = 0; i < sources.length; i++)
+					engine.distancesFrom(sources[i][0], delta, threads);
+			}
+			start = System.nanoTime();
+			for(int i = 0; i < sources.length; i++)
+				same = same && Arrays.equals(expected[i], 
+						engine.distancesFrom(sources[i][0], delta, threads));
+			double time = (System.nanoTime() - start) / 1e6 / sources.length;
+			line.append(String.format(" %d thread%s %.1f ms (%.1fx),", threads, 
+					(threads == 1) ? "" : "s", time, dijkstra / time));
+			if(threads == processors)
+				break;
+		}
+		line.setLength(line.length() - 1);
+		if(!same)
+			line.append("  MISMATCH: distances differ from Dijkstra's");
+		System.out.println(line);
+	}
+
+	/**
+	 * Reports the latency of Dijkstra's algorithm on the binary heap against Dial's
+	 * buckets over edge weights rounded to whole feet, from a few random nodes to every
+	 * node and between random pairs, and how much longer the paths found over rounded
+	 * weights are than the shortest.
+	 */
+	private static void measureQuantized(FrozenGraph<CampusPoint, Double> frozen) {
+		DialSearch<CampusPoint, Double> dial = DialSearch.forGraph(frozen, CampusPaths.QUANTUM);
+		if(dial == null) {
+			System.out.println("  quantized: some edge is too long to round, skipped");
+			return;
+		}
+		PathEngine<CampusPoint, Double> engine = new PathEngine<CampusPoint, Double>(frozen);
+		CampusPoint[][] sources = randomQueries(frozen, 5);
+		int warmup = Math.max(1, WORK / 10 / frozen.nodeCount());
+		for(int round = 0; round < warmup; round++) {
+			for(int i = 0; i < sources.length; i++) {
+				engine.distancesFrom(sources[i][0]);
+				dial.distancesFrom(sources[i][0]);
+			}
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < sources.length; i++)
+			engine.distancesFrom(sources[i][0]);
+		double heap = (System.nanoTime() - start) / 1e6 / sources.length;
+		start = System.nanoTime();
+		for(int i = 0; i < sources.length; i++)
+			dial.distancesFrom(sources[i][0]);
+		double buckets = (System.nanoTime() - start) / 1e6 / sources.length;
+
+		CampusPoint[][] queries = randomQueries(frozen, queryCount(frozen));
+		int[][] ids = new int[queries.length][];
+		for(int i = 0; i < queries.length; i++)
+			ids[i] = new int[] {frozen.idOf(queries[i][0]), frozen.idOf(queries[i][1])};
+		for(int[] q : ids) {
+			engine.findEdges(q[0], q[1], null);
+			dial.findEdges(q[0], q[1]);
+		}
+		double shortest = 0.0;
+		start = System.nanoTime();
+		for(int[] q : ids)
+			shortest = shortest + edgeWeight(frozen, engine.findEdges(q[0], q[1], null));
+		long heapQuery = System.nanoTime() - start;
+		double rounded = 0.0;
+		start = System.nanoTime();
+		for(int[] q : ids)
+			rounded = rounded + edgeWeight(frozen, dial.findEdges(q[0], q[1]));
+		long bucketQuery = System.nanoTime() - start;
+		System.out.printf("  quantized: one to all heap %.1f ms, buckets %.1f ms (%.1fx); " +
+				"paths heap %.1f us/query, buckets %.1f us/query (%.1fx), %.4f%% longer%n",
+				heap, buckets, heap / buckets, heapQuery / 1e3 / ids.length,
+				bucketQuery / 1e3 / ids.length, (double) heapQuery / bucketQuery,
+				100 * (rounded - shortest) / Math.max(shortest, Double.MIN_VALUE));
+	}
+
+	/**
+	 * Returns the total weight of the given edges of graph, 0 if edges == null.
+	 */
+	private static double edgeWeight(FrozenGraph<?, ?> graph, int[] edges) {
+		double total = 0.0;
+		if(edges != null) {
+			for(int e : edges)
+				total = total + graph.weight(e);
+		}
+		return total;
+	}
+
+	/**
+	 * Reports the time to build spatial indexes over the points and edges of graph, and
+	 * the latency of queries on them against a scan of every point or edge.
+	 */
+	private static void measureSpatial(FrozenGraph<CampusPoint, Double> frozen) {
+		int n = frozen.nodeCount();
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		double maxX = 0.0;
+		double maxY = 0.0;
+		for(int i = 0; i < n; i++) {
+			xs[i] = frozen.nodeOf(i).getX();
+			ys[i] = frozen.nodeOf(i).getY();
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		long start = System.nanoTime();
+		KdTree tree = new KdTree(xs, ys);
+		long build = System.nanoTime() - start;
+
+		Random rand = new Random(SEED);
+		int count = QUERIES;
+		double[][] queries = new double[count][];
+		for(int i = 0; i < count; i++)
+			queries[i] = new double[] {rand.nextDouble() * maxX, rand.nextDouble() * maxY};
+		// a radius and box side taking in about 100 points on average
+		double radius = Math.sqrt(100 * maxX * maxY / Math.PI / Math.max(1, n));
+		double side = Math.sqrt(100 * maxX * maxY / Math.max(1, n));
+		long[] times = new long[5];
+		long found = 0;
+		for(int round = 0; round < 2; round++) {
+			Arrays.fill(times, 0);
+			found = 0;
+			for(double[] q : queries) {
+				long t0 = System.nanoTime();
+				double best = Double.POSITIVE_INFINITY;
+				for(int i = 0; i < n; i++) {
+					double dx = xs[i] - q[0];
+					double dy = ys[i] - q[1];
+					best = Math.min(best, dx * dx + dy * dy);
+				}
+				long t1 = System.nanoTime();
+				int nearest = tree.nearest(q[0], q[1], 1)[0];
+				long t2 = System.nanoTime();
+				tree.nearest(q[0], q[1], 10);
+				long t3 = System.nanoTime();
+				found = found + tree.within(q[0], q[1], radius).length;
+				long t4 = System.nanoTime();
+				tree.inBox(q[0] - side / 2, q[1] - side / 2, q[0] + side / 2, q[1] + side / 2);
+				long t5 = System.nanoTime();
+				times[0] += t1 - t0;
+				times[1] += t2 - t1;
+				times[2] += t3 - t2;
+				times[3] += t4 - t3;
+				times[4] += t5 - t4;
+				double dx = xs[nearest] - q[0];
+				double dy = ys[nearest] - q[1];
+				if(dx * dx + dy * dy != best)
+					System.out.println("  MISMATCH: nearest point is farther than scan's");
+			}
+		}
+		System.out.printf("  spatial: built in %.1f ms; scan %.1f us, nearest %.2f us, " +
+				"10 nearest %.2f us, radius %.2f us (%.0f points), box %.2f us%n",
+				build / 1e6, times[0] / 1e3 / count, times[1] / 1e3 / count,
+				times[2] / 1e3 / count, times[3] / 1e3 / count, (double) found / count,
+				times[4] / 1e3 / count);
+
+		start = System.nanoTime();
+		SegmentIndex segments = new SegmentIndex(frozen, xs, ys);
+		build = System.nanoTime() - start;
+		for(int round = 0; round < 2; round++) {
+			Arrays.fill(times, 0);
+			for(double[] q : queries) {
+				long t0 = System.nanoTime();
+				double best = Double.POSITIVE_INFINITY;
+				for(int e = 0; e < frozen.edgeCount(); e++)
+					best = Math.min(best, segmentDistance(frozen, xs, ys, e, q[0], q[1]));
+				long t1 = System.nanoTime();
+				int e = segments.nearest(q[0], q[1]);
+				long t2 = System.nanoTime();
+				times[0] += t1 - t0;
+				times[1] += t2 - t1;
+				if(!check(best, segmentDistance(frozen, xs, ys, e, q[0], q[1])).isEmpty())
+					System.out.println("  MISMATCH: nearest segment is farther than scan's");
+			}
+		}
+		System.out.printf("  segments: built in %.1f ms; scan %.1f us, nearest %.2f us%n",
+				build / 1e6, times[0] / 1e3 / count, times[1] / 1e3 / count);
+	}
+
+	/**
+	 * Returns the distance from (x, y) to the segment of edge e.
+	 */
+	private static double segmentDistance(FrozenGraph<CampusPoint, Double> frozen, 
+			double[] xs, double[] ys, int e, double x, double y) {
+		int s = frozen.source(e);
+		int t = frozen.target(e);
+		double dx = xs[t] - xs[s];
+		double dy = ys[t] - ys[s];
+		double len2 = dx * dx + dy * dy;
+		double f = (len2 == 0) ? 0.0 : ((x - xs[s]) * dx + (y - ys[s]) * dy) / len2;
+		f = Math.max(0.0, Math.min(1.0, f));
+		return Math.hypot(xs[s] + f * dx - x, ys[s] + f * dy - y);
+	}
+
+	/**
+	 * Compares the latency and settled-node counts of every routing mode of model, and
+	 * the speedup of each over Dijkstra's algorithm.
+	 */
+	private static void compareModes(CampusPaths model) {
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : model)
+			points.add(p);
+		Random rand = new Random(SEED);
+		int count = Math.max(20, Math.min(QUERIES, WORK / Math.max(1, points.size())));
+		CampusPoint[][] queries = new CampusPoint[count][];
+		for(int i = 0; i < count; i++) {
+			queries[i] = new CampusPoint[] {points.get(rand.nextInt(points.size())),
+					points.get(rand.nextInt(points.size()))};
+		}
+
+		double expected = Double.NaN;
+		long dijkstra = 0;
+		for(CampusPaths.RoutingMode mode : CampusPaths.RoutingMode.values()) {
+			model.setRoutingMode(mode);
+			for(CampusPoint[] q : queries)
+				model.findPath(q[0], q[1]);
+			long settled = 0;
+			double sum = 0.0;
+			long start = System.nanoTime();
+			for(CampusPoint[] q : queries) {
+				sum = sum + pathLength(model.findPath(q[0], q[1]));
+				settled = settled + model.getSettledCount();
+			}
+			long time = System.nanoTime() - start;
+			if(Double.isNaN(expected)) {
+				expected = sum;
+				dijkstra = time;
+			}
+			// paths over rounded lengths are only close to shortest
+			String result = (model.getEffectiveRoutingMode() == 
+					CampusPaths.RoutingMode.QUANTIZED) ? String.format(", %.4f%% longer",
+					100 * (sum - expected) / expected) : check(expected, sum);
+			System.out.printf("  %-13s %9.1f us/query, %9.1f settled/query, " +
+					"%6.1fx%s%n", model.getEffectiveRoutingMode() + ":", time / 1e3 / count,
+					(double) settled / count, (double) dijkstra / time, result);
+		}
+		model.setRoutingMode(CampusPaths.RoutingMode.DIJKSTRA);
+	}
+
+	/**
+	 * Compares the latency of finding routes from one point to many with a single
+	 * search against one Dijkstra search per destination.
+	 */
+	private static void measureOneToMany(CampusPaths model) {
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : model)
+			points.add(p);
+		Random rand = new Random(SEED);
+		int count = Math.max(5, Math.min(QUERIES, WORK / Math.max(1, points.size())) / 10);
+		CampusPoint[] starts = new CampusPoint[count];
+		List<List<CampusPoint>> dests = new ArrayList<List<CampusPoint>>();
+		for(int i = 0; i < count; i++) {
+			starts[i] = points.get(rand.nextInt(points.size()));
+			List<CampusPoint> group = new ArrayList<CampusPoint>();
+			for(int j = 0; j < DESTINATIONS; j++)
+				group.add(points.get(rand.nextInt(points.size())));
+			dests.add(group);
+		}
+		model.setRoutingMode(CampusPaths.RoutingMode.DIJKSTRA);
+		for(int i = 0; i < count; i++) {
+			model.findPaths(starts[i], dests.get(i));
+			for(CampusPoint dest : dests.get(i))
+				model.findPath(starts[i], dest);
+		}
+
+		long start = System.nanoTime();
+		double expected = 0.0;
+		for(int i = 0; i < count; i++) {
+			for(CampusPoint dest : dests.get(i))
+				expected = expected + pathLength(model.findPath(starts[i], dest));
+		}
+		long separate = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		double sum = 0.0;
+		for(int i = 0; i < count; i++) {
+			Map<CampusPoint, CampusPaths.Route> routes = model.findPaths(starts[i],
+					dests.get(i));
+			for(CampusPoint dest : dests.get(i)) {
+				CampusPaths.Route route = routes.get(dest);
+				sum = sum + ((route == null) ? Double.POSITIVE_INFINITY : route.getDistance());
+			}
+		}
+		long single = System.nanoTime() - start;
+		System.out.printf("  one to %d: separate %.1f us/query, single search %.1f " +
+				"us/query (%.1fx)%s%n", DESTINATIONS, separate / 1e3 / count,
+				single / 1e3 / count, (double) separate / single, check(expected, sum));
+	}
+
+	/**
+	 * Reports the latency of finding everything within a few walking times of random
+	 * points, against a search of the whole graph.
+	 */
+	private static void measureReachable(CampusPaths model) {
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : model)
+			points.add(p);
+		Random rand = new Random(SEED);
+		int count = Math.max(20, Math.min(QUERIES, WORK / Math.max(1, points.size())));
+		CampusPoint[] starts = new CampusPoint[count];
+		for(int i = 0; i < count; i++)
+			starts[i] = points.get(rand.nextInt(points.size()));
+		StringBuilder line = new StringBuilder("  reachable:");
+		for(double minutes : new double[] {2, 5, 10, Double.POSITIVE_INFINITY}) {
+			for(CampusPoint s : starts)
+				model.findReachableInTime(s, minutes * 60);
+			long reached = 0;
+			long start = System.nanoTime();
+			for(CampusPoint s : starts)
+				reached = reached + model.findReachableInTime(s, minutes * 60).size();
+			long time = System.nanoTime() - start;
+			line.append(String.format(" %s %.1f us (%.0f points),", 
+					Double.isInfinite(minutes) ? "all" : (int) minutes + " min", 
+					time / 1e3 / count, (double) reached / count));
+		}
+		line.setLength(line.length() - 1);
+		System.out.println(line);
+	}
+
+	/**
+	 * Reports the time to find a table of distances between up to TABLE_SIZE buildings,
+	 * with one search from each source against the bucket method on the contraction
+	 * hierarchy, on one worker thread and on one per processor. The tables must agree.
+	 */
+	private static void measureTable(CampusPaths model, 
+			ContractionHierarchy<CampusPoint, Double> hierarchy) {
+		List<CampusPoint> buildings = model.getBuildings();
+		FrozenGraph<CampusPoint, Double> frozen = hierarchy.getGraph();
+		int size = Math.min(TABLE_SIZE, buildings.size());
+		if(size == 0)
+			return;
+		int[] ids = new int[size];
+		for(int i = 0; i < size; i++)
+			ids[i] = frozen.idOf(buildings.get(i));
+		PathEngine<CampusPoint, Double> engine = new PathEngine<CampusPoint, Double>(frozen);
+		int processors = Runtime.getRuntime().availableProcessors();
+
+		String line = String.format("  table %dx%d:", size, size);
+		double expected = 0.0;
+		for(int k = 0; k < 4; k++) {
+			// searches from each source, then buckets; each on one thread, then on all
+			ForkJoinPool pool = (k % 2 == 0) ? null : new ForkJoinPool(processors);
+			double[][] table = null;
+			long time = 0;
+			for(int round = 0; round < 2; round++) {
+				long start = System.nanoTime();
+				table = (k < 2) ? engine.distanceTable(ids, ids, pool)
+						: hierarchy.distanceTable(ids, ids, pool);
+				time = System.nanoTime() - start;
+			}
+			if(pool != null)
+				pool.shutdown();
+			double sum = 0.0;
+			for(double[] row : table) {
+				for(double d : row) {
+					if(d < Double.POSITIVE_INFINITY)
+						sum = sum + d;
+				}
+			}
+			if(k == 0)
+				expected = sum;
+			int threads = (k % 2 == 0) ? 1 : processors;
+			line = line + String.format(" %s %d thread%s %.1f ms%s,", (k < 2) ? "per source"
+					: "buckets", threads, (threads == 1) ? "" : "s", time / 1e6,
+					check(expected, sum));
+		}
+		System.out.println(line.substring(0, line.length() - 1));
+	}
+
+	/**
+	 * Reports the throughput of batches of random routes found in parallel, for
+	 * increasing numbers of worker threads up to the number of processors.
+	 */
+	private static void measureBatch(CampusPaths model) {
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : model)
+			points.add(p);
+		Random rand = new Random(SEED);
+		int count = Math.max(200, 
+				Math.min(20 * QUERIES, 20 * WORK / Math.max(1, points.size())));
+		List<CampusPoint> starts = new ArrayList<CampusPoint>();
+		List<CampusPoint> dests = new ArrayList<CampusPoint>();
+		for(int i = 0; i < count; i++) {
+			starts.add(points.get(rand.nextInt(points.size())));
+			dests.add(points.get(rand.nextInt(points.size())));
+		}
+		model.setRoutingMode(CampusPaths.RoutingMode.DIJKSTRA);
+		int processors = Runtime.getRuntime().availableProcessors();
+		StringBuilder line = new StringBuilder("  batch of " + count + ":");
+		double single = 0.0;
+		for(int threads = 1; ; threads = Math.min(processors, threads * 2)) {
+			model.findPathsBatch(starts, dests, threads, CampusPaths.BATCH_CHUNK);
+			long start = System.nanoTime();
+			model.findPathsBatch(starts, dests, threads, CampusPaths.BATCH_CHUNK);
+			double rate = count / ((System.nanoTime() - start) / 1e9);
+			if(threads == 1)
+				single = rate;
+			line.append(String.format(" %d thread%s %,.0f routes/s (%.1fx),", threads, 
+					(threads == 1) ? "" : "s", rate, rate / single));
+			if(threads == processors)
+				break;
+		}
+		line.setLength(line.length() - 1);
+		System.out.println(line);
+	}
+
+	/**
+	 * Reports the time to write out directions along routes between random buildings,
+	 * one line per step with getDirection as the text interface used to, against the
+	 * precomputed headings with steps in the same direction merged. Only the writing
+	 * is timed; the routes are found beforehand.
+	 */
+	private static void measureDirections(CampusPaths model) {
+		List<CampusPoint> buildings = model.getBuildings();
+		if(buildings.isEmpty())
+			return;
+		Random rand = new Random(SEED);
+		List<PathResult> routes = new ArrayList<PathResult>();
+		for(int i = 0; i < QUERIES; i++) {
+			PathResult route = model.findRoute(buildings.get(rand.nextInt(buildings.size())),
+					buildings.get(rand.nextInt(buildings.size())));
+			if(route != null)
+				routes.add(route);
+		}
+		if(routes.isEmpty())
+			return;
+
+		// the first pass of each only warms up
+		writeDirections(model, routes, false);
+		long[] perStep = writeDirections(model, routes, false);
+		writeDirections(model, routes, true);
+		long[] merged = writeDirections(model, routes, true);
+		System.out.printf("  directions: per step %.1f us/route (%.1f lines, %,d chars), " +
+				"merged %.1f us/route (%.1f lines, %,d chars)%n", 
+				perStep[0] / 1e3 / routes.size(), (double) perStep[1] / routes.size(),
+				perStep[2] / routes.size(), merged[0] / 1e3 / routes.size(),
+				(double) merged[1] / routes.size(), merged[2] / routes.size());
+	}
+
+	/**
+	 * Writes out directions along each route, either a line per step built the way the
+	 * text interface used to build them or merged legs from the precomputed headings.
+	 *
+	 * @return the time taken, the number of lines and the number of characters written
+	 */
+	private static long[] writeDirections(CampusPaths model, List<PathResult> routes,
+			boolean merge) {
+		long lines = 0;
+		long chars = 0;
+		long start = System.nanoTime();
+		for(PathResult route : routes) {
+			String text;
+			if(merge) {
+				text = model.describe(route, true);
+			} else {
+				StringBuilder steps = new StringBuilder();
+				for(int i = 0; i < route.size(); i++) {
+					CampusPoint next = route.getPoint(i + 1);
+					steps.append("\tWalk " + Math.round(route.getStepDistance(i)) + 
+							" feet " + model.getDirection(route.getPoint(i), next) + 
+							" to " + next + "\n");
+				}
+				steps.append("Total distance: " + Math.round(route.getDistance()) + 
+						" feet\n");
+				text = steps.toString();
+			}
+			for(int i = 0; i < text.length(); i++) {
+				if(text.charAt(i) == '\n')
+					lines++;
+			}
+			chars = chars + text.length();
+		}
+		return new long[] {System.nanoTime() - start, lines, chars};
+	}
+
+	/**
+	 * Reports the time to build, save and load the building matrix of model, and the
+	 * latency of routing between buildings with it against Dijkstra's algorithm.
+	 */
+	private static boolean measureMatrix(CampusPaths model) throws IOException {
+		List<CampusPoint> buildings = model.getBuildings();
+		int nodes = 0;
+		for(Iterator<CampusPoint> it = model.iterator(); it.hasNext(); it.next())
+			nodes++;
+		if((long) buildings.size() * nodes > MATRIX_LIMIT) {
+			System.out.printf("  matrix: skipped, %,d buildings x %,d nodes is too large%n",
+					buildings.size(), nodes);
+			return false;
+		}
+		Random rand = new Random(SEED);
+		int count = Math.max(20, Math.min(QUERIES, WORK / Math.max(1, nodes)));
+		CampusPoint[][] queries = new CampusPoint[count][];
+		for(int i = 0; i < count; i++) {
+			queries[i] = new CampusPoint[] {buildings.get(rand.nextInt(buildings.size())),
+					buildings.get(rand.nextInt(buildings.size()))};
+		}
+		model.setRoutingMode(CampusPaths.RoutingMode.DIJKSTRA);
+		for(CampusPoint[] q : queries)
+			model.findPath(q[0], q[1]);
+		long start = System.nanoTime();
+		double expected = 0.0;
+		for(CampusPoint[] q : queries)
+			expected = expected + pathLength(model.findPath(q[0], q[1]));
+		long search = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		model.buildBuildingMatrix();
+		long build = System.nanoTime() - start;
+		File file = File.createTempFile("matrix", ".bin");
+		try {
+			start = System.nanoTime();
+			model.saveBuildingMatrix(file.getPath());
+			long save = System.nanoTime() - start;
+			start = System.nanoTime();
+			model.loadBuildingMatrix(file.getPath());
+			long load = System.nanoTime() - start;
+			System.out.printf("  matrix: %d buildings, built in %.1f ms, %,d byte file " +
+					"saved in %.1f ms and loaded in %.1f ms%n", buildings.size(),
+					build / 1e6, file.length(), save / 1e6, load / 1e6);
+		} finally {
+			file.delete();
+		}
+
+		for(CampusPoint[] q : queries)
+			model.findPath(q[0], q[1]);
+		start = System.nanoTime();
+		double sum = 0.0;
+		for(CampusPoint[] q : queries)
+			sum = sum + pathLength(model.findPath(q[0], q[1]));
+		long lookup = System.nanoTime() - start;
+		System.out.printf("  building pairs: DIJKSTRA %.1f us/query, matrix %.1f us/query " +
+				"(%.1fx)%s%n", search / 1e3 / count, lookup / 1e3 / count,
+				(double) search / lookup, check(expected, sum));
+		return true;
+	}
+
+	/**
+	 * Reports the time to close and then reopen single edges on shortest paths between
+	 * buildings, with the building matrix repaired in place, against rebuilding the
+	 * matrix. Once every edge is open again the matrix must give the distances it gave
+	 * before.
+	 *
+	 * @requires the building matrix of model has been built
+	 */
+	private static void measureClosures(CampusPaths model) {
+		List<CampusPoint> buildings = model.getBuildings();
+		double expected = 0.0;
+		for(CampusPoint s : buildings) {
+			for(CampusPoint t : buildings)
+				expected = expected + model.distance(s, t);
+		}
+		Random rand = new Random(SEED);
+		List<CampusPoint[]> closures = new ArrayList<CampusPoint[]>();
+		for(int tries = 0; tries < 1000 && closures.size() < CLOSURES; tries++) {
+			CampusPoint s = buildings.get(rand.nextInt(buildings.size()));
+			List<Edge<Double, CampusPoint>> path = 
+					model.findPath(s, buildings.get(rand.nextInt(buildings.size())));
+			if(path == null || path.isEmpty())
+				continue;
+			int k = rand.nextInt(path.size());
+			CampusPoint from = (k == 0) ? s : path.get(k - 1).getDestination();
+			closures.add(new CampusPoint[] {from, path.get(k).getDestination()});
+		}
+		if(closures.isEmpty())
+			return;
+
+		long start = System.nanoTime();
+		for(CampusPoint[] c : closures)
+			model.closeEdge(c[0], c[1]);
+		long close = System.nanoTime() - start;
+		start = System.nanoTime();
+		for(int i = closures.size() - 1; i >= 0; i--)
+			model.reopenEdge(closures.get(i)[0], closures.get(i)[1]);
+		long reopen = System.nanoTime() - start;
+		double sum = 0.0;
+		for(CampusPoint s : buildings) {
+			for(CampusPoint t : buildings)
+				sum = sum + model.distance(s, t);
+		}
+		start = System.nanoTime();
+		model.buildBuildingMatrix();
+		long rebuild = System.nanoTime() - start;
+		double each = (double) (close + reopen) / (2 * closures.size());
+		System.out.printf("  edge closures: close %.2f ms, reopen %.2f ms per edge " +
+				"with the matrix repaired, against %.1f ms to rebuild it (%.0fx)%s%n",
+				close / 1e6 / closures.size(), reopen / 1e6 / closures.size(), 
+				rebuild / 1e6, rebuild / each, check(expected, sum));
+	}
+
+	/**
+	 * Creates a side x side grid of campus points with both-way edges between
+	 * neighbours, weighted by at least their straight-line distance. Roughly one point
+	 * in fifty is a building, and a few edges are removed so the grid is irregular.
+	 *
+	 * @param side The number of points along each side of the grid
+	 * @param buildings The list that will contain the buildings of the grid
+	 * @modifies buildings
+	 * @return the grid graph
+	 */
+	static Graph<CampusPoint, Double> syntheticGrid(int side, List<CampusPoint> buildings) {
+		Random rand = new Random(SEED);
+		Graph<CampusPoint, Double> graph = new Graph<CampusPoint, Double>();
+		CampusPoint[] points = new CampusPoint[side * side];
+		for(int i = 0; i < points.length; i++) {
+			double x = (i % side) * 100 + 40 * rand.nextDouble();
+			double y = (i / side) * 100 + 40 * rand.nextDouble();
+			if(rand.nextInt(50) == 0) {
+				points[i] = new CampusPoint("B" + i, "Building " + i, x, y);
+				buildings.add(points[i]);
+			} else {
+				points[i] = new CampusPoint(x, y);
+			}
+			graph.addNode(points[i]);
+		}
+		for(int i = 0; i < points.length; i++) {
+			if(i % side + 1 < side && rand.nextInt(10) != 0)
+				connect(graph, points[i], points[i + 1], rand);
+			if(i + side < points.length && rand.nextInt(10) != 0)
+				connect(graph, points[i], points[i + side], rand);
+		}
+		return graph;
+	}
+
+	/**
+	 * Adds both-way edges between two points, weighted by their straight-line distance
+	 * stretched by up to 30%.
+	 */
+	private static void connect(Graph<CampusPoint, Double> graph, CampusPoint a,
+			CampusPoint b, Random rand) {
+		double dx = a.getX() - b.getX();
+		double dy = a.getY() - b.getY();
+		double dist = Math.sqrt(dx * dx + dy * dy) * (1.0 + 0.3 * rand.nextDouble());
+		graph.addEdge(a, b, dist);
+		graph.addEdge(b, a, dist);
+	}
+
+	/**
+	 * Returns count random (start, dest) pairs of nodes in graph.
+	 */
+	static CampusPoint[][] randomQueries(FrozenGraph<CampusPoint, Double> graph,
+			int count) {
+		Random rand = new Random(SEED);
+		CampusPoint[][] queries = new CampusPoint[count][];
+		for(int i = 0; i < count; i++) {
+			queries[i] = new CampusPoint[] {
+					graph.nodeOf(rand.nextInt(graph.nodeCount())),
+					graph.nodeOf(rand.nextInt(graph.nodeCount()))};
+		}
+		return queries;
+	}
+
+	/**
+	 * Returns the number of random queries to time on graph.
+	 */
+	static int queryCount(FrozenGraph<CampusPoint, Double> graph) {
+		return Math.max(20, Math.min(QUERIES, WORK / Math.max(1, graph.nodeCount())));
+	}
+
+	/**
+	 * Dijkstra's algorithm directly over the HashMap-backed graph, as a baseline.
+	 *
+	 * @return the length of the shortest path from start to dest, or infinity
+	 */
+	private static double liveDijkstra(Graph<CampusPoint, Double> graph,
+			CampusPoint start, CampusPoint dest) {
+		final Map<CampusPoint, Double> dist = new HashMap<CampusPoint, Double>();
+		PriorityQueue<Edge<Double, CampusPoint>> queue = new PriorityQueue<
+				Edge<Double, CampusPoint>>(new Comparator<Edge<Double, CampusPoint>>() {
+					@Override
+					public int compare(Edge<Double, CampusPoint> a,
+							Edge<Double, CampusPoint> b) {
+						return a.getLabel().compareTo(b.getLabel());
+					}
+				});
+		dist.put(start, 0.0);
+		queue.add(new Edge<Double, CampusPoint>(0.0, start));
+		while(!queue.isEmpty()) {
+			Edge<Double, CampusPoint> top = queue.poll();
+			CampusPoint u = top.getDestination();
+			if(top.getLabel() > dist.get(u))
+				continue;
+			if(u.equals(dest))
+				return top.getLabel();
+			for(Edge<Double, CampusPoint> edge : graph.getEdges(u)) {
+				double d = top.getLabel() + edge.getLabel();
+				Double old = dist.get(edge.getDestination());
+				if(old == null || d < old) {
+					dist.put(edge.getDestination(), d);
+					queue.add(new Edge<Double, CampusPoint>(d, edge.getDestination()));
+				}
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Returns the total length of path, or infinity if path is null.
+	 */
+	static double pathLength(List<Edge<Double, CampusPoint>> path) {
+		if(path == null)
+			return Double.POSITIVE_INFINITY;
+		double total = 0.0;
+		for(Edge<Double, CampusPoint> edge : path)
+			total = total + edge.getLabel();
+		return total;
+	}
+
+	/**
+	 * Returns a warning if two sums of path lengths disagree, or "" if they match.
+	 */
+	static String check(double expected, double actual) {
+		if(expected == actual || Math.abs(expected - actual) <= 1e-6 * Math.abs(expected))
+			return "";
+		return "  MISMATCH: " + expected + " vs " + actual;
+	}
+
+	/**
+	 * Returns the number of bytes allocated so far by the calling thread, or 0 if the
+	 * JVM cannot tell.
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+					Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the number of bytes in use on the heap after a garbage collection.
+	 */
+	static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,342 @@
+package hw8;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+/**
+ * SearchState holds the per-node arrays of one shortest-path search over int node ids:
+ * tentative distances, the edge each node was reached by, and reached/settled marks.
+ * Marks are stamped with an epoch counter, so starting a new search only bumps the
+ * epoch instead of clearing or reallocating the arrays. Each thread keeps its own
+ * states, obtained through local(). A thread that lives for a single query, such as a
+ * virtual thread, borrows a set of states from a shared pool instead, so that its
+ * query reuses the arrays of earlier ones. A thread may also name a Future whose
+ * cancellation stops the searches it runs.
+ *
+ * @specfield dist    : map from node id to double // tentative distance of reached nodes
+ * @specfield parent  : map from node id to int    // edge a reached node was reached by
+ * @specfield reached : set of node ids
+ * @specfield settled : set of node ids            // subset of reached
+ * @specfield order   : sequence of node ids        // settled, in the order settled
+ *
+ * @author Logan Ricord
+ */
+class SearchState {
+
+	/** Number of states kept per thread (one per search direction) */
+	static final int SLOTS = 2;
+
+	/** The states of each thread, created on first use */
+	private static final ThreadLocal<SearchState[]> LOCAL = new ThreadLocal<SearchState[]>() {
+		@Override
+		protected SearchState[] initialValue() {
+			return new SearchState[SLOTS];
+		}
+	};
+
+	/** Most sets of states kept in the shared pool */
+	private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+	/** Sets of states lent to threads by borrow and given back by release */
+	private static final BlockingQueue<SearchState[]> POOL = 
+			new ArrayBlockingQueue<SearchState[]>(POOL_SIZE);
+
+	/** Settles between checks for cancellation, less one; a power of two less one */
+	private static final int CANCEL_CHECK_MASK = 1023;
+
+	/** The Future whose cancellation stops each thread's searches, if any */
+	private static final ThreadLocal<Future<?>> CANCEL = new ThreadLocal<Future<?>>();
+
+	/** Nodes settled by the last query of each thread, over all of its states */
+	private static final ThreadLocal<int[]> LAST_SETTLED = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+
+	/** Tentative distance of each node, valid while reached */
+	double[] dist;
+
+	/** Edge index each node was reached by, -1 for a source, valid while reached */
+	int[] parent;
+
+	/** reached[v] = epoch iff v is reached in the current search */
+	private int[] reached;
+
+	/** settled[v] = epoch iff v is settled in the current search */
+	private int[] settled;
+
+	/** Stamp of the current search */
+	private int epoch;
+
+	/** Queue of reached but unsettled nodes, keyed by priority */
+	final IndexedHeap heap;
+
+	/** Number of nodes settled in the current search */
+	int settledCount;
+
+	/** The Future whose cancellation stops the current search, or null */
+	private Future<?> cancel;
+
+	/** Ids of the settled nodes in the order they were settled, valid below settledCount */
+	int[] order;
+
+	// Abstraction Function:
+	//		AF(r) = SearchState such that
+	//			reached = {v | r.reached[v] = r.epoch}
+	//			settled = {v | r.settled[v] = r.epoch}
+	//			dist(v) = r.dist[v] and parent(v) = r.parent[v] for v in reached
+	//			order = r.order[0 .. r.settledCount - 1]
+	//
+	// Representation Invariant:
+	//		dist, parent, reached, settled and order have length heap.capacity() &&
+	//		epoch > 0 && every id in heap is reached and not settled
+
+	/**
+	 * Constructs a SearchState for graphs of up to capacity nodes.
+	 *
+	 * @param capacity The number of nodes this can hold
+	 * @effects constructs a new SearchState with nothing reached
+	 */
+	SearchState(int capacity) {
+		dist = new double[capacity];
+		parent = new int[capacity];
+		reached = new int[capacity];
+		settled = new int[capacity];
+		order = new int[capacity];
+		heap = new IndexedHeap(capacity);
+		epoch = 1;
+	}
+
+	/**
+	 * Returns the calling thread's state in the given slot, reset for a new search over
+	 * a graph with n nodes. The state is only reallocated when n exceeds its capacity.
+	 *
+	 * @param slot Which of the thread's states to return
+	 * @param n The number of nodes in the graph to be searched
+	 * @requires 0 <= slot < SLOTS && n >= 0
+	 * @return the calling thread's state in slot, with nothing reached
+	 */
+	static SearchState local(int slot, int n) {
+		SearchState[] states = LOCAL.get();
+		SearchState state = states[slot];
+		if(state == null || state.capacity() < n) {
+			state = new SearchState(n);
+			states[slot] = state;
+		} else {
+			state.reset();
+		}
+		state.cancel = CANCEL.get();
+		return state;
+	}
+
+	/**
+	 * Makes local() return states from a set borrowed from the shared pool until
+	 * release() is called, in place of the calling thread's own set. Every borrow must
+	 * be followed by a release on the same thread.
+	 *
+	 * @modifies the calling thread's states
+	 * @effects lends the calling thread a set of states, new if the pool is empty
+	 */
+	static void borrow() {
+		SearchState[] states = POOL.poll();
+		LOCAL.set((states == null) ? new SearchState[SLOTS] : states);
+	}
+
+	/**
+	 * Gives the set of states lent by borrow() back to the shared pool, or drops it if
+	 * the pool is full.
+	 *
+	 * @modifies the calling thread's states
+	 * @effects the calling thread no longer uses the borrowed set
+	 */
+	static void release() {
+		SearchState[] states = LOCAL.get();
+		LOCAL.remove();
+		POOL.offer(states);
+	}
+
+	/**
+	 * Makes the searches the calling thread runs from now on stop once the given Future
+	 * is cancelled, by throwing CancellationException from settleNext.
+	 *
+	 * @param future The Future whose cancellation stops the thread's searches, or null
+	 * 		  for searches that always run to the end
+	 */
+	static void cancelWith(Future<?> future) {
+		if(future == null)
+			CANCEL.remove();
+		else
+			CANCEL.set(future);
+	}
+
+	/**
+	 * Records the number of nodes settled by the calling thread's last query.
+	 *
+	 * @param count The number of nodes settled by the query
+	 */
+	static void recordSettled(int count) {
+		LAST_SETTLED.get()[0] = count;
+	}
+
+	/**
+	 * Returns the number of nodes settled by the calling thread's last query.
+	 *
+	 * @return the number of nodes settled by the calling thread's last query
+	 */
+	static int lastSettledCount() {
+		return LAST_SETTLED.get()[0];
+	}
+
+	/**
+	 * Returns the number of nodes this can hold.
+	 *
+	 * @return the capacity of this
+	 */
+	int capacity() {
+		return dist.length;
+	}
+
+	/**
+	 * Forgets the current search.
+	 *
+	 * @modifies this
+	 * @effects empties reached, settled and the heap
+	 */
+	void reset() {
+		heap.clear();
+		settledCount = 0;
+		epoch++;
+		if(epoch == Integer.MAX_VALUE) {
+			// stamps are about to wrap, so clear them once
+			Arrays.fill(reached, 0);
+			Arrays.fill(settled, 0);
+			epoch = 1;
+		}
+	}
+
+	/**
+	 * Adds a source node at the given distance.
+	 *
+	 * @param v The id of the source
+	 * @param d The distance of the source
+	 * @modifies this
+	 * @effects reaches v at distance d with no parent edge, and queues it
+	 */
+	void addSource(int v, double d) {
+		improve(v, d, -1, d);
+	}
+
+	/**
+	 * Reaches v at distance d through the given edge if that improves on its current
+	 * distance, queueing it with the given priority.
+	 *
+	 * @param v The id of the node
+	 * @param d The new distance of v
+	 * @param edge The edge v is reached by
+	 * @param priority The heap key of v (d, plus any heuristic estimate)
+	 * @requires v is not settled
+	 * @modifies this
+	 * @effects if v is not reached or d < dist(v), sets dist(v) = d and
+	 * 			parent(v) = edge, and queues v with the given priority
+	 * @return true iff v was improved
+	 */
+	boolean improve(int v, double d, int edge, double priority) {
+		if(!reach(v, d, edge))
+			return false;
+		heap.insertOrDecrease(v, priority);
+		return true;
+	}
+
+	/**
+	 * Reaches v at distance d through the given edge if that improves on its current
+	 * distance, without queueing it, for searches that keep their own queue.
+	 *
+	 * @param v The id of the node
+	 * @param d The new distance of v
+	 * @param edge The edge v is reached by
+	 * @requires v is not settled
+	 * @modifies this
+	 * @effects if v is not reached or d < dist(v), sets dist(v) = d and
+	 * 			parent(v) = edge
+	 * @return true iff v was improved
+	 */
+	boolean reach(int v, double d, int edge) {
+		if(reached[v] == epoch && d >= dist[v])
+			return false;
+		reached[v] = epoch;
+		dist[v] = d;
+		parent[v] = edge;
+		return true;
+	}
+
+	/**
+	 * Removes and settles the queued node with the smallest priority.
+	 *
+	 * @requires !heap.isEmpty()
+	 * @modifies this
+	 * @effects settles and dequeues the node with the smallest priority, appending it
+	 * 			to order
+	 * @return the id of the settled node
+	 * @throws CancellationException if this search was started under a Future that has
+	 * 		   since been cancelled; checked once every 1024 settled nodes
+	 */
+	int settleNext() throws CancellationException {
+		int u = heap.poll();
+		settle(u);
+		return u;
+	}
+
+	/**
+	 * Settles the given node, taken from a queue other than the heap.
+	 *
+	 * @param u The id of the node
+	 * @requires u is reached and not settled, and not in the heap
+	 * @modifies this
+	 * @effects settles u, appending it to order
+	 * @throws CancellationException if this search was started under a Future that has
+	 * 		   since been cancelled; checked once every 1024 settled nodes
+	 */
+	void settle(int u) throws CancellationException {
+		if(cancel != null && (settledCount & CANCEL_CHECK_MASK) == 0
+				&& cancel.isCancelled())
+			throw new CancellationException("search cancelled");
+		settled[u] = epoch;
+		order[settledCount] = u;
+		settledCount++;
+	}
+
+	/**
+	 * Returns true if v has been reached in the current search.
+	 *
+	 * @param v The id of the node
+	 * @return true iff v is reached
+	 */
+	boolean isReached(int v) {
+		return reached[v] == epoch;
+	}
+
+	/**
+	 * Returns true if v has been settled in the current search.
+	 *
+	 * @param v The id of the node
+	 * @return true iff v is settled
+	 */
+	boolean isSettled(int v) {
+		return settled[v] == epoch;
+	}
+
+	/**
+	 * Returns the tentative distance of v, or infinity if v has not been reached.
+	 *
+	 * @param v The id of the node
+	 * @return the distance of v, or infinity if v is not reached
+	 */
+	double distance(int v) {
+		return (reached[v] == epoch) ? dist[v] : Double.POSITIVE_INFINITY;
+	}
+}
@@ -0,0 +1,187 @@
+package hw8;
+
+import hw5.FrozenGraph;
+
+/**
+ * SegmentIndex finds the edge of a FrozenGraph whose straight segment, from the
+ * location of its source to the location of its target, passes nearest to a given
+ * point. The segments are kept in a KdTree by midpoint, and each subtree also records
+ * how far its segments reach from their midpoints, so whole subtrees can be skipped
+ * when no segment in them can come closer than the best one found. Edges of infinite
+ * weight are closed and never found.
+ *
+ * @specfield graph    : FrozenGraph // the graph whose edges are indexed
+ * @specfield segments : map from edge to ((x, y), (x, y)) // locations of its ends
+ *
+ * @author Logan Ricord
+ */
+class SegmentIndex {
+
+	/** The graph whose edges are indexed */
+	private final FrozenGraph<?, ?> graph;
+
+	/** Coordinates of each node */
+	private final double[] xs;
+	private final double[] ys;
+
+	/** Tree over the midpoints of the segments, numbered by edge */
+	private final KdTree tree;
+
+	/** reach[i] = largest half-length of a segment in the subtree split at position i */
+	private final double[] reach;
+
+	// Abstraction Function:
+	//		AF(r) = SegmentIndex such that graph = r.graph and segments(e) =
+	//				((r.xs[s], r.ys[s]), (r.xs[t], r.ys[t])) with s = graph.source(e) and
+	//				t = graph.target(e)
+	//
+	// Representation Invariant:
+	//		tree holds the midpoint of each edge of graph && reach.length = tree.size() &&
+	//		reach[i] is the largest half-length over the subtree split at position i
+
+	/**
+	 * Builds an index over the edges of the given graph.
+	 *
+	 * @param graph The graph whose edges are indexed
+	 * @param xs The x coordinate of each node
+	 * @param ys The y coordinate of each node
+	 * @requires xs and ys hold the coordinates of each node of graph and are not changed
+	 * 			 afterward
+	 */
+	SegmentIndex(FrozenGraph<?, ?> graph, double[] xs, double[] ys) {
+		this.graph = graph;
+		this.xs = xs;
+		this.ys = ys;
+		int m = graph.edgeCount();
+		double[] mx = new double[m];
+		double[] my = new double[m];
+		double[] half = new double[m];
+		for(int e = 0; e < m; e++) {
+			int s = graph.source(e);
+			int t = graph.target(e);
+			mx[e] = (xs[s] + xs[t]) / 2;
+			my[e] = (ys[s] + ys[t]) / 2;
+			half[e] = Math.hypot(xs[t] - xs[s], ys[t] - ys[s]) / 2;
+		}
+		tree = new KdTree(mx, my);
+		reach = new double[m];
+		fillReach(half, 0, m);
+	}
+
+	/**
+	 * Creates an index over the given graph sharing the tree of the given index.
+	 */
+	private SegmentIndex(SegmentIndex index, FrozenGraph<?, ?> graph) {
+		this.graph = graph;
+		xs = index.xs;
+		ys = index.ys;
+		tree = index.tree;
+		reach = index.reach;
+	}
+
+	/**
+	 * Returns an index over a graph with the same nodes and edges as the graph of this,
+	 * differing at most in edge weights, without building a new tree.
+	 *
+	 * @param graph The graph to be indexed
+	 * @requires graph has the same nodes and edges as this.graph, by id
+	 * @return an index over the edges of graph
+	 */
+	SegmentIndex withGraph(FrozenGraph<?, ?> graph) {
+		return new SegmentIndex(this, graph);
+	}
+
+	/**
+	 * Fills reach over the subtree [lo, hi), returning its largest half-length.
+	 */
+	private double fillReach(double[] half, int lo, int hi) {
+		if(hi <= lo)
+			return 0.0;
+		int mid = (lo + hi) >>> 1;
+		reach[mid] = Math.max(half[tree.pointAt(mid)],
+				Math.max(fillReach(half, lo, mid), fillReach(half, mid + 1, hi)));
+		return reach[mid];
+	}
+
+	/**
+	 * Finds the edge whose segment passes nearest to (x, y), in time logarithmic in the
+	 * number of edges when segments are short compared to the extent of the graph.
+	 *
+	 * @param x The x coordinate of the query
+	 * @param y The y coordinate of the query
+	 * @return the id of the open edge nearest to (x, y), or -1 if the graph has none
+	 */
+	int nearest(double x, double y) {
+		double[] best = {Double.POSITIVE_INFINITY, -1};
+		nearest(x, y, 0, tree.size(), 0, best);
+		return (int) best[1];
+	}
+
+	/**
+	 * Searches the subtree [lo, hi) at the given depth, lowering best[0] to the squared
+	 * distance of the nearest segment found and best[1] to its edge.
+	 */
+	private void nearest(double x, double y, int lo, int hi, int depth, double[] best) {
+		while(hi > lo) {
+			int mid = (lo + hi) >>> 1;
+			int e = tree.pointAt(mid);
+			double d2 = distance2(e, x, y);
+			if(d2 < best[0] && graph.weight(e) < Double.POSITIVE_INFINITY) {
+				best[0] = d2;
+				best[1] = e;
+			}
+			int s = graph.source(e);
+			int t = graph.target(e);
+			double split = (depth % 2 == 0) ? x - (xs[s] + xs[t]) / 2
+					: y - (ys[s] + ys[t]) / 2;
+			int nearLo = (split < 0) ? lo : mid + 1;
+			int nearHi = (split < 0) ? mid : hi;
+			int farLo = (split < 0) ? mid + 1 : lo;
+			int farHi = (split < 0) ? hi : mid;
+			nearest(x, y, nearLo, nearHi, depth + 1, best);
+			if(farHi <= farLo)
+				return;
+			// every far midpoint is at least |split| away along the splitting axis, and
+			// no far segment reaches further than reach from its midpoint
+			double gap = Math.abs(split) - reach[(farLo + farHi) >>> 1];
+			if(gap > 0 && gap * gap >= best[0])
+				return;
+			lo = farLo;
+			hi = farHi;
+			depth++;
+		}
+	}
+
+	/**
+	 * Returns how far along the segment of edge e the point nearest to (x, y) lies.
+	 *
+	 * @param e The id of the edge
+	 * @param x The x coordinate of the query
+	 * @param y The y coordinate of the query
+	 * @return t in [0, 1] such that the point of the segment nearest to (x, y) is its
+	 * 		   source location moved t of the way to its target location
+	 */
+	double fraction(int e, double x, double y) {
+		int s = graph.source(e);
+		int t = graph.target(e);
+		double dx = xs[t] - xs[s];
+		double dy = ys[t] - ys[s];
+		double len2 = dx * dx + dy * dy;
+		if(len2 == 0)
+			return 0.0;
+		double f = ((x - xs[s]) * dx + (y - ys[s]) * dy) / len2;
+		return Math.max(0.0, Math.min(1.0, f));
+	}
+
+	/**
+	 * Returns the squared distance from (x, y) to the segment of edge e.
+	 */
+	private double distance2(int e, double x, double y) {
+		int s = graph.source(e);
+		int t = graph.target(e);
+		double f = fraction(e, x, y);
+		double px = xs[s] + f * (xs[t] - xs[s]) - x;
+		double py = ys[s] + f * (ys[t] - ys[s]) - y;
+		return px * px + py * py;
+	}
+}
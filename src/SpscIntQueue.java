@@ -0,0 +1,224 @@
+package hw5.problem1;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SpscIntQueue is a bounded first-in, first-out queue of ints shared by exactly
+ * two threads: one that enqueues and one that dequeues, each without locks or
+ * compare-and-set.
+ * <p>
+ *
+ * An SpscIntQueue can be described as [n1, n2, ..., n_k], where n1 is the
+ * least-recently-added item in the queue and is the next item to be
+ * removed, and k is never more than capacity().
+ * <p>
+ *
+ * enqueue, dequeue and front keep the contract of IntQueue1 and IntQueue2, except
+ * that enqueue waits while the queue is full and dequeue and front wait while it is
+ * empty. offerInt and pollInt never wait. Only one thread at a time may call the
+ * enqueue methods, and only one at a time the dequeue methods and front; size()
+ * may be called by any thread and is only a snapshot.
+ *
+ * @author Logan Ricord
+ */
+public class SpscIntQueue {
+    // This class represents a queue as a ring buffer with counters of items
+    // ever dequeued (head, written only by the consumer) and ever enqueued
+    // (tail, written only by the producer). The item at position p is at
+    // values[p & mask]. Each side publishes its counter with an ordered
+    // write after touching the slot, which is all the other side needs to
+    // see the slot's value or its reuse.
+    //
+    // Each side also keeps its own copy of the other's counter and only
+    // reads the shared one when the copy says the queue is full (for the
+    // producer) or empty (for the consumer). The shared counters and the
+    // two copies each sit a cache line apart from one another, so neither
+    // side's writes invalidate the lines the other side reads.
+    //
+    // Abstraction Function:
+    //      AF(r) = [values[head & mask], values[(head + 1) & mask], ...,
+    //               values[(tail - 1) & mask]]
+    //
+    // Representation Invariant:
+    //      values.length = mask + 1, a power of two &&
+    //      head <= tail <= head + values.length &&
+    //      cached head <= head && cached tail <= tail
+
+    // Indices of head and tail in counters
+    private static final int HEAD = MpmcIntQueue.PAD;
+    private static final int TAIL = 2 * MpmcIntQueue.PAD;
+
+    // Indices in cached of the producer's copy of head and the consumer's
+    // copy of tail
+    private static final int HEAD_COPY = MpmcIntQueue.PAD;
+    private static final int TAIL_COPY = 2 * MpmcIntQueue.PAD;
+
+    private final int[] values;
+    private final AtomicLongArray counters;
+    private final long[] cached;
+    private final int mask;
+
+    /**
+     * @param capacity most items the queue holds at once
+     * @requires 0 < capacity <= 2^30
+     * @effects constructs an empty queue holding at least capacity items,
+     *          rounded up to a power of two
+     */
+    public SpscIntQueue(int capacity) {
+        int length = 1;
+        while (length < capacity) {
+            length = length * 2;
+        }
+        values = new int[length];
+        counters = new AtomicLongArray(3 * MpmcIntQueue.PAD);
+        cached = new long[3 * MpmcIntQueue.PAD];
+        mask = length - 1;
+    }
+
+    /**
+     *
+     * @return most items the queue holds at once
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Enqueue an item if there is room for it, without waiting; producer only
+     * @param entry item to be added to the queue
+     * @modifies this
+     * @effects places entry at the end of the queue unless the queue is full
+     * @return true iff entry was placed
+     */
+    public boolean offerInt(int entry) {
+        long tail = counters.get(TAIL);
+        if (tail - cached[HEAD_COPY] == values.length) {
+            cached[HEAD_COPY] = counters.get(HEAD);
+            if (tail - cached[HEAD_COPY] == values.length) {
+                return false;
+            }
+        }
+        values[(int) tail & mask] = entry;
+        counters.lazySet(TAIL, tail + 1);
+        return true;
+    }
+
+    /**
+     * Dequeue an item if there is one, without waiting; consumer only
+     * @param ifEmpty value to return if the queue is empty
+     * @modifies this
+     * @effects removes the item at the front of the queue, if any
+     * @return the item that was first in the queue, or ifEmpty if it was empty
+     */
+    public int pollInt(int ifEmpty) {
+        long head = counters.get(HEAD);
+        if (head == cached[TAIL_COPY]) {
+            cached[TAIL_COPY] = counters.get(TAIL);
+            if (head == cached[TAIL_COPY]) {
+                return ifEmpty;
+            }
+        }
+        int ret = values[(int) head & mask];
+        counters.lazySet(HEAD, head + 1);
+        return ret;
+    }
+
+    /**
+     * Enqueue an item; producer only
+     * @param entry item to be added to the queue
+     * @modifies this
+     * @effects places entry at the end of the queue, waiting while it is full
+     * @throws IllegalArgumentException if entry is null
+     */
+    public void enqueue(Integer entry) {
+        if (entry == null) {
+            throw new IllegalArgumentException("entry cannot be null");
+        }
+        enqueueInt(entry);
+    }
+
+    /**
+     * Enqueue an item without boxing it; producer only
+     * @param entry item to be added to the queue
+     * @modifies this
+     * @effects places entry at the end of the queue, waiting while it is full
+     */
+    public void enqueueInt(int entry) {
+        while (!offerInt(entry)) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Dequeue an item; consumer only
+     * @requires size() > 0, or the producer will enqueue
+     * @modifies this
+     * @effects removes the item at the front of the queue, waiting while it is
+     *          empty
+     * @return the item that was first in the queue
+     */
+    public Integer dequeue() {
+        return dequeueInt();
+    }
+
+    /**
+     * Dequeue an item without boxing it; consumer only
+     * @requires size() > 0, or the producer will enqueue
+     * @modifies this
+     * @effects removes the item at the front of the queue, waiting while it is
+     *          empty
+     * @return the item that was first in the queue
+     */
+    public int dequeueInt() {
+        awaitItem();
+        long head = counters.get(HEAD);
+        int ret = values[(int) head & mask];
+        counters.lazySet(HEAD, head + 1);
+        return ret;
+    }
+
+    /**
+     * See the next item without removing it; consumer only
+     * @requires size() > 0, or the producer will enqueue
+     * @return the item currently first in the queue, waiting while it is empty
+     */
+    public Integer front() {
+        awaitItem();
+        return values[(int) counters.get(HEAD) & mask];
+    }
+
+    /**
+     * Waits until the consumer's copy of tail shows an item to take.
+     */
+    private void awaitItem() {
+        long head = counters.get(HEAD);
+        while (head == cached[TAIL_COPY]) {
+            cached[TAIL_COPY] = counters.get(TAIL);
+            if (head == cached[TAIL_COPY]) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     *
+     * @return number of elements in the queue at some moment during the call
+     */
+    public int size() {
+        while (true) {
+            long head = counters.get(HEAD);
+            long tail = counters.get(TAIL);
+            if (counters.get(HEAD) == head) {
+                return (int) Math.max(0, Math.min(values.length, tail - head));
+            }
+        }
+    }
+
+    /**
+     *
+     * @return size() == 0
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
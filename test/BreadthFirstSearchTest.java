@@ -0,0 +1,150 @@
+package hw5.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import hw5.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class contains a set of test cases that can be used to test the
+ * implementation of the BreadthFirstSearch class.
+ * <p>
+ */
+
+public final class BreadthFirstSearchTest {
+
+	private static Graph<String, Double> graph;
+	private static String n1;
+	private static String n2;
+	private static String n3;
+	private static String n4;
+
+	@Before
+	public void setUp() throws Exception {
+		n1 = "Node 1";
+		n2 = "Node 2";
+		n3 = "Node 3";
+		n4 = "Node 4";
+		graph = new Graph<String, Double>();
+		graph.addNode(n1);
+		graph.addNode(n2);
+		graph.addNode(n3);
+		graph.addNode(n4);
+		graph.addEdge(n1, n2, 1.0);
+		graph.addEdge(n2, n3, 1.0);
+		graph.addEdge(n1, n3, 100.0);
+	}
+
+	@Test
+	public void testHopsIgnoresWeights() {
+		BreadthFirstSearch<String, Double> bfs = 
+				new BreadthFirstSearch<String, Double>(graph);
+		assertEquals("heavy direct edge should be one hop", 1, bfs.hops(n1, n3));
+		assertEquals("node should be zero hops from itself", 0, bfs.hops(n2, n2));
+		assertEquals("edges are one way", -1, bfs.hops(n3, n1));
+		assertEquals("unconnected node should be unreachable", -1, bfs.hops(n1, n4));
+	}
+
+	@Test
+	public void testHopsFrom() {
+		BreadthFirstSearch<String, Double> bfs = 
+				new BreadthFirstSearch<String, Double>(graph);
+		int[] hops = bfs.hopsFrom(n1);
+		FrozenGraph<String, Double> frozen = bfs.getGraph();
+		assertEquals("start should be zero hops from itself", 0, hops[frozen.idOf(n1)]);
+		assertEquals("child should be one hop", 1, hops[frozen.idOf(n2)]);
+		assertEquals("heavy direct edge should be one hop", 1, hops[frozen.idOf(n3)]);
+		assertEquals("unconnected node should be unreachable", -1, hops[frozen.idOf(n4)]);
+	}
+
+	@Test
+	public void testFindPath() {
+		BreadthFirstSearch<String, Double> bfs = 
+				new BreadthFirstSearch<String, Double>(graph);
+		List<Edge<Double, String>> path = bfs.findPath(n1, n3);
+		assertEquals("path should take the single edge", 1, path.size());
+		assertEquals("path should take the heavy direct edge",
+				new Edge<Double, String>(100.0, n3), path.get(0));
+		assertTrue("path to itself should be empty", bfs.findPath(n1, n1).isEmpty());
+		assertNull("no path should give null", bfs.findPath(n1, n4));
+	}
+
+	@Test
+	public void testReachableFrom() {
+		BreadthFirstSearch<String, Double> bfs = 
+				new BreadthFirstSearch<String, Double>(graph);
+		List<String> reachable = bfs.reachableFrom(n1);
+		assertEquals("start should come first", n1, reachable.get(0));
+		assertEquals("wrong number of reachable nodes", 3, reachable.size());
+		assertTrue("children should be reachable",
+				reachable.containsAll(Arrays.asList(n2, n3)));
+		assertEquals("isolated node should reach only itself", Arrays.asList(n4),
+				bfs.reachableFrom(n4));
+	}
+
+	@Test
+	public void testMatchesLayeredSearchOnRandomGraphs() {
+		Random random = new Random(331);
+		for(int round = 0; round < 20; round++) {
+			int n = 1 + random.nextInt(60);
+			Graph<Integer, Double> g = new Graph<Integer, Double>();
+			for(int i = 0; i < n; i++)
+				g.addNode(i);
+			for(int i = 0; i < 3 * n; i++)
+				g.addEdge(random.nextInt(n), random.nextInt(n), random.nextDouble());
+			BreadthFirstSearch<Integer, Double> bfs = 
+					new BreadthFirstSearch<Integer, Double>(g);
+			int[] hops = bfs.hopsFrom(0);
+			// expand one layer at a time by scanning every edge
+			int[] expected = new int[n];
+			Arrays.fill(expected, -1);
+			expected[0] = 0;
+			List<Integer> layer = new ArrayList<Integer>(Arrays.asList(0));
+			for(int depth = 1; !layer.isEmpty(); depth++) {
+				List<Integer> next = new ArrayList<Integer>();
+				for(int u : layer) {
+					for(Edge<Double, Integer> e : g.getEdges(u)) {
+						if(expected[e.getDestination()] < 0) {
+							expected[e.getDestination()] = depth;
+							next.add(e.getDestination());
+						}
+					}
+				}
+				layer = next;
+			}
+			for(int v = 0; v < n; v++) {
+				int id = bfs.getGraph().idOf(v);
+				assertEquals("hopsFrom to " + v + " is wrong", expected[v], hops[id]);
+				assertEquals("hops to " + v + " is wrong", expected[v], bfs.hops(0, v));
+				List<Edge<Double, Integer>> path = bfs.findPath(0, v);
+				if(expected[v] < 0) {
+					assertNull("path to unreachable " + v + " is not null", path);
+				} else {
+					assertEquals("path length to " + v + " is wrong", expected[v],
+							path.size());
+				}
+			}
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullGraph() {
+		new BreadthFirstSearch<String, Double>((Graph<String, Double>) null);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testStartNotInGraph() {
+		new BreadthFirstSearch<String, Double>(graph).hopsFrom("Node 5");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullDest() {
+		new BreadthFirstSearch<String, Double>(graph).findPath(n1, null);
+	}
+}
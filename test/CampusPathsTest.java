@@ -2,8 +2,15 @@ package hw8.test;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -11,6 +18,7 @@ import org.junit.Test;
 import hw5.*;
 import hw8.*;
 import hw8.CampusPaths.BuildingComparator;
+import hw8.CampusPaths.RoutingMode;
 import hw8.CampusParser.MalformedDataException;
 
 /**
@@ -109,6 +117,1299 @@ public class CampusPathsTest {
 		assertEquals("path from findPath does not equal expected path", path, path2);
 	}
 	
+	@Test
+	public void testFindPathBuiltGraph() {
+		set();
+		CampusPoint mid = new CampusPoint(2.0, 5.0);
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addNode(mid);
+		graph.addEdge(p1, p3, 10.0);
+		graph.addEdge(p1, mid, 3.0);
+		graph.addEdge(mid, p3, 4.0);
+		graph.addEdge(p3, p2, 1.0);
+		List<CampusPoint> buildings = new ArrayList<CampusPoint>();
+		buildings.add(p1);
+		buildings.add(p2);
+		buildings.add(p3);
+		CampusPaths built = new CampusPaths(graph, buildings);
+		path2.add(new Edge<Double, CampusPoint>(3.0, mid));
+		path2.add(new Edge<Double, CampusPoint>(4.0, p3));
+		path2.add(new Edge<Double, CampusPoint>(1.0, p2));
+		assertEquals("path from findPath does not equal expected path", 
+				path2, built.findPath(p1, p2));
+		assertTrue("path from a point to itself is not empty", 
+				built.findPath(p1, p1).isEmpty());
+		assertNull("path against edge direction is not null", built.findPath(p2, p1));
+	}
+	
+	/**
+	 * Returns a side x side grid of points with both-way edges between neighbours,
+	 * each weighted by its straight-line length stretched by up to 50%.
+	 */
+	private static CampusPaths gridModel(int side, long seed) {
+		Random rand = new Random(seed);
+		CampusPoint[] points = new CampusPoint[side * side];
+		for(int i = 0; i < points.length; i++) {
+			points[i] = new CampusPoint(i % side * 10 + rand.nextDouble(), 
+					i / side * 10 + rand.nextDouble());
+			graph.addNode(points[i]);
+		}
+		for(int i = 0; i < points.length; i++) {
+			if(i % side + 1 < side && rand.nextInt(5) != 0)
+				connect(points[i], points[i + 1], 1.0 + rand.nextDouble() / 2);
+			if(i + side < points.length && rand.nextInt(5) != 0)
+				connect(points[i], points[i + side], 1.0 + rand.nextDouble() / 2);
+		}
+		return new CampusPaths(graph, new ArrayList<CampusPoint>());
+	}
+	
+	private static void connect(CampusPoint a, CampusPoint b, double stretch) {
+		double dist = Math.hypot(a.getX() - b.getX(), a.getY() - b.getY()) * stretch;
+		graph.addEdge(a, b, dist);
+		graph.addEdge(b, a, dist);
+	}
+	
+	private static double length(List<Edge<Double, CampusPoint>> path) {
+		if(path == null)
+			return Double.POSITIVE_INFINITY;
+		double total = 0.0;
+		for(Edge<Double, CampusPoint> edge : path)
+			total = total + edge.getLabel();
+		return total;
+	}
+	
+	/**
+	 * Checks that the given routing mode of model finds paths as short as Dijkstra's.
+	 */
+	private static void checkModesAgree(CampusPaths model, RoutingMode mode) {
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : model)
+			points.add(p);
+		Random rand = new Random(331);
+		for(int i = 0; i < 200; i++) {
+			CampusPoint s = points.get(rand.nextInt(points.size()));
+			CampusPoint t = points.get(rand.nextInt(points.size()));
+			model.setRoutingMode(RoutingMode.DIJKSTRA);
+			double expected = length(model.findPath(s, t));
+			model.setRoutingMode(mode);
+			assertEquals(mode + " path is not shortest", 
+					expected, length(model.findPath(s, t)), 1e-9);
+		}
+	}
+	
+	/**
+	 * Checks that the given routing mode follows edge directions on a small graph whose
+	 * shortest paths differ by direction, building a hierarchy first if asked.
+	 */
+	private static void checkDirectedGraph(RoutingMode mode, boolean buildHierarchy) {
+		CampusPoint mid = new CampusPoint(2.0, 5.0);
+		CampusPoint alone = new CampusPoint(8.0, 8.0);
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(mid);
+		graph.addNode(alone);
+		graph.addEdge(p1, mid, 3.0);
+		graph.addEdge(mid, p2, 4.0);
+		graph.addEdge(p1, p2, 9.0);
+		graph.addEdge(p2, p1, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		if(buildHierarchy)
+			built.buildHierarchy();
+		built.setRoutingMode(mode);
+		assertEquals(mode + " is not available", mode, built.getEffectiveRoutingMode());
+		path.add(new Edge<Double, CampusPoint>(3.0, mid));
+		path.add(new Edge<Double, CampusPoint>(4.0, p2));
+		assertEquals(mode + " path is not shortest", path, built.findPath(p1, p2));
+		path2.add(new Edge<Double, CampusPoint>(1.0, p1));
+		path2.add(new Edge<Double, CampusPoint>(3.0, mid));
+		assertEquals(mode + " path does not follow edge directions", 
+				path2, built.findPath(p2, mid));
+		assertTrue(mode + " path to self is not empty", 
+				built.findPath(p1, p1).isEmpty());
+		assertNull(mode + " found path to unreachable point", 
+				built.findPath(p1, alone));
+	}
+	
+	@Test
+	public void testAStarMatchesDijkstra() {
+		set();
+		CampusPaths grid = gridModel(20, 1);
+		assertEquals("A* is not available on consistent data", RoutingMode.ASTAR,
+				getEffective(grid, RoutingMode.ASTAR));
+		checkModesAgree(grid, RoutingMode.ASTAR);
+	}
+	
+	private static RoutingMode getEffective(CampusPaths model, 
+			RoutingMode mode) {
+		model.setRoutingMode(mode);
+		return model.getEffectiveRoutingMode();
+	}
+	
+	@Test
+	public void testAStarSettlesFewerPoints() {
+		set();
+		CampusPaths grid = gridModel(30, 2);
+		CampusPoint s = null;
+		CampusPoint t = null;
+		for(CampusPoint p : grid) {
+			if(s == null || p.getX() + p.getY() < s.getX() + s.getY())
+				s = p;
+			if(t == null || p.getX() + p.getY() > t.getX() + t.getY())
+				t = p;
+		}
+		grid.setRoutingMode(RoutingMode.DIJKSTRA);
+		grid.findPath(t, s);
+		int dijkstra = grid.getSettledCount();
+		grid.setRoutingMode(RoutingMode.ASTAR);
+		grid.findPath(t, s);
+		assertTrue("A* did not settle fewer points", grid.getSettledCount() < dijkstra);
+	}
+	
+	@Test
+	public void testBidirectionalMatchesDijkstra() {
+		set();
+		checkModesAgree(gridModel(20, 3), RoutingMode.BIDIRECTIONAL);
+	}
+	
+	@Test
+	public void testBidirectionalOnDirectedGraph() {
+		set();
+		checkDirectedGraph(RoutingMode.BIDIRECTIONAL, false);
+	}
+	
+	@Test
+	public void testHierarchyMatchesDijkstra() {
+		set();
+		CampusPaths grid = gridModel(20, 4);
+		assertEquals("hierarchy mode ran before hierarchy was built", RoutingMode.DIJKSTRA,
+				getEffective(grid, RoutingMode.HIERARCHY));
+		assertTrue("hierarchy has no shortcuts", grid.buildHierarchy().shortcutCount() > 0);
+		assertEquals("hierarchy mode not available after build", RoutingMode.HIERARCHY,
+				getEffective(grid, RoutingMode.HIERARCHY));
+		checkModesAgree(grid, RoutingMode.HIERARCHY);
+	}
+	
+	@Test
+	public void testHierarchyUnpacksShortcuts() {
+		set();
+		CampusPaths grid = gridModel(20, 5);
+		grid.buildHierarchy();
+		grid.setRoutingMode(RoutingMode.HIERARCHY);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(331);
+		for(int i = 0; i < 50; i++) {
+			CampusPoint s = points.get(rand.nextInt(points.size()));
+			CampusPoint t = points.get(rand.nextInt(points.size()));
+			List<Edge<Double, CampusPoint>> found = grid.findPath(s, t);
+			if(found == null)
+				continue;
+			CampusPoint at = s;
+			for(Edge<Double, CampusPoint> edge : found) {
+				assertTrue("path edge is not in the graph", graph.getEdges(at).contains(edge));
+				at = edge.getDestination();
+			}
+			assertEquals("path does not end at destination", t, at);
+		}
+	}
+	
+	@Test
+	public void testHierarchyOnDirectedGraph() {
+		set();
+		checkDirectedGraph(RoutingMode.HIERARCHY, true);
+	}
+	
+	@Test
+	public void testAltMatchesDijkstra() {
+		set();
+		CampusPaths grid = gridModel(20, 6);
+		assertEquals("ALT mode ran before landmarks were built", RoutingMode.DIJKSTRA,
+				getEffective(grid, RoutingMode.ALT));
+		assertFalse("landmarks of an unsaved graph were loaded", grid.buildLandmarks(4));
+		assertEquals("ALT mode not available after build", RoutingMode.ALT,
+				getEffective(grid, RoutingMode.ALT));
+		checkModesAgree(grid, RoutingMode.ALT);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testBuildLandmarksNoLandmarks() {
+		set();
+		gridModel(3, 7).buildLandmarks(0);
+	}
+
+	@Test
+	public void testQuantizedPathsNearShortest() {
+		set();
+		CampusPaths grid = gridModel(20, 8);
+		assertEquals("quantized mode not available", RoutingMode.QUANTIZED,
+				getEffective(grid, RoutingMode.QUANTIZED));
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(331);
+		for(int i = 0; i < 200; i++) {
+			CampusPoint s = points.get(rand.nextInt(points.size()));
+			CampusPoint t = points.get(rand.nextInt(points.size()));
+			grid.setRoutingMode(RoutingMode.DIJKSTRA);
+			List<Edge<Double, CampusPoint>> shortest = grid.findPath(s, t);
+			grid.setRoutingMode(RoutingMode.QUANTIZED);
+			List<Edge<Double, CampusPoint>> rounded = grid.findPath(s, t);
+			if(shortest == null) {
+				assertNull("quantized found path to unreachable point", rounded);
+				continue;
+			}
+			// each edge of either path is off by at most half a foot once rounded
+			double slack = CampusPaths.QUANTUM / 2 * (shortest.size() + rounded.size());
+			assertTrue("quantized path is too long", 
+					length(rounded) <= length(shortest) + slack + 1e-9);
+			assertEquals("quantized distance does not match path", 
+					length(rounded), grid.distance(s, t), 1e-9);
+		}
+	}
+	
+	@Test
+	public void testQuantizedMatchesDijkstraOnWholeLengths() throws IOException, 
+			MalformedDataException {
+		set();
+		File paths = File.createTempFile("square_paths", ".dat");
+		File buildings = File.createTempFile("square_buildings", ".dat");
+		try {
+			writeSquare(paths, buildings, 10.0);
+			CampusPaths square = new CampusPaths(paths.getPath(), buildings.getPath());
+			checkModesAgree(square, RoutingMode.QUANTIZED);
+		} finally {
+			paths.delete();
+			buildings.delete();
+		}
+	}
+	
+	@Test
+	public void testQuantizedFallsBackForLongEdges() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addEdge(p1, p2, 1e9);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		assertEquals("quantized mode ran with an edge too long to round", 
+				RoutingMode.DIJKSTRA, getEffective(built, RoutingMode.QUANTIZED));
+		assertEquals(1, built.findPath(p1, p2).size());
+	}
+	
+	/**
+	 * Writes a square of four points with a building at each corner to the given files.
+	 */
+	private static void writeSquare(File paths, File buildings, double side) 
+			throws IOException {
+		FileWriter out = new FileWriter(buildings);
+		out.write("A\tCorner A\t0.0\t0.0\nB\tCorner B\t10.0\t0.0\n" +
+				"C\tCorner C\t10.0\t10.0\nD\tCorner D\t0.0\t10.0\n");
+		out.close();
+		out = new FileWriter(paths);
+		out.write("0.0,0.0\n\t10.0,0.0: " + side + "\n\t0.0,10.0: " + side + "\n" +
+				"10.0,0.0\n\t0.0,0.0: " + side + "\n\t10.0,10.0: " + side + "\n" +
+				"10.0,10.0\n\t10.0,0.0: " + side + "\n\t0.0,10.0: " + side + "\n" +
+				"0.0,10.0\n\t10.0,10.0: " + side + "\n\t0.0,0.0: " + side + "\n");
+		out.close();
+	}
+	
+	@Test
+	public void testLandmarksSavedAndReused() throws IOException, MalformedDataException {
+		set();
+		File dir = File.createTempFile("campus", "");
+		dir.delete();
+		dir.mkdir();
+		File paths = new File(dir, "square_paths.dat");
+		File buildings = new File(dir, "square_buildings.dat");
+		File saved = new File(dir, "square_paths.landmarks");
+		try {
+			writeSquare(paths, buildings, 10.0);
+			CampusPaths first = new CampusPaths(paths.getPath(), buildings.getPath());
+			assertFalse("landmarks loaded before they were saved", first.buildLandmarks(2));
+			assertTrue("landmarks not saved next to paths file", saved.isFile());
+			
+			CampusPaths second = new CampusPaths(paths.getPath(), buildings.getPath());
+			assertTrue("saved landmarks not reused", second.buildLandmarks(2));
+			checkModesAgree(second, RoutingMode.ALT);
+			assertFalse("landmarks reused for a different count", second.buildLandmarks(3));
+			
+			writeSquare(paths, buildings, 12.0);
+			CampusPaths changed = new CampusPaths(paths.getPath(), buildings.getPath());
+			assertFalse("landmarks reused after data changed", changed.buildLandmarks(3));
+			checkModesAgree(changed, RoutingMode.ALT);
+		} finally {
+			paths.delete();
+			buildings.delete();
+			saved.delete();
+			dir.delete();
+		}
+	}
+	
+	/**
+	 * Returns a model of the given grid with every seventh point a building.
+	 */
+	private static CampusPaths withBuildings(CampusPaths grid) {
+		List<CampusPoint> buildings = new ArrayList<CampusPoint>();
+		int i = 0;
+		for(CampusPoint p : grid) {
+			if(i++ % 7 == 0)
+				buildings.add(p);
+		}
+		return new CampusPaths(graph, buildings);
+	}
+	
+	@Test
+	public void testBuildingMatrixMatchesDijkstra() {
+		set();
+		CampusPaths grid = withBuildings(gridModel(15, 8));
+		List<Double> expected = new ArrayList<Double>();
+		for(CampusPoint s : grid.getBuildings()) {
+			for(CampusPoint t : grid.getBuildings())
+				expected.add(length(grid.findPath(s, t)));
+		}
+		grid.buildBuildingMatrix();
+		int i = 0;
+		for(CampusPoint s : grid.getBuildings()) {
+			for(CampusPoint t : grid.getBuildings()) {
+				List<Edge<Double, CampusPoint>> found = grid.findPath(s, t);
+				assertEquals("matrix path is not shortest", expected.get(i++), 
+						length(found), 1e-9);
+				CampusPoint at = s;
+				for(Edge<Double, CampusPoint> edge : found) {
+					assertTrue("matrix path edge is not in the graph", 
+							graph.getEdges(at).contains(edge));
+					at = edge.getDestination();
+				}
+				assertEquals("matrix path does not end at destination", t, at);
+			}
+		}
+	}
+	
+	@Test
+	public void testBuildingMatrixUnreachable() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, 5.0);
+		List<CampusPoint> buildings = new ArrayList<CampusPoint>();
+		buildings.add(p1);
+		buildings.add(p2);
+		buildings.add(p3);
+		CampusPaths built = new CampusPaths(graph, buildings);
+		built.buildBuildingMatrix();
+		path.add(new Edge<Double, CampusPoint>(5.0, p2));
+		assertEquals("matrix path is wrong", path, built.findPath(p1, p2));
+		assertNull("matrix found path against edge direction", built.findPath(p2, p1));
+		assertNull("matrix found path to unreachable building", built.findPath(p1, p3));
+		assertTrue("matrix path to self is not empty", built.findPath(p3, p3).isEmpty());
+	}
+	
+	@Test
+	public void testBuildingMatrixSavedAndLoaded() throws IOException {
+		set();
+		CampusPaths grid = withBuildings(gridModel(10, 9));
+		grid.buildBuildingMatrix();
+		File file = File.createTempFile("matrix", ".bin");
+		try {
+			grid.saveBuildingMatrix(file.getPath());
+			CampusPaths same = new CampusPaths(graph, grid.getBuildings());
+			assertTrue("saved matrix not loaded", same.loadBuildingMatrix(file.getPath()));
+			for(CampusPoint s : grid.getBuildings()) {
+				for(CampusPoint t : grid.getBuildings()) {
+					assertEquals("loaded matrix gives different path", 
+							grid.findPath(s, t), same.findPath(s, t));
+				}
+			}
+			CampusPaths fewer = new CampusPaths(graph, 
+					grid.getBuildings().subList(1, grid.getBuildings().size()));
+			assertFalse("matrix loaded for other buildings", 
+					fewer.loadBuildingMatrix(file.getPath()));
+			graph.addEdge(grid.getBuildings().get(0), grid.getBuildings().get(1), 1.0);
+			CampusPaths changed = new CampusPaths(graph, grid.getBuildings());
+			assertFalse("matrix loaded for changed graph", 
+					changed.loadBuildingMatrix(file.getPath()));
+		} finally {
+			file.delete();
+		}
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testSaveBuildingMatrixNotBuilt() throws IOException {
+		set();
+		model.saveBuildingMatrix("unused.bin");
+	}
+
+	@Test
+	public void testRouteCacheHitsAndMisses() {
+		set();
+		CampusPaths grid = gridModel(6, 10);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		CampusPoint start = points.get(0);
+		CampusPoint dest = points.get(points.size() - 1);
+		grid.setRouteCache(8, Long.MAX_VALUE);
+		List<Edge<Double, CampusPoint>> first = grid.findPath(start, dest);
+		List<Edge<Double, CampusPoint>> second = grid.findPath(start, dest);
+		assertSame("second query was not answered from the cache", first, second);
+		assertEquals("wrong number of cache hits", 1, grid.getCacheHits());
+		assertEquals("wrong number of cache misses", 1, grid.getCacheMisses());
+		grid.findPath(dest, start);
+		assertEquals("reverse query was answered from the cache", 2, grid.getCacheMisses());
+	}
+
+	@Test
+	public void testRouteCacheEvictsLeastRecentlyUsed() {
+		set();
+		CampusPaths grid = gridModel(6, 11);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		CampusPoint start = points.get(0);
+		grid.setRouteCache(2, Long.MAX_VALUE);
+		grid.findPath(start, points.get(1));
+		grid.findPath(start, points.get(2));
+		grid.findPath(start, points.get(1));
+		grid.findPath(start, points.get(3));
+		assertEquals("wrong number of evictions", 1, grid.getCacheEvictions());
+		grid.findPath(start, points.get(1));
+		assertEquals("recently used route was evicted", 2, grid.getCacheHits());
+		grid.findPath(start, points.get(2));
+		assertEquals("least recently used route was kept", 2, grid.getCacheHits());
+	}
+
+	@Test
+	public void testRouteCacheEdgeLimit() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, 1.0);
+		graph.addEdge(p2, p3, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		// a two-edge path counts three, too many to cache within a limit of two
+		built.setRouteCache(10, 2);
+		built.findPath(p1, p3);
+		built.findPath(p1, p3);
+		assertEquals("path over the edge limit was cached", 0, built.getCacheHits());
+		built.findPath(p1, p2);
+		built.findPath(p1, p2);
+		assertEquals("path within the edge limit was not cached", 1, built.getCacheHits());
+	}
+
+	@Test
+	public void testRouteCacheInvalidatedByGraphChange() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, 10.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.setRouteCache(10, Long.MAX_VALUE);
+		assertEquals("wrong path before change", 1, built.findPath(p1, p2).size());
+		graph.addEdge(p1, p3, 1.0);
+		graph.addEdge(p3, p2, 1.0);
+		assertEquals("cached path survived an added edge", 2, built.findPath(p1, p2).size());
+		assertEquals("stale path was answered from the cache", 0, built.getCacheHits());
+		graph.clear();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		assertNull("cached path survived a cleared graph", built.findPath(p1, p2));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testFindPathUnmodifiable() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addEdge(p1, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.findPath(p1, p2).clear();
+	}
+
+	@Test
+	public void testFindPathsMatchesFindPath() {
+		set();
+		CampusPaths grid = gridModel(15, 12);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(331);
+		CampusPoint start = points.get(rand.nextInt(points.size()));
+		List<CampusPoint> dests = new ArrayList<CampusPoint>();
+		for(int i = 0; i < 20; i++)
+			dests.add(points.get(rand.nextInt(points.size())));
+		dests.add(dests.get(0));
+		dests.add(start);
+		Map<CampusPoint, CampusPaths.Route> routes = grid.findPaths(start, dests);
+		int settled = grid.getSettledCount();
+		int separate = 0;
+		for(CampusPoint dest : dests) {
+			List<Edge<Double, CampusPoint>> expected = grid.findPath(start, dest);
+			separate = separate + grid.getSettledCount();
+			if(expected == null) {
+				assertFalse("unreachable destination has a route", routes.containsKey(dest));
+			} else {
+				CampusPaths.Route route = routes.get(dest);
+				assertEquals("route is not shortest", length(expected), 
+						length(route.getPath()), 1e-9);
+				assertEquals("route distance does not match its path", 
+						length(route.getPath()), route.getDistance(), 1e-9);
+			}
+		}
+		assertTrue("one search settled more than separate searches", settled < separate);
+		assertTrue("route to start is not empty", routes.get(start).getPath().isEmpty());
+	}
+
+	@Test
+	public void testFindPathsNoDestinations() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		assertTrue("routes found without destinations", 
+				built.findPaths(p1, new ArrayList<CampusPoint>()).isEmpty());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathsNullDestinations() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.findPaths(p1, null);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathsDestinationNotInGraph() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		List<CampusPoint> dests = new ArrayList<CampusPoint>();
+		dests.add(p2);
+		built.findPaths(p1, dests);
+	}
+
+	@Test
+	public void testDistanceTableMatchesDistance() {
+		set();
+		CampusPaths grid = gridModel(15, 12);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(331);
+		List<CampusPoint> sources = new ArrayList<CampusPoint>();
+		List<CampusPoint> targets = new ArrayList<CampusPoint>();
+		for(int i = 0; i < 20; i++)
+			sources.add(points.get(rand.nextInt(points.size())));
+		for(int i = 0; i < 25; i++)
+			targets.add(points.get(rand.nextInt(points.size())));
+		targets.add(sources.get(0));
+		targets.add(targets.get(0));
+		for(int round = 0; round < 2; round++) {
+			// first one search per source, then buckets once there is a hierarchy
+			if(round == 1)
+				grid.buildHierarchy();
+			for(int threads = 1; threads <= 3; threads = threads + 2) {
+				double[][] table = grid.distanceTable(sources, targets, threads);
+				assertEquals("table has wrong number of rows", sources.size(), table.length);
+				for(int i = 0; i < sources.size(); i++) {
+					assertEquals("row has wrong length", targets.size(), table[i].length);
+					for(int j = 0; j < targets.size(); j++) {
+						assertEquals("table entry is not shortest",
+								grid.distance(sources.get(i), targets.get(j)),
+								table[i][j], 1e-9);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDistanceTableOneWayEdges() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, 10.0);
+		graph.addEdge(p1, p3, 1.0);
+		graph.addEdge(p3, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.buildHierarchy();
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		points.add(p1);
+		points.add(p2);
+		double[][] table = built.distanceTable(points, points);
+		assertEquals("wrong distance to self", 0.0, table[0][0], 0.0);
+		assertEquals("wrong distance along edges", 2.0, table[0][1], 0.0);
+		assertEquals("distance against edge direction", Double.POSITIVE_INFINITY,
+				table[1][0], 0.0);
+		assertEquals("table without targets has entries", 0,
+				built.distanceTable(points, new ArrayList<CampusPoint>())[0].length);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDistanceTableTargetNotInGraph() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		List<CampusPoint> sources = new ArrayList<CampusPoint>();
+		sources.add(p1);
+		List<CampusPoint> targets = new ArrayList<CampusPoint>();
+		targets.add(p2);
+		built.distanceTable(sources, targets);
+	}
+
+	@Test
+	public void testFindReachableMatchesFindPath() {
+		set();
+		CampusPaths grid = gridModel(15, 13);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		CampusPoint start = points.get(100);
+		double budget = 45.0;
+		Map<CampusPoint, Double> reachable = grid.findReachable(start, budget);
+		double last = 0.0;
+		for(double d : reachable.values()) {
+			assertTrue("points are not in order of distance", d >= last);
+			last = d;
+		}
+		for(CampusPoint p : points) {
+			double expected = length(grid.findPath(start, p));
+			if(expected <= budget) {
+				assertEquals("wrong distance to reachable point", expected, 
+						reachable.get(p), 1e-9);
+			} else {
+				assertFalse("point beyond budget is reachable", reachable.containsKey(p));
+			}
+		}
+		assertEquals("start is not first", start, reachable.keySet().iterator().next());
+	}
+
+	@Test
+	public void testFindReachableInTime() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, CampusPaths.WALK_SPEED * 60);
+		graph.addEdge(p2, p3, CampusPaths.WALK_SPEED * 60);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		assertEquals("wrong points within one minute", 2, 
+				built.findReachableInTime(p1, 60).size());
+		assertEquals("wrong points within two minutes", 3, 
+				built.findReachableInTime(p1, 120).size());
+		assertEquals("wrong points within no time", 1, 
+				built.findReachableInTime(p1, 0).size());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindReachableNegativeBudget() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.findReachable(p1, -1.0);
+	}
+
+	private static double distance(CampusPoint p, double x, double y) {
+		return Math.hypot(p.getX() - x, p.getY() - y);
+	}
+
+	@Test
+	public void testSpatialQueriesMatchScan() {
+		set();
+		CampusPaths grid = withBuildings(gridModel(20, 14));
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(331);
+		for(int i = 0; i < 50; i++) {
+			double x = rand.nextDouble() * 220 - 10;
+			double y = rand.nextDouble() * 220 - 10;
+			double r = rand.nextDouble() * 40;
+			for(boolean only : new boolean[] {false, true}) {
+				List<CampusPoint> candidates = only ? grid.getBuildings() : points;
+				List<CampusPoint> nearest = grid.findNearest(x, y, 5, only);
+				assertEquals("wrong number of nearest points", 5, nearest.size());
+				double last = 0.0;
+				for(CampusPoint p : nearest) {
+					assertTrue("nearest point is not a candidate", candidates.contains(p));
+					assertTrue("nearest points are out of order", distance(p, x, y) >= last);
+					last = distance(p, x, y);
+				}
+				int closer = 0;
+				for(CampusPoint p : candidates) {
+					if(distance(p, x, y) < last)
+						closer++;
+					boolean inside = distance(p, x, y) <= r;
+					assertEquals("radius query disagrees with scan", inside, 
+							grid.findWithin(x, y, r, only).contains(p));
+					boolean boxed = Math.abs(p.getX() - x) <= r && Math.abs(p.getY() - y) <= r;
+					assertEquals("box query disagrees with scan", boxed, 
+							grid.findInBox(x - r, y - r, x + r, y + r, only).contains(p));
+				}
+				assertTrue("a closer point was missed", closer < 5);
+			}
+		}
+	}
+
+	@Test
+	public void testFindNearestMoreThanSize() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		List<CampusPoint> nearest = built.findNearest(1.0, 4.5, 10, false);
+		assertEquals("wrong number of nearest points", 2, nearest.size());
+		assertEquals("nearest point is not first", p1, nearest.get(0));
+		assertTrue("nearest buildings found without buildings", 
+				built.findNearest(1.0, 4.5, 10, true).isEmpty());
+	}
+
+	@Test
+	public void testSpatialIndexFollowsGraph() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		graph.addNode(p3);
+		assertEquals("added point is not found", p3, 
+				built.findNearest(2.0, 3.0, 1, false).get(0));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindNearestNegative() {
+		set();
+		model.findNearest(0.0, 0.0, -1, false);
+	}
+
+	@Test
+	public void testGetBuildingByName() {
+		set();
+		List<CampusPoint> buildings = new ArrayList<CampusPoint>();
+		buildings.add(p1);
+		buildings.add(p2);
+		buildings.add(new CampusPoint("BOS", "Boston Braves", 0.0, 0.0));
+		CampusPaths built = new CampusPaths(graph, buildings);
+		assertEquals("wrong building for name", p2, built.getBuilding("BOS"));
+		assertEquals("wrong building for name", p1, built.getBuilding("SEA"));
+		assertNull("building found for unknown name", built.getBuilding("NYY"));
+	}
+
+	/**
+	 * Returns a model of two straight segments, (0, 0) to (10, 0) and (10, 0) to
+	 * (10, 10), each walkable both ways unless oneWay.
+	 */
+	private static CampusPaths segmentModel(boolean oneWay) {
+		CampusPoint a = new CampusPoint(0.0, 0.0);
+		CampusPoint b = new CampusPoint(10.0, 0.0);
+		CampusPoint c = new CampusPoint(10.0, 10.0);
+		graph.addNode(a);
+		graph.addNode(b);
+		graph.addNode(c);
+		graph.addEdge(a, b, 10.0);
+		graph.addEdge(b, c, 10.0);
+		if(!oneWay) {
+			graph.addEdge(b, a, 10.0);
+			graph.addEdge(c, b, 10.0);
+		}
+		return new CampusPaths(graph, new ArrayList<CampusPoint>());
+	}
+
+	@Test
+	public void testSnapToSegment() {
+		set();
+		CampusPaths built = segmentModel(false);
+		assertEquals("wrong snap onto first segment", new CampusPoint(4.0, 0.0), 
+				built.snap(4.0, 3.0));
+		assertEquals("wrong snap onto second segment", new CampusPoint(10.0, 5.0), 
+				built.snap(12.0, 5.0));
+		assertEquals("wrong snap past the end", new CampusPoint(0.0, 0.0), 
+				built.snap(-3.0, -1.0));
+		assertFalse("graph was changed by snapping", graph.contains(new CampusPoint(4.0, 0.0)));
+		assertNull("snapped without segments", model.snap(1.0, 1.0));
+	}
+
+	@Test
+	public void testFindPathBetweenCoordinates() {
+		set();
+		CampusPaths built = segmentModel(false);
+		List<Edge<Double, CampusPoint>> route = built.findPath(4.0, 1.0, 11.0, 5.0);
+		path2.add(new Edge<Double, CampusPoint>(6.0, new CampusPoint(10.0, 0.0)));
+		path2.add(new Edge<Double, CampusPoint>(5.0, new CampusPoint(10.0, 5.0)));
+		assertEquals("wrong path between coordinates", path2, route);
+		assertEquals("wrong length backward", 11.0, 
+				length(built.findPath(11.0, 5.0, 4.0, 1.0)), 1e-9);
+		assertEquals("graph was changed by routing", 3, graph.nodeCount());
+	}
+
+	@Test
+	public void testFindPathWithinSegment() {
+		set();
+		CampusPaths built = segmentModel(true);
+		List<Edge<Double, CampusPoint>> route = built.findPath(2.0, 0.0, 7.0, 0.0);
+		assertEquals("path within a segment is not one edge", 1, route.size());
+		assertEquals("wrong length within a segment", 5.0, length(route), 1e-9);
+		assertNull("path against a one-way segment found", 
+				built.findPath(7.0, 0.0, 2.0, 0.0));
+	}
+
+	@Test
+	public void testFindPathBetweenCoordinatesIsShortest() {
+		set();
+		CampusPaths grid = gridModel(12, 15);
+		Random rand = new Random(331);
+		for(int i = 0; i < 50; i++) {
+			double sx = rand.nextDouble() * 110;
+			double sy = rand.nextDouble() * 110;
+			double dx = rand.nextDouble() * 110;
+			double dy = rand.nextDouble() * 110;
+			double[] s = nearestSegment(sx, sy);
+			double[] d = nearestSegment(dx, dy);
+			assertEquals("snap is not on the nearest segment", s[0], 
+					distance(grid.snap(sx, sy), sx, sy), 1e-9);
+			double expected = Double.POSITIVE_INFINITY;
+			if(s[1] == d[1] && s[2] == d[2])
+				expected = Math.abs(s[3] - d[3]) * s[4];
+			else if(s[1] == d[2] && s[2] == d[1])
+				expected = Math.abs(s[3] - (1 - d[3])) * s[4];
+			// leave toward either end of the start segment, arrive from either end
+			// of the destination segment
+			double[][] leave = {{s[1], s[3] * s[4]}, {s[2], (1 - s[3]) * s[4]}};
+			double[][] arrive = {{d[1], d[3] * d[4]}, {d[2], (1 - d[3]) * d[4]}};
+			List<CampusPoint> points = new ArrayList<CampusPoint>();
+			for(CampusPoint p : grid)
+				points.add(p);
+			for(double[] l : leave) {
+				for(double[] r : arrive) {
+					double middle = length(grid.findPath(points.get((int) l[0]), 
+							points.get((int) r[0])));
+					expected = Math.min(expected, l[1] + middle + r[1]);
+				}
+			}
+			assertEquals("path between coordinates is not shortest", expected, 
+					length(grid.findPath(sx, sy, dx, dy)), 1e-9);
+		}
+	}
+
+	/**
+	 * Scans every edge of graph for the segment nearest to (x, y), returning its
+	 * distance, the positions of its ends in iteration order, how far along it the
+	 * nearest point is, and its length.
+	 */
+	private static double[] nearestSegment(double x, double y) {
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : graph)
+			points.add(p);
+		double[] best = {Double.POSITIVE_INFINITY, -1, -1, 0, 0};
+		for(int i = 0; i < points.size(); i++) {
+			CampusPoint u = points.get(i);
+			for(Edge<Double, CampusPoint> edge : graph.getEdges(u)) {
+				CampusPoint v = edge.getDestination();
+				double ex = v.getX() - u.getX();
+				double ey = v.getY() - u.getY();
+				double f = ((x - u.getX()) * ex + (y - u.getY()) * ey) / (ex * ex + ey * ey);
+				f = Math.max(0.0, Math.min(1.0, f));
+				double dist = Math.hypot(u.getX() + f * ex - x, u.getY() + f * ey - y);
+				if(dist < best[0]) {
+					best = new double[] {dist, i, points.indexOf(v), f, edge.getLabel()};
+				}
+			}
+		}
+		return best;
+	}
+
+	@Test
+	public void testFindPathsBatchInInputOrder() {
+		set();
+		CampusPaths grid = gridModel(12, 16);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(331);
+		List<CampusPoint> starts = new ArrayList<CampusPoint>();
+		List<CampusPoint> dests = new ArrayList<CampusPoint>();
+		for(int i = 0; i < 100; i++) {
+			starts.add(points.get(rand.nextInt(points.size())));
+			dests.add(points.get(rand.nextInt(points.size())));
+		}
+		for(RoutingMode mode : new RoutingMode[] {RoutingMode.DIJKSTRA, RoutingMode.HIERARCHY}) {
+			grid.setRoutingMode(mode);
+			List<List<Edge<Double, CampusPoint>>> paths = grid.findPathsBatch(starts, dests, 
+					4, 3);
+			assertEquals("wrong number of paths", starts.size(), paths.size());
+			for(int i = 0; i < starts.size(); i++) {
+				assertEquals("batch path " + i + " is not shortest", 
+						length(grid.findPath(starts.get(i), dests.get(i))), 
+						length(paths.get(i)), 1e-9);
+			}
+			grid.buildHierarchy();
+		}
+	}
+
+	@Test
+	public void testFindPathsBatchUnreachable() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addEdge(p1, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		List<CampusPoint> starts = new ArrayList<CampusPoint>();
+		List<CampusPoint> dests = new ArrayList<CampusPoint>();
+		starts.add(p2);
+		dests.add(p1);
+		starts.add(p1);
+		dests.add(p2);
+		List<List<Edge<Double, CampusPoint>>> paths = built.findPathsBatch(starts, dests);
+		assertNull("path against edge direction is not null", paths.get(0));
+		assertEquals("wrong path in batch", 1, paths.get(1).size());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathsBatchMismatchedSizes() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		List<CampusPoint> starts = new ArrayList<CampusPoint>();
+		starts.add(p1);
+		built.findPathsBatch(starts, new ArrayList<CampusPoint>());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathsBatchPointNotInGraph() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		List<CampusPoint> starts = new ArrayList<CampusPoint>();
+		List<CampusPoint> dests = new ArrayList<CampusPoint>();
+		starts.add(p1);
+		dests.add(p2);
+		built.findPathsBatch(starts, dests, 2, 1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathsBatchNoParallelism() {
+		set();
+		model.findPathsBatch(new ArrayList<CampusPoint>(), new ArrayList<CampusPoint>(), 0, 1);
+	}
+
+	@Test
+	public void testFindPathAsyncMatchesFindPath() throws Exception {
+		set();
+		CampusPaths grid = gridModel(12, 17);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(331);
+		for(int i = 0; i < 20; i++) {
+			CampusPoint s = points.get(rand.nextInt(points.size()));
+			CampusPoint t = points.get(rand.nextInt(points.size()));
+			assertEquals("async path is not shortest", length(grid.findPath(s, t)), 
+					length(grid.findPathAsync(s, t).get()), 1e-9);
+		}
+	}
+
+	@Test
+	public void testFindPathAsyncCancelledBeforeRunning() throws Exception {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addEdge(p1, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		built.setExecutor(new Executor() {
+			@Override
+			public void execute(Runnable task) {
+				queued.add(task);
+			}
+		});
+		CompletableFuture<List<Edge<Double, CampusPoint>>> future = built.findPathAsync(p1, p2);
+		assertFalse("query ran before its executor ran it", future.isDone());
+		future.cancel(false);
+		queued.get(0).run();
+		assertTrue("cancelled query was not cancelled", future.isCancelled());
+
+		future = built.findPathAsync(p1, p2);
+		queued.get(1).run();
+		assertEquals("queued query found wrong path", 1, future.get().size());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathAsyncStartNotInGraph() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.findPathAsync(p2, p1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSetExecutorNull() {
+		set();
+		model.setExecutor(null);
+	}
+
+	@Test
+	public void testDistanceMatchesFindPathInEveryMode() {
+		set();
+		CampusPaths grid = withBuildings(gridModel(12, 18));
+		grid.buildHierarchy();
+		grid.buildLandmarks(4);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(331);
+		for(RoutingMode mode : RoutingMode.values()) {
+			grid.setRoutingMode(mode);
+			for(int i = 0; i < 50; i++) {
+				CampusPoint s = points.get(rand.nextInt(points.size()));
+				CampusPoint t = points.get(rand.nextInt(points.size()));
+				assertEquals(mode + " distance does not match path", 
+						length(grid.findPath(s, t)), grid.distance(s, t), 1e-9);
+			}
+		}
+		grid.buildBuildingMatrix();
+		List<CampusPoint> buildings = grid.getBuildings();
+		for(int i = 0; i < 50; i++) {
+			CampusPoint s = buildings.get(rand.nextInt(buildings.size()));
+			CampusPoint t = buildings.get(rand.nextInt(buildings.size()));
+			assertEquals("matrix distance does not match path", 
+					length(grid.findPath(s, t)), grid.distance(s, t), 1e-9);
+		}
+	}
+
+	@Test
+	public void testDistanceUnreachable() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addEdge(p1, p2, 2.5);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		assertEquals("wrong distance", 2.5, built.distance(p1, p2), 0.0);
+		assertEquals("distance to self is not 0", 0.0, built.distance(p1, p1), 0.0);
+		assertEquals("distance against edge direction is not infinite", 
+				Double.POSITIVE_INFINITY, built.distance(p2, p1), 0.0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDistanceNullStart() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.distance(null, p1);
+	}
+
+	@Test
+	public void testFindRouteMatchesFindPath() {
+		set();
+		CampusPaths grid = gridModel(10, 21);
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(16);
+		for(int i = 0; i < 50; i++) {
+			CampusPoint s = points.get(rand.nextInt(points.size()));
+			CampusPoint t = points.get(rand.nextInt(points.size()));
+			List<Edge<Double, CampusPoint>> path = grid.findPath(s, t);
+			PathResult route = grid.findRoute(s, t);
+			if(path == null) {
+				assertNull("route found where findPath found none", route);
+				continue;
+			}
+			assertEquals("edges differ from findPath", path, route.getEdges());
+			assertEquals("wrong number of steps", path.size(), route.size());
+			assertEquals("wrong start", s, route.getStart());
+			assertEquals("wrong dest", t, route.getDest());
+			assertEquals("wrong number of points", path.size() + 1, 
+					route.getPoints().size());
+			double walked = 0.0;
+			for(int j = 0; j < path.size(); j++) {
+				assertEquals("wrong point", path.get(j).getDestination(), 
+						route.getPoints().get(j + 1));
+				assertEquals("wrong step distance", path.get(j).getLabel(), 
+						route.getStepDistance(j), 0.0);
+				walked = walked + path.get(j).getLabel();
+				assertEquals("wrong distance so far", walked, 
+						route.getDistanceTo(j + 1), 0.0);
+			}
+			assertEquals("wrong total distance", walked, route.getDistance(), 0.0);
+		}
+	}
+
+	@Test
+	public void testFindRouteParallelEdges() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, 5.0);
+		graph.addEdge(p1, p2, 2.0);
+		graph.addEdge(p2, p3, 1.5);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		PathResult route = built.findRoute(p1, p3);
+		assertEquals("wrong total distance", 3.5, route.getDistance(), 0.0);
+		assertEquals("wrong step distance", 2.0, route.getStepDistance(0), 0.0);
+		assertEquals("heavier parallel edge used", 2.0, 
+				route.getEdges().get(0).getLabel(), 0.0);
+		assertSame("edges rebuilt", route.getEdges(), route.getEdges());
+		PathResult self = built.findRoute(p1, p1);
+		assertEquals("path to self has steps", 0, self.size());
+		assertEquals("path to self has length", 0.0, self.getDistance(), 0.0);
+		assertTrue("path to self has edges", self.getEdges().isEmpty());
+		assertNull("path against edge direction", built.findRoute(p3, p1));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testFindRoutePointsUnmodifiable() {
+		set();
+		graph.addNode(p1);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.findRoute(p1, p1).getPoints().add(p1);
+	}
+
+	@Test
+	public void testCloseAndReopenEdge() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, 10.0);
+		graph.addEdge(p1, p3, 1.0);
+		graph.addEdge(p3, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		assertEquals("wrong distance before closure", 2.0, built.distance(p1, p2), 0.0);
+		built.closeEdge(p1, p3);
+		assertEquals("closed edge was used", 1, built.findPath(p1, p2).size());
+		assertNull("path over closed edge", built.findPath(p1, p3));
+		built.reopenEdge(p1, p3);
+		assertEquals("reopened edge was not used", 2, built.findPath(p1, p2).size());
+		built.setEdgeLength(p3, p2, 20.0);
+		assertEquals("wrong distance after new length", 10.0, 
+				built.distance(p1, p2), 0.0);
+		built.setEdgeLength(p3, p2, 0.5);
+		List<Edge<Double, CampusPoint>> path = built.findPath(p1, p2);
+		assertEquals("wrong distance after shorter length", 1.5, length(path), 0.0);
+		assertEquals("edge label does not show new length", 0.5, 
+				path.get(1).getLabel(), 0.0);
+		assertEquals("graph was changed", 1, graph.edgeCount(p3));
+		assertEquals("graph label was changed", new Edge<Double, CampusPoint>(1.0, p2), 
+				graph.getEdges(p3).iterator().next());
+	}
+
+	@Test
+	public void testClosureLastsAcrossGraphChanges() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, 10.0);
+		graph.addEdge(p1, p3, 1.0);
+		graph.addEdge(p3, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.closeEdge(p3, p2);
+		CampusPoint p4 = new CampusPoint(5.0, 5.0);
+		graph.addNode(p4);
+		graph.addEdge(p2, p4, 1.0);
+		assertEquals("closure was lost when the graph changed", 11.0, 
+				built.distance(p1, p4), 0.0);
+	}
+
+	@Test
+	public void testCloseEdgeKeepsUnaffectedCachedRoutes() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addNode(p3);
+		graph.addEdge(p1, p2, 10.0);
+		graph.addEdge(p1, p3, 1.0);
+		graph.addEdge(p3, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.setRouteCache(10, Long.MAX_VALUE);
+		built.findPath(p1, p3);
+		built.findPath(p1, p2);
+		built.closeEdge(p3, p2);
+		built.findPath(p1, p3);
+		assertEquals("unaffected route was dropped", 1, built.getCacheHits());
+		assertEquals("route over closed edge was kept", 10.0, 
+				length(built.findPath(p1, p2)), 0.0);
+	}
+
+	@Test
+	public void testEdgeChangesRepairBuildingMatrix() {
+		set();
+		CampusPaths grid = withBuildings(gridModel(12, 17));
+		CampusPaths plain = new CampusPaths(graph, grid.getBuildings());
+		grid.buildBuildingMatrix();
+		List<CampusPoint> points = new ArrayList<CampusPoint>();
+		for(CampusPoint p : grid)
+			points.add(p);
+		Random rand = new Random(17);
+		for(int round = 0; round < 40; round++) {
+			CampusPoint from = points.get(rand.nextInt(points.size()));
+			if(graph.edgeCount(from) == 0)
+				continue;
+			List<Edge<Double, CampusPoint>> edges = 
+					new ArrayList<Edge<Double, CampusPoint>>(graph.getEdges(from));
+			CampusPoint to = edges.get(rand.nextInt(edges.size())).getDestination();
+			int change = rand.nextInt(3);
+			double length = 1 + rand.nextDouble() * 20;
+			for(CampusPaths m : new CampusPaths[] {grid, plain}) {
+				if(change == 0)
+					m.closeEdge(from, to);
+				else if(change == 1)
+					m.reopenEdge(from, to);
+				else
+					m.setEdgeLength(from, to, length);
+			}
+			for(CampusPoint s : grid.getBuildings()) {
+				for(CampusPoint t : grid.getBuildings()) {
+					assertEquals("repaired matrix distance is wrong", 
+							plain.distance(s, t), grid.distance(s, t), 1e-9);
+					assertEquals("repaired matrix path is wrong", plain.distance(s, t), 
+							length(grid.findPath(s, t)), 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCloseMissingEdge() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.closeEdge(p1, p2);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSetEdgeLengthNegative() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addEdge(p1, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		built.setEdgeLength(p1, p2, -1.0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSetRouteCacheNegative() {
+		set();
+		model.setRouteCache(-1, 10);
+	}
+
+	@Test
+	public void testAStarFallsBackOnShortEdge() {
+		set();
+		graph.addNode(p1);
+		graph.addNode(p2);
+		graph.addEdge(p1, p2, 1.0);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		assertEquals("A* did not fall back to Dijkstra on inconsistent data", 
+				RoutingMode.DIJKSTRA, 
+				getEffective(built, RoutingMode.ASTAR));
+		assertEquals("fallback search did not find path", 1, built.findPath(p1, p2).size());
+	}
+	
 	@Test(expected=IllegalArgumentException.class)
 	public void testFindPathNullStartPoint() throws MalformedDataException {
 		set();
@@ -161,6 +1462,41 @@ public class CampusPathsTest {
 	public void testGetDirectionNullEnd() {
 		model.getDirection(p1, null);
 	}
+
+	@Test
+	public void testGetDirectionsMergesLegs() {
+		set();
+		CampusPoint a = new CampusPoint(0.0, 0.0);
+		CampusPoint c1 = new CampusPoint(10.0, 0.0);
+		CampusPoint c2 = new CampusPoint(20.0, 0.0);
+		CampusPoint c3 = new CampusPoint(20.0, -10.0);
+		CampusPoint c4 = new CampusPoint(20.0, -20.0);
+		graph.addNode(a);
+		graph.addNode(c1);
+		graph.addNode(c2);
+		graph.addNode(c3);
+		graph.addNode(c4);
+		graph.addEdge(a, c1, 10.0);
+		graph.addEdge(c1, c2, 12.0);
+		graph.addEdge(c2, c3, 10.0);
+		graph.addEdge(c3, c4, 10.4);
+		CampusPaths built = new CampusPaths(graph, new ArrayList<CampusPoint>());
+		assertEquals("legs in the same direction were not merged",
+				"\tWalk 22 feet E to (20, 0)\n" +
+				"\tWalk 20 feet N to (20, -20)\n" +
+				"Total distance: 42 feet\n", built.getDirections(a, c4));
+		assertEquals("wrong directions along a single step",
+				"\tWalk 10 feet N to (20, -10)\n" +
+				"Total distance: 10 feet\n", built.getDirections(c2, c3));
+		assertEquals("wrong directions to the start", "Total distance: 0 feet\n",
+				built.getDirections(c2, c2));
+		assertNull("directions without a path", built.getDirections(c4, a));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testGetDirectionsNullStart() {
+		model.getDirections(null, p1);
+	}
 	
 	@Test
 	public void testCompareTwoBuildingsGreater() {
@@ -0,0 +1,190 @@
+package hw5.test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import hw5.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class contains a set of test cases that can be used to test the
+ * implementation of the FrozenGraph class.
+ * <p>
+ */
+
+public final class FrozenGraphTest {
+
+	private static Graph<String, Double> graph;
+	private static String n1;
+	private static String n2;
+	private static String n3;
+
+	@Before
+	public void setUp() throws Exception {
+		n1 = "Node 1";
+		n2 = "Node 2";
+		n3 = "Node 3";
+		graph = new Graph<String, Double>();
+		graph.addNode(n1);
+		graph.addNode(n2);
+		graph.addNode(n3);
+		graph.addEdge(n1, n2, 1.5);
+		graph.addEdge(n1, n3, 4.0);
+		graph.addEdge(n2, n3, 2.0);
+	}
+
+	@Test
+	public void testFreezeCounts() {
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		assertEquals("frozen node count does not match graph", 3, frozen.nodeCount());
+		assertEquals("frozen edge count does not match graph", 3, frozen.edgeCount());
+	}
+
+	@Test
+	public void testFreezeEmptyGraph() {
+		FrozenGraph<String, Double> frozen = new Graph<String, Double>().freeze();
+		assertEquals("frozen empty graph has nodes", 0, frozen.nodeCount());
+		assertEquals("frozen empty graph has edges", 0, frozen.edgeCount());
+	}
+
+	@Test
+	public void testIdsRoundTrip() {
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		for(String node : graph) {
+			int id = frozen.idOf(node);
+			assertTrue("id out of range", id >= 0 && id < frozen.nodeCount());
+			assertEquals("nodeOf(idOf(node)) is not node", node, frozen.nodeOf(id));
+		}
+		assertEquals("idOf non-existent node is not -1", -1, frozen.idOf("Node 4"));
+		assertEquals("idOf null is not -1", -1, frozen.idOf(null));
+	}
+
+	@Test
+	public void testEdgesMatchGraph() {
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		for(String node : graph) {
+			int id = frozen.idOf(node);
+			Set<Edge<Double, String>> edges = new HashSet<Edge<Double, String>>();
+			for(int e = frozen.firstEdge(id); e < frozen.endEdge(id); e++) {
+				assertEquals("source of edge is not its node", id, frozen.source(e));
+				assertEquals("weight does not match label",
+						frozen.label(e), frozen.weight(e), 0.0);
+				edges.add(frozen.edge(e));
+			}
+			assertEquals("edges of " + node + " do not match graph",
+					graph.getEdges(node), edges);
+			assertEquals("out degree does not match graph",
+					graph.edgeCount(node), frozen.outDegree(id));
+		}
+	}
+
+	@Test
+	public void testIncomingEdges() {
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		int count = 0;
+		for(String node : graph) {
+			int id = frozen.idOf(node);
+			for(int i = frozen.firstInEdge(id); i < frozen.endInEdge(id); i++) {
+				int e = frozen.inEdge(i);
+				assertEquals("incoming edge does not point to its node", id, frozen.target(e));
+				assertEquals("incoming edge has wrong source", 
+						frozen.source(e), frozen.inSource(i));
+				count++;
+			}
+		}
+		assertEquals("incoming edges do not cover every edge", frozen.edgeCount(), count);
+		int n3 = frozen.idOf(FrozenGraphTest.n3);
+		assertEquals("wrong number of incoming edges", 2, 
+				frozen.endInEdge(n3) - frozen.firstInEdge(n3));
+	}
+
+	@Test
+	public void testFindEdge() {
+		graph.addEdge(n1, n2, 0.5);
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		int e = frozen.findEdge(frozen.idOf(n1), frozen.idOf(n2));
+		assertEquals("findEdge did not return the lightest edge", 0.5, frozen.weight(e), 0.0);
+		assertEquals("findEdge on missing edge is not -1", -1,
+				frozen.findEdge(frozen.idOf(n3), frozen.idOf(n1)));
+	}
+
+	@Test
+	public void testSnapshotIgnoresLaterChanges() {
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		graph.addNode("Node 4");
+		graph.addEdge(n3, n1, 1.0);
+		assertEquals("snapshot node count changed", 3, frozen.nodeCount());
+		assertEquals("snapshot edge count changed", 3, frozen.edgeCount());
+	}
+
+	@Test
+	public void testWithEdges() {
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		int e = frozen.findEdge(frozen.idOf(n1), frozen.idOf(n2));
+		FrozenGraph<String, Double> changed = frozen.withEdges(new int[] {e}, 
+				new Double[] {7.0}, new double[] {7.0});
+		assertEquals("changed edge has wrong weight", 7.0, changed.weight(e), 0.0);
+		assertEquals("changed edge has wrong label", 7.0, changed.label(e), 0.0);
+		assertEquals("original snapshot was changed", 1.5, frozen.weight(e), 0.0);
+		assertEquals("node count differs", frozen.nodeCount(), changed.nodeCount());
+		for(int f = 0; f < frozen.edgeCount(); f++) {
+			assertEquals("edge target differs", frozen.target(f), changed.target(f));
+			if(f != e)
+				assertEquals("unchanged edge differs", 
+						frozen.weight(f), changed.weight(f), 0.0);
+		}
+		for(String node : graph)
+			assertEquals("node id differs", frozen.idOf(node), changed.idOf(node));
+		int id = frozen.idOf(n3);
+		assertEquals("incoming edges differ", 
+				frozen.endInEdge(id) - frozen.firstInEdge(id),
+				changed.endInEdge(id) - changed.firstInEdge(id));
+	}
+
+	@Test
+	public void testIdsMatchGraph() {
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		for(String node : graph) {
+			int id = graph.idOf(node);
+			assertEquals("snapshot id differs from graph id", id, frozen.idOf(node));
+			for(int i = 0; i < graph.outDegree(id); i++) {
+				int e = frozen.firstEdge(id) + i;
+				assertEquals("edge order differs from graph", graph.target(id, i),
+						frozen.target(e));
+				assertEquals("edge order differs from graph", graph.label(id, i),
+						frozen.label(e));
+			}
+		}
+	}
+
+	@Test
+	public void testIdsCloseUpOverRemovedNodes() {
+		graph.remove(n1);
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		assertEquals("removed node is in snapshot", 2, frozen.nodeCount());
+		assertEquals("ids were not closed up", 0, frozen.idOf(n2));
+		assertEquals("ids were not closed up", 1, frozen.idOf(n3));
+		assertEquals("edge count does not match graph", 1, frozen.edgeCount());
+		assertEquals("edge target is wrong", 1, frozen.target(frozen.firstEdge(0)));
+	}
+
+	@Test
+	public void testCheckedIdOf() {
+		FrozenGraph<String, Double> frozen = graph.freeze();
+		assertEquals("checked idOf differs from idOf", frozen.idOf(n2),
+				frozen.idOf(n2, "node"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCheckedIdOfNull() {
+		graph.freeze().idOf(null, "node");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCheckedIdOfNotInGraph() {
+		graph.freeze().idOf("Node 4", "node");
+	}
+}
@@ -483,4 +483,161 @@ public final class GraphTest {
 		}
 		assertEquals("iterator did not return enough nodes", array.length, count);
 	}
+	
+	@Test
+	public void testVersionChangesOnlyWithGraph() {
+		set(n1);
+		long version = graph.getVersion();
+		graph.addNode(n1);
+		assertEquals("version changed when adding existing node", version, graph.getVersion());
+		graph.addNode(n2);
+		assertTrue("version unchanged after node add", graph.getVersion() != version);
+		version = graph.getVersion();
+		graph.addEdge(n1, n2, "Edge 1");
+		assertTrue("version unchanged after edge add", graph.getVersion() != version);
+		version = graph.getVersion();
+		graph.remove(n2);
+		assertTrue("version unchanged after remove", graph.getVersion() != version);
+		version = graph.getVersion();
+		graph.clear();
+		assertTrue("version unchanged after clear", graph.getVersion() != version);
+		version = graph.getVersion();
+		graph.clear();
+		assertEquals("version changed when clearing empty graph", version, graph.getVersion());
+	}
+	
+	@Test
+	public void testIdsAreDenseInInsertionOrder() {
+		graph.clear();
+		for(int i = 0; i < array.length; i++) {
+			graph.addNode(array[i]);
+			assertEquals("id is not the next free id", i, graph.idOf(array[i]));
+		}
+		graph.addNode(array[0]);
+		assertEquals("re-adding a node changed its id", 0, graph.idOf(array[0]));
+		assertEquals("idLimit is not nodeCount", graph.nodeCount(), graph.idLimit());
+		for(int i = 0; i < array.length; i++)
+			assertEquals("nodeOf does not invert idOf", array[i], graph.nodeOf(i));
+		assertEquals("idOf non-existent node is not -1", -1, graph.idOf("Node 0"));
+		assertEquals("idOf null is not -1", -1, graph.idOf(null));
+	}
+	
+	@Test
+	public void testIdsAfterRemoveAndClear() {
+		set(n1, n2);
+		graph.remove(n1);
+		assertEquals("removed node still has an id", -1, graph.idOf(n1));
+		assertNull("nodeOf removed id is not null", graph.nodeOf(0));
+		assertEquals("remove changed another node's id", 1, graph.idOf(n2));
+		graph.addNode(n1);
+		assertEquals("id of removed node was reused", 2, graph.idOf(n1));
+		assertEquals("idLimit does not count removed ids", 3, graph.idLimit());
+		graph.clear();
+		graph.addNode(n2);
+		assertEquals("ids do not start from 0 after clear", 0, graph.idOf(n2));
+	}
+	
+	@Test
+	public void testEdgesById() {
+		set(n1, n2);
+		graph.addEdge(n1, n2, "Edge 1");
+		graph.addEdge(n1, n1, "Edge 2");
+		graph.addEdge(n1, n2, "Edge 1");
+		int id = graph.idOf(n1);
+		assertEquals("out degree does not match edgeCount", graph.edgeCount(n1),
+				graph.outDegree(id));
+		assertEquals("duplicate edge was numbered", 2, graph.outDegree(id));
+		assertEquals("edges are not numbered in order added", graph.idOf(n2),
+				graph.target(id, 0));
+		assertEquals("label does not match edge", "Edge 1", graph.label(id, 0));
+		assertEquals("edges are not numbered in order added", id, graph.target(id, 1));
+		assertEquals("label does not match edge", "Edge 2", graph.label(id, 1));
+		assertEquals("out degree of childless node is not 0", 0,
+				graph.outDegree(graph.idOf(n2)));
+		assertEquals("edge count is wrong", 2, graph.edgeCount());
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testGetEdgesIsUnmodifiable() {
+		set(n1, n2);
+		graph.getEdges(n1).add(new Edge<String, String>("Edge 1", n2));
+	}
+	
+	@Test
+	public void testGetParents() {
+		set(set);
+		assertTrue("parents of edgeless node is not empty", graph.getParents(n1).isEmpty());
+		assertTrue("parents of non-existent node is not empty",
+				graph.getParents("Node 0").isEmpty());
+		graph.addEdge(n1, n2, "Edge 1");
+		graph.addEdge(n2, n2, "Edge 2");
+		graph.addEdge(n1, n2, "Edge 3");
+		Set<String> parents = new HashSet<String>();
+		parents.add(n1);
+		parents.add(n2);
+		assertEquals("parents are wrong", parents, graph.getParents(n2));
+		assertEquals("in degree is wrong", 3, graph.inDegree(graph.idOf(n2)));
+		assertEquals("in degree is wrong", 0, graph.inDegree(graph.idOf(n1)));
+		int id = graph.idOf(n2);
+		for(int i = 0; i < graph.inDegree(id); i++) {
+			String source = graph.nodeOf(graph.source(id, i));
+			assertTrue("incoming edge has no outgoing twin", graph.getEdges(source)
+					.contains(new Edge<String, String>(graph.inLabel(id, i), n2)));
+		}
+	}
+	
+	@Test
+	public void testRemoveEdge() {
+		set(n1, n2);
+		graph.addEdge(n1, n2, "Edge 1");
+		graph.addEdge(n1, n2, "Edge 2");
+		graph.addEdge(n1, n1, "Edge 3");
+		long version = graph.getVersion();
+		assertFalse("removed edge with wrong label", graph.removeEdge(n1, n2, "Edge 3"));
+		assertFalse("removed edge in wrong direction", graph.removeEdge(n2, n1, "Edge 1"));
+		assertFalse("removed edge of non-existent node",
+				graph.removeEdge("Node 0", n2, "Edge 1"));
+		assertEquals("version changed without a removal", version, graph.getVersion());
+		
+		assertTrue("did not remove edge", graph.removeEdge(n1, n2, "Edge 1"));
+		assertTrue("version unchanged after edge removal", graph.getVersion() != version);
+		assertFalse("removed edge twice", graph.removeEdge(n1, n2, "Edge 1"));
+		assertEquals("edge count is wrong", 2, graph.edgeCount());
+		assertEquals("edges between is wrong", 1, graph.edgesBetween(n1, n2));
+		assertFalse("removed edge still in getEdges", graph.getEdges(n1)
+				.contains(new Edge<String, String>("Edge 1", n2)));
+		assertEquals("in degree is wrong", 1, graph.inDegree(graph.idOf(n2)));
+		assertEquals("wrong edge left", "Edge 2", graph.inLabel(graph.idOf(n2), 0));
+		
+		assertTrue("did not remove self edge", graph.removeEdge(n1, n1, "Edge 3"));
+		assertTrue("parents of self still hold node", graph.getParents(n1).isEmpty());
+		assertTrue("did not remove last edge", graph.removeEdge(n1, n2, "Edge 2"));
+		assertFalse("node has edges after removing all", graph.hasEdges(n1));
+		assertTrue("parents not empty after removing all", graph.getParents(n2).isEmpty());
+		assertEquals("edge count is wrong", 0, graph.edgeCount());
+	}
+	
+	@Test
+	public void testRemoveTakesIncomingEdges() {
+		set(set);
+		// every node points at n1 and at the next node, and n1 at itself
+		for(int i = 0; i < array.length; i++) {
+			graph.addEdge(array[i], n1, "Edge in");
+			graph.addEdge(array[i], array[(i + 1) % array.length], "Edge next");
+		}
+		graph.remove(n1);
+		// all edges in, plus the next edges into and out of n1, are gone
+		assertEquals("edges remain after remove", array.length - 2, graph.edgeCount());
+		for(String node : graph) {
+			assertFalse("edge to removed node remains", graph.getChildren(node).contains(n1));
+			assertFalse("removed node is a parent", graph.getParents(node).contains(n1));
+		}
+		assertEquals("edges remain in frozen graph", graph.edgeCount(),
+				graph.freeze(EdgeWeigher.UNIT).edgeCount());
+		
+		// re-adding the node gives it no edges
+		graph.addNode(n1);
+		assertTrue("re-added node has parents", graph.getParents(n1).isEmpty());
+		assertFalse("re-added node has edges", graph.hasEdges(n1));
+	}
 }
@@ -6,6 +6,9 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import hw5.test.EdgeTest;
 import hw5.test.GraphTest;
+import hw5.test.FrozenGraphTest;
+import hw5.test.BreadthFirstSearchTest;
+import hw5.test.LockFreeIntQueueTest;
 
 /**
  * ImplementationTests is a test suite used to encapsulate all
@@ -16,7 +19,8 @@ import hw5.test.GraphTest;
  */
 
 @RunWith(Suite.class)
-@SuiteClasses({ CheckAsserts.class, EdgeTest.class, GraphTest.class })
+@SuiteClasses({ CheckAsserts.class, EdgeTest.class, GraphTest.class,
+	FrozenGraphTest.class, BreadthFirstSearchTest.class, LockFreeIntQueueTest.class })
 public final class ImplementationTests
 {
   //this class is a placeholder for the suite, so it has no members.
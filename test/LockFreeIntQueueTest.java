@@ -0,0 +1,154 @@
+package hw5.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hw5.problem1.MpmcIntQueue;
+import hw5.problem1.SpscIntQueue;
+
+/**
+ * This class contains a set of test cases that can be used to test the
+ * implementation of the MpmcIntQueue and SpscIntQueue classes.
+ * <p>
+ */
+
+public final class LockFreeIntQueueTest {
+
+	@Test
+	public void testMpmcFirstInFirstOut() {
+		MpmcIntQueue queue = new MpmcIntQueue(4);
+		assertTrue(queue.isEmpty());
+		// several laps around the ring
+		for(int i = 0; i < 20; i++) {
+			queue.enqueue(i);
+			queue.enqueueInt(100 + i);
+			assertEquals(2, queue.size());
+			assertEquals(Integer.valueOf(i), queue.front());
+			assertEquals(Integer.valueOf(i), queue.dequeue());
+			assertEquals(100 + i, queue.dequeueInt());
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testMpmcBounded() {
+		MpmcIntQueue queue = new MpmcIntQueue(3);
+		assertEquals("capacity is not rounded to a power of two", 4, queue.capacity());
+		for(int i = 0; i < 4; i++)
+			assertTrue(queue.offerInt(i));
+		assertFalse("full queue took another item", queue.offerInt(4));
+		assertEquals(4, queue.size());
+		for(int i = 0; i < 4; i++)
+			assertEquals(i, queue.pollInt(-1));
+		assertEquals("empty queue did not return ifEmpty", -1, queue.pollInt(-1));
+	}
+
+	@Test
+	public void testSpscFirstInFirstOut() {
+		SpscIntQueue queue = new SpscIntQueue(4);
+		assertTrue(queue.isEmpty());
+		for(int i = 0; i < 20; i++) {
+			queue.enqueue(i);
+			queue.enqueueInt(100 + i);
+			assertEquals(2, queue.size());
+			assertEquals(Integer.valueOf(i), queue.front());
+			assertEquals(Integer.valueOf(i), queue.dequeue());
+			assertEquals(100 + i, queue.dequeueInt());
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testSpscBounded() {
+		SpscIntQueue queue = new SpscIntQueue(4);
+		for(int i = 0; i < 4; i++)
+			assertTrue(queue.offerInt(i));
+		assertFalse("full queue took another item", queue.offerInt(4));
+		assertEquals(0, queue.pollInt(-1));
+		assertTrue("freed slot was not reused", queue.offerInt(4));
+		for(int i = 1; i <= 4; i++)
+			assertEquals(i, queue.pollInt(-1));
+		assertEquals("empty queue did not return ifEmpty", -1, queue.pollInt(-1));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testMpmcEnqueueNull() {
+		new MpmcIntQueue(4).enqueue(null);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSpscEnqueueNull() {
+		new SpscIntQueue(4).enqueue(null);
+	}
+
+	@Test
+	public void testMpmcManyThreadsLoseNothing() throws InterruptedException {
+		final int threads = 4;
+		final int each = 20000;
+		final MpmcIntQueue queue = new MpmcIntQueue(16);
+		final boolean[] seen = new boolean[threads * each];
+		final int[] repeats = new int[1];
+		Thread[] workers = new Thread[2 * threads];
+		for(int i = 0; i < threads; i++) {
+			final int first = i * each;
+			workers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for(int v = first; v < first + each; v++)
+						queue.enqueueInt(v);
+				}
+			});
+			workers[threads + i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for(int j = 0; j < each; j++) {
+						int v = queue.dequeueInt();
+						synchronized(seen) {
+							if(seen[v])
+								repeats[0]++;
+							seen[v] = true;
+						}
+					}
+				}
+			});
+		}
+		for(Thread worker : workers)
+			worker.start();
+		for(Thread worker : workers)
+			worker.join();
+		assertEquals("items were dequeued twice", 0, repeats[0]);
+		for(int v = 0; v < seen.length; v++)
+			assertTrue("item " + v + " was lost", seen[v]);
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testSpscTwoThreadsKeepOrder() throws InterruptedException {
+		final int count = 100000;
+		final SpscIntQueue queue = new SpscIntQueue(16);
+		final int[] outOfOrder = new int[1];
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for(int v = 0; v < count; v++)
+					queue.enqueueInt(v);
+			}
+		});
+		Thread consumer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for(int v = 0; v < count; v++) {
+					if(queue.dequeueInt() != v)
+						outOfOrder[0]++;
+				}
+			}
+		});
+		producer.start();
+		consumer.start();
+		producer.join();
+		consumer.join();
+		assertEquals("items came out of order", 0, outOfOrder[0]);
+		assertTrue(queue.isEmpty());
+	}
+}
@@ -0,0 +1,245 @@
+package hw8.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hw5.*;
+import hw8.*;
+
+/**
+ * This class contains a number of tests that can be used to test the
+ * PathEngine class
+ *
+ * @author Logan Ricord
+ */
+
+public class PathEngineTest {
+
+	private static Graph<String, Double> graph;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph<String, Double>();
+		for(String node : new String[] {"A", "B", "C", "D", "E"})
+			graph.addNode(node);
+		graph.addEdge("A", "B", 4.0);
+		graph.addEdge("A", "C", 1.0);
+		graph.addEdge("C", "B", 2.0);
+		graph.addEdge("B", "D", 5.0);
+		graph.addEdge("C", "D", 8.0);
+	}
+
+	/**
+	 * Returns the total weight of path.
+	 */
+	private static double length(List<Edge<Double, Integer>> path) {
+		double total = 0.0;
+		for(Edge<Double, Integer> edge : path)
+			total = total + edge.getLabel();
+		return total;
+	}
+
+	@Test
+	public void testFindPath() {
+		PathEngine<String, Double> engine =
+				new PathEngine<String, Double>(graph, EdgeWeigher.NUMBER);
+		List<Edge<Double, String>> path = engine.findPath("A", "D");
+		assertEquals("path has wrong number of edges", 3, path.size());
+		assertEquals("path has wrong first edge", new Edge<Double, String>(1.0, "C"),
+				path.get(0));
+		assertEquals("path has wrong second edge", new Edge<Double, String>(2.0, "B"),
+				path.get(1));
+		assertEquals("path has wrong last edge", new Edge<Double, String>(5.0, "D"),
+				path.get(2));
+	}
+
+	@Test
+	public void testFindPathToSelf() {
+		PathEngine<String, Double> engine =
+				new PathEngine<String, Double>(graph, EdgeWeigher.NUMBER);
+		assertTrue("path to self is not empty", engine.findPath("B", "B").isEmpty());
+	}
+
+	@Test
+	public void testFindPathUnreachable() {
+		PathEngine<String, Double> engine =
+				new PathEngine<String, Double>(graph, EdgeWeigher.NUMBER);
+		assertNull("path to unreachable node is not null", engine.findPath("A", "E"));
+		assertNull("path against edge direction is not null", engine.findPath("D", "A"));
+	}
+
+	@Test
+	public void testFindPathUnitWeigher() {
+		PathEngine<String, Double> engine =
+				new PathEngine<String, Double>(graph, EdgeWeigher.UNIT);
+		assertEquals("unit-weight path does not have fewest edges", 2,
+				engine.findPath("A", "D").size());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathNullStart() {
+		new PathEngine<String, Double>(graph, EdgeWeigher.NUMBER).findPath(null, "A");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathMissingDest() {
+		new PathEngine<String, Double>(graph, EdgeWeigher.NUMBER).findPath("A", "Z");
+	}
+
+	@Test
+	public void testMatchesBellmanFordOnRandomGraphs() {
+		Random rand = new Random(331);
+		for(int round = 0; round < 20; round++) {
+			int n = 2 + rand.nextInt(40);
+			Graph<Integer, Double> g = new Graph<Integer, Double>();
+			for(int i = 0; i < n; i++)
+				g.addNode(i);
+			int m = rand.nextInt(4 * n);
+			int[][] edges = new int[m][];
+			double[] weights = new double[m];
+			for(int i = 0; i < m; i++) {
+				edges[i] = new int[] {rand.nextInt(n), rand.nextInt(n)};
+				weights[i] = rand.nextInt(20);
+				g.addEdge(edges[i][0], edges[i][1], weights[i]);
+			}
+			PathEngine<Integer, Double> engine =
+					new PathEngine<Integer, Double>(g, EdgeWeigher.NUMBER);
+			for(int s = 0; s < n; s++) {
+				double[] dist = new double[n];
+				Arrays.fill(dist, Double.POSITIVE_INFINITY);
+				dist[s] = 0.0;
+				for(int k = 0; k < n; k++) {
+					for(int i = 0; i < m; i++) {
+						double d = dist[edges[i][0]] + weights[i];
+						if(d < dist[edges[i][1]])
+							dist[edges[i][1]] = d;
+					}
+				}
+				for(int t = 0; t < n; t++) {
+					List<Edge<Double, Integer>> path = engine.findPath(s, t);
+					if(dist[t] == Double.POSITIVE_INFINITY)
+						assertNull("found path to unreachable node", path);
+					else
+						assertEquals("path is not shortest", dist[t], length(path), 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDistancesFrom() {
+		PathEngine<String, Double> engine =
+				new PathEngine<String, Double>(graph, EdgeWeigher.NUMBER);
+		FrozenGraph<String, Double> frozen = engine.getGraph();
+		double[] dist = engine.distancesFrom("A");
+		assertEquals("wrong distance to start", 0.0, dist[frozen.idOf("A")], 0.0);
+		assertEquals("wrong distance to B", 3.0, dist[frozen.idOf("B")], 0.0);
+		assertEquals("wrong distance to C", 1.0, dist[frozen.idOf("C")], 0.0);
+		assertEquals("wrong distance to D", 8.0, dist[frozen.idOf("D")], 0.0);
+		assertEquals("unreachable node has a distance", Double.POSITIVE_INFINITY,
+				dist[frozen.idOf("E")], 0.0);
+		assertArrayEquals("delta stepping differs from Dijkstra", dist,
+				engine.distancesFrom("A", 2.0, 2), 0.0);
+	}
+
+	@Test
+	public void testDeltaSteppingMatchesDijkstraOnRandomGraphs() {
+		Random rand = new Random(331);
+		for(int round = 0; round < 12; round++) {
+			// some graphs are large enough for the relaxations to be split into tasks
+			int n = (round % 3 == 0) ? 2000 + rand.nextInt(2000) : 2 + rand.nextInt(40);
+			Graph<Integer, Double> g = new Graph<Integer, Double>();
+			for(int i = 0; i < n; i++)
+				g.addNode(i);
+			int m = rand.nextInt(4 * n);
+			for(int i = 0; i < m; i++) {
+				double weight = (rand.nextInt(10) == 0) ? 0.0 : 50 * rand.nextDouble();
+				g.addEdge(rand.nextInt(n), rand.nextInt(n), weight);
+			}
+			PathEngine<Integer, Double> engine =
+					new PathEngine<Integer, Double>(g, EdgeWeigher.NUMBER);
+			for(int k = 0; k < 3; k++) {
+				int s = rand.nextInt(n);
+				double[] expected = engine.distancesFrom(s);
+				for(double delta : new double[] {0.01, 4.0, 25.0, 1000.0}) {
+					assertArrayEquals("delta stepping differs from Dijkstra", expected,
+							engine.distancesFrom(s, delta, 1 + rand.nextInt(4)), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDistancesFromZeroDelta() {
+		new PathEngine<String, Double>(graph, EdgeWeigher.NUMBER).distancesFrom("A", 0.0, 1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDistancesFromNoThreads() {
+		new PathEngine<String, Double>(graph, EdgeWeigher.NUMBER).distancesFrom("A", 1.0, 0);
+	}
+
+	@Test
+	public void testDialSearchMatchesDijkstraOnWholeWeights() {
+		Random rand = new Random(331);
+		for(int round = 0; round < 12; round++) {
+			int n = 2 + rand.nextInt(300);
+			Graph<Integer, Double> g = new Graph<Integer, Double>();
+			for(int i = 0; i < n; i++)
+				g.addNode(i);
+			int m = rand.nextInt(4 * n);
+			for(int i = 0; i < m; i++) {
+				// whole weights round to themselves, so both searches see the same graph
+				double weight = (rand.nextInt(10) == 0) ? 0.0 : 1 + rand.nextInt(100);
+				g.addEdge(rand.nextInt(n), rand.nextInt(n), weight);
+			}
+			FrozenGraph<Integer, Double> frozen = g.freeze();
+			PathEngine<Integer, Double> engine = new PathEngine<Integer, Double>(frozen);
+			DialSearch<Integer, Double> dial = new DialSearch<Integer, Double>(frozen, 1.0);
+			for(int k = 0; k < 3; k++) {
+				int s = rand.nextInt(n);
+				int t = rand.nextInt(n);
+				assertArrayEquals("bucket search differs from Dijkstra",
+						engine.distancesFrom(s), dial.distancesFrom(s), 0.0);
+				double expected = engine.distance(s, t);
+				assertEquals("bucket search distance differs from Dijkstra",
+						expected, dial.distance(s, t), 0.0);
+				if(expected < Double.POSITIVE_INFINITY)
+					assertEquals("bucket search path is not shortest",
+							expected, length(dial.findPath(s, t)), 0.0);
+				else
+					assertNull("bucket search found a path to an unreachable node",
+							dial.findPath(s, t));
+			}
+		}
+	}
+
+	@Test
+	public void testDialSearchRoundsWeights() {
+		DialSearch<String, Double> dial = new DialSearch<String, Double>(graph.freeze(), 3.0);
+		// weights round to A-B 3, A-C 0, C-B 3, B-D 6, C-D 9
+		assertEquals("rounded A-C length is wrong", 0.0, dial.distance("A", "C"), 0.0);
+		assertEquals("rounded A-B length is wrong", 3.0, dial.distance("A", "B"), 0.0);
+		assertEquals("rounded A-D length is wrong", 9.0, dial.distance("A", "D"), 0.0);
+		assertEquals("edges are one way", Double.POSITIVE_INFINITY,
+				dial.distance("D", "A"), 0.0);
+		assertNull("found a path against edge directions", dial.findPath("D", "A"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDialSearchZeroResolution() {
+		new DialSearch<String, Double>(graph.freeze(), 0.0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDialSearchEdgeTooLong() {
+		graph.addEdge("D", "E", DialSearch.MAX_LENGTH + 1.0);
+		new DialSearch<String, Double>(graph.freeze(), 1.0);
+	}
+}